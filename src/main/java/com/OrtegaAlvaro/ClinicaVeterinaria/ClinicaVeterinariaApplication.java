@@ -2,8 +2,14 @@ package com.OrtegaAlvaro.ClinicaVeterinaria;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableAsync
+@EnableCaching
+@EnableScheduling
 public class ClinicaVeterinariaApplication {
 
 	public static void main(String[] args) {
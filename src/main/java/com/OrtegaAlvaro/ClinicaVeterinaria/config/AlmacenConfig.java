@@ -0,0 +1,84 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.config;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.AlmacenImagenes;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.AlmacenImagenesLocal;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.AlmacenImagenesS3;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Elige el almacén de imágenes según imagenes.almacen.tipo:
+ * - local (por defecto): subdirectorios de upload.dir.
+ * - s3: bucket compatible con S3. Con imagenes.almacen.s3.endpoint se puede
+ * apuntar a un servicio local (MinIO, LocalStack) para pruebas.
+ */
+@Configuration
+public class AlmacenConfig {
+
+    /**
+     * Subdirectorio de upload.dir con las copias locales de las imágenes del
+     * bucket (empieza por punto para que la migración lo ignore).
+     */
+    public static final String DIRECTORIO_COPIAS_S3 = ".s3";
+
+    @Bean
+    public AlmacenImagenes almacenImagenes(@Value("${upload.dir}") String uploadDir,
+            @Value("${imagenes.almacen.tipo:local}") String tipo,
+            @Value("${imagenes.almacen.s3.bucket:}") String bucket,
+            @Value("${imagenes.almacen.s3.region:us-east-1}") String region,
+            @Value("${imagenes.almacen.s3.endpoint:}") String endpoint,
+            @Value("${imagenes.almacen.s3.access-key:}") String accessKey,
+            @Value("${imagenes.almacen.s3.secret-key:}") String secretKey,
+            @Value("${imagenes.almacen.s3.crear-bucket:false}") boolean crearBucket,
+            @Value("${imagenes.almacen.s3.copias-max-bytes:2GB}") DataSize maxBytesCopias,
+            @Value("${imagenes.almacen.s3.copias-revalidacion:PT5M}") Duration revalidacion) {
+        Path raiz = Paths.get(uploadDir).toAbsolutePath().normalize();
+
+        switch (tipo) {
+            case "local":
+                return new AlmacenImagenesLocal(raiz);
+            case "s3":
+                if (bucket.isBlank()) {
+                    throw new IllegalStateException("Falta imagenes.almacen.s3.bucket para el almacén S3.");
+                }
+                AlmacenImagenesS3 almacen = new AlmacenImagenesS3(
+                        clienteS3(region, endpoint, accessKey, secretKey), bucket, raiz,
+                        raiz.resolve(DIRECTORIO_COPIAS_S3), maxBytesCopias.toBytes(), revalidacion);
+                if (crearBucket) {
+                    almacen.crearBucketSiFalta();
+                }
+                return almacen;
+            default:
+                throw new IllegalStateException("Tipo de almacén de imágenes no válido: " + tipo + " (local o s3)");
+        }
+    }
+
+    private static S3Client clienteS3(String region, String endpoint, String accessKey, String secretKey) {
+        AwsCredentialsProvider credenciales = accessKey.isBlank()
+                ? DefaultCredentialsProvider.builder().build()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credenciales);
+        if (!endpoint.isBlank()) {
+            // Los servicios S3 locales no resuelven buckets como subdominios
+            builder.endpointOverride(URI.create(endpoint)).forcePathStyle(true);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.config;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.CacheDatosService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Cachés de Spring (@Cacheable) sobre Caffeine.
+ * - Cada caché tiene su propio límite de tamaño y caducidad, con la sintaxis
+ * de Caffeine en cache.spec.{nombre} (por defecto cache.spec-defecto).
+ * - Solo existen las cachés de CacheDatosService.NOMBRES: un nombre mal
+ * escrito en @Cacheable falla en lugar de crear una caché sin límite.
+ * - El gestor es transaccional: las escrituras y descartes hechos dentro de
+ * una transacción se aplican tras el commit, de modo que ninguna lectura
+ * concurrente ve (ni vuelve a cachear) datos que luego se deshacen.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(Environment env,
+            @Value("${cache.spec-defecto:maximumSize=1000,expireAfterWrite=10m}") String specDefecto) {
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        manager.setCacheNames(List.of());
+        for (String nombre : CacheDatosService.NOMBRES) {
+            String spec = env.getProperty("cache.spec." + nombre, specDefecto);
+            Caffeine<Object, Object> builder = Caffeine.from(spec);
+            if (!spec.contains("recordStats")) {
+                // Necesario para GET /api/cache/datos
+                builder.recordStats();
+            }
+            manager.registerCustomCache(nombre, builder.build());
+        }
+        return new TransactionAwareCacheManagerProxy(manager);
+    }
+}
@@ -1,11 +1,13 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.config;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.exceptions.ConflictoException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -41,6 +43,21 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(body);
     }
 
+    /**
+     * Cuerpo JSON ilegible o con valores no válidos (p. ej. un estado
+     * desconocido) → 400 Bad Request
+     */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<Map<String, Object>> handleNotReadable(HttpMessageNotReadableException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", 400);
+        body.put("error", "Petición mal formada");
+        body.put("mensaje", ex.getMostSpecificCause().getMessage());
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
     /**
      * Violaciones de integridad (UNIQUE constraints) → 409 Conflict
      */
@@ -55,6 +72,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
     }
 
+    /**
+     * Conflictos de negocio (p. ej. solapamiento de citas) → 409 Conflict
+     */
+    @ExceptionHandler(ConflictoException.class)
+    public ResponseEntity<Map<String, Object>> handleConflicto(ConflictoException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", 409);
+        body.put("error", "Conflicto de datos");
+        body.put("mensaje", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
     /**
      * Entidad no encontrada → 404 Not Found
      */
@@ -0,0 +1,71 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Control de admisión para la subida de imágenes.
+ * Limita cuántas subidas se procesan a la vez para que una ráfaga no sature
+ * el disco del resto de la API; si no hay hueco tras una breve espera se
+ * responde 503 con Retry-After.
+ * Se ejecuta antes de resolver los argumentos del controlador y el multipart
+ * se resuelve de forma perezosa, así que el cuerpo de una subida rechazada no
+ * llega a escribirse en disco.
+ */
+@Component
+public class LimiteSubidasInterceptor implements HandlerInterceptor {
+
+    private static final String ATRIBUTO_PERMISO = LimiteSubidasInterceptor.class.getName() + ".permiso";
+
+    private final Semaphore permisos;
+
+    private final long esperaMs;
+
+    private final long retryAfterSegundos;
+
+    public LimiteSubidasInterceptor(@Value("${imagenes.subidas.max-concurrentes:4}") int maxConcurrentes,
+            @Value("${imagenes.subidas.espera-ms:500}") long esperaMs,
+            @Value("${imagenes.subidas.retry-after-segundos:2}") long retryAfterSegundos) {
+        this.permisos = new Semaphore(maxConcurrentes);
+        this.esperaMs = esperaMs;
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        boolean admitida;
+        try {
+            admitida = permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            admitida = false;
+        }
+        if (!admitida) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSegundos));
+            response.setContentType("application/json");
+            response.getWriter().write(
+                    "{\"error\":\"Demasiadas subidas en curso. Inténtelo de nuevo en unos segundos.\"}");
+            return false;
+        }
+        request.setAttribute(ATRIBUTO_PERMISO, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(ATRIBUTO_PERMISO) != null) {
+            request.removeAttribute(ATRIBUTO_PERMISO);
+            permisos.release();
+        }
+    }
+}
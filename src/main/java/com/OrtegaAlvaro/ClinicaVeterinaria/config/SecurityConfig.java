@@ -1,6 +1,7 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.config;
 
 import com.OrtegaAlvaro.ClinicaVeterinaria.security.JwtAuthFilter;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -44,6 +45,16 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**", "/error").permitAll()
+                        // El despacho ASYNC solo completa respuestas en streaming ya autorizadas
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        // Las exportaciones completas solo para VETERINARIO
+                        .requestMatchers("/api/export/**").hasRole("VETERINARIO")
+                        // Estadísticas del almacén de imágenes
+                        .requestMatchers("/api/imagenes/**").hasRole("VETERINARIO")
+                        // Estadísticas de las cachés
+                        .requestMatchers("/api/cache/**").hasRole("VETERINARIO")
+                        // El batch comprueba los permisos de cada operación (BatchService)
+                        .requestMatchers(HttpMethod.POST, "/api/batch").authenticated()
                         // Solo VETERINARIO puede crear/editar/eliminar
                         .requestMatchers(HttpMethod.POST, "/api/**").hasRole("VETERINARIO")
                         .requestMatchers(HttpMethod.PUT, "/api/**").hasRole("VETERINARIO")
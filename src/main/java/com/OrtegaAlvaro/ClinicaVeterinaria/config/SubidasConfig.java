@@ -0,0 +1,55 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.config;
+
+import jakarta.servlet.MultipartConfigElement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Configuración de la subida de ficheros.
+ * - El contenedor vuelca cada fichero del multipart directamente a disco
+ * (umbral 0) dentro del directorio de subidas, de modo que ImagenService puede
+ * moverlo a su sitio sin copiarlo ni cargarlo en memoria.
+ * - Las subidas de imágenes pasan por el control de admisión
+ * (LimiteSubidasInterceptor).
+ */
+@Configuration
+public class SubidasConfig implements WebMvcConfigurer {
+
+    /**
+     * Subdirectorio temporal dentro de upload.dir (mismo sistema de ficheros
+     * que las imágenes definitivas).
+     */
+    public static final String DIRECTORIO_TEMPORAL = ".tmp";
+
+    @Autowired
+    private LimiteSubidasInterceptor limiteSubidas;
+
+    @Bean
+    public MultipartConfigElement multipartConfigElement(@Value("${upload.dir}") String uploadDir,
+            @Value("${spring.servlet.multipart.max-file-size:1MB}") DataSize maxFichero,
+            @Value("${spring.servlet.multipart.max-request-size:10MB}") DataSize maxPeticion) {
+        Path temporal = Paths.get(uploadDir).toAbsolutePath().normalize().resolve(DIRECTORIO_TEMPORAL);
+        try {
+            Files.createDirectories(temporal);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudo crear el directorio temporal de subidas.", ex);
+        }
+        return new MultipartConfigElement(temporal.toString(), maxFichero.toBytes(), maxPeticion.toBytes(), 0);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(limiteSubidas).addPathPatterns("/api/mascotas/*/imagen");
+    }
+}
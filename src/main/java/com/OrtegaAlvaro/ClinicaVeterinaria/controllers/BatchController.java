@@ -0,0 +1,59 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.BatchPeticionDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.BatchResultadoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.BatchService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controlador REST que agrupa varias llamadas a la API en una sola petición
+ * HTTP (p. ej. abrir la ficha de un paciente: cliente, mascotas, citas y
+ * tratamientos).
+ */
+@RestController
+@RequestMapping("/api/batch")
+public class BatchController {
+
+    @Autowired
+    private BatchService batchService;
+
+    /**
+     * Ejecuta una lista de operaciones y devuelve sus respuestas en el mismo
+     * orden.
+     * La autorización se comprueba una vez para todo el batch: si alguna
+     * operación no está permitida para el usuario, no se ejecuta ninguna (403).
+     * POST /api/batch
+     * Body: {"transaccional": false, "operaciones": [{"id": "cliente", "metodo": "GET", "ruta": "/api/clientes/1"}]}
+     */
+    @PostMapping
+    public ResponseEntity<?> ejecutar(@Valid @RequestBody BatchPeticionDTO peticion,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Authentication authentication) {
+
+        String error = batchService.validar(peticion);
+        if (error != null) {
+            return ResponseEntity.badRequest().body(Map.of("error", error));
+        }
+
+        List<String> denegadas = batchService.operacionesDenegadas(peticion, request, authentication);
+        if (!denegadas.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Operaciones no permitidas para este usuario",
+                            "operaciones", denegadas));
+        }
+
+        List<BatchResultadoDTO> resultados = batchService.ejecutar(peticion, request, response);
+        return ResponseEntity.ok(resultados);
+    }
+}
@@ -0,0 +1,64 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CacheDatosDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CacheHibernateDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CambiosCacheDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.CacheDatosService;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.CacheHibernateService;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.CambioCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Controlador REST con el estado de las cachés de la aplicación.
+ * Solo accesible para VETERINARIO (ver SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    @Autowired
+    private CacheHibernateService cacheHibernateService;
+
+    @Autowired
+    private CacheDatosService cacheDatosService;
+
+    @Autowired
+    private CambioCacheService cambioCacheService;
+
+    /**
+     * Aciertos, fallos y elementos de la caché de segundo nivel de Hibernate,
+     * en total y por región.
+     * GET /api/cache/hibernate
+     */
+    @GetMapping("/hibernate")
+    public ResponseEntity<CacheHibernateDTO> hibernate() {
+        return ResponseEntity.ok(cacheHibernateService.estadisticas());
+    }
+
+    /**
+     * Aciertos, fallos, expulsiones y elementos de cada caché de servicio
+     * (resúmenes y detalle por ID de clientes, mascotas, veterinarios, citas y
+     * tratamientos).
+     * GET /api/cache/datos
+     */
+    @GetMapping("/datos")
+    public ResponseEntity<List<CacheDatosDTO>> datos() {
+        return ResponseEntity.ok(cacheDatosService.estadisticas());
+    }
+
+    /**
+     * Estado de la sincronización con los demás nodos: cursor en
+     * cambio_cache, huecos pendientes y cambios aplicados.
+     * GET /api/cache/cambios
+     */
+    @GetMapping("/cambios")
+    public ResponseEntity<CambiosCacheDTO> cambios() {
+        return ResponseEntity.ok(cambioCacheService.estado());
+    }
+}
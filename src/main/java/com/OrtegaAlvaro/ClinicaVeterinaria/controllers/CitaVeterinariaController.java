@@ -1,21 +1,24 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaCalendarioDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaVeterinariaDTO;
-import com.OrtegaAlvaro.ClinicaVeterinaria.dto.TratamientoDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CitaVeterinaria;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Rol;
-import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Tratamiento;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Usuario;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Veterinario;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CitaVeterinariaRepository;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.UsuarioRepository;
 import com.OrtegaAlvaro.ClinicaVeterinaria.services.CitaVeterinariaService;
 import com.OrtegaAlvaro.ClinicaVeterinaria.services.MascotaService;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ResumenClienteService;
 import com.OrtegaAlvaro.ClinicaVeterinaria.services.VeterinarioService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -27,9 +30,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador REST para la gestión de Citas Veterinarias.
@@ -55,9 +60,24 @@ public class CitaVeterinariaController {
     @Autowired
     private CitaVeterinariaRepository citaRepository;
 
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    /**
+     * Anchura máxima (en días) que se permite pedir al calendario.
+     */
+    @Value("${citas.calendario.max-dias:62}")
+    private long maxDiasCalendario;
+
+    @Autowired
+    private LimiteIds limiteIds;
+
     /**
      * Lista todas las citas registradas en el sistema.
+     * Admite filtrar por estado (Pendiente, Realizada, Cancelada).
      * GET /api/citas
+     * GET /api/citas?estado=Pendiente
+     * GET /api/citas?ids=1,2,3 (lista sin paginar, en el orden pedido)
      */
     @GetMapping
     public ResponseEntity<?> listarCitas(
@@ -65,21 +85,77 @@ public class CitaVeterinariaController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sort,
             @RequestParam(required = false) String search,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) List<Long> ids,
             Authentication authentication) {
 
+        if (ids != null && !ids.isEmpty()) {
+            Usuario usuario = usuarioRepository.findByEmail(authentication.getName()).orElseThrow();
+            return obtenerVarias(ids, usuario);
+        }
+
+        EstadoCita filtroEstado = null;
+        if (estado != null && !estado.isBlank()) {
+            try {
+                filtroEstado = EstadoCita.desde(estado);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+            }
+        }
+
         Usuario usuario = usuarioRepository.findByEmail(authentication.getName()).orElseThrow();
 
         // CLIENTE solo ve citas de sus mascotas
         if (usuario.getRol() == Rol.CLIENTE && usuario.getCliente() != null) {
-            List<CitaVeterinaria> misCitas = citaRepository.findByMascotaClienteId(usuario.getCliente().getId());
-            List<CitaVeterinariaDTO> dtos = misCitas.stream().map(this::toDTO).toList();
+            Long clienteId = usuario.getCliente().getId();
+            List<CitaVeterinaria> misCitas = filtroEstado != null
+                    ? citaRepository.findByMascotaClienteIdAndEstado(clienteId, filtroEstado)
+                    : citaRepository.findByMascotaClienteId(clienteId);
+            List<CitaVeterinariaDTO> dtos = misCitas.stream().map(CitaVeterinariaService::toDTO).toList();
             return ResponseEntity.ok(new PageImpl<>(dtos));
         }
 
         // VETERINARIO ve todas
         Pageable pageable = PageRequest.of(page, size, Sort.by(sort));
-        Page<CitaVeterinaria> citas = citaService.findAll(pageable, search);
-        return ResponseEntity.ok(citas.map(this::toDTO));
+        Page<CitaVeterinaria> citas = citaService.findAll(pageable, search, filtroEstado);
+        return ResponseEntity.ok(citas.map(CitaVeterinariaService::toDTO));
+    }
+
+    /**
+     * Vista de calendario: citas entre dos días (ambos incluidos) agrupadas por
+     * día, sin tratamientos.
+     * El rango está limitado a citas.calendario.max-dias para no cargar meses
+     * de agenda en memoria. El CLIENTE solo ve las citas de sus mascotas.
+     * GET /api/citas/calendario?desde=2025-01-01&hasta=2025-01-31&veterinarioId=2
+     */
+    @GetMapping("/calendario")
+    public ResponseEntity<?> calendario(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Long veterinarioId,
+            Authentication authentication) {
+
+        if (hasta.isBefore(desde)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "La fecha 'hasta' no puede ser anterior a 'desde'"));
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) + 1 > maxDiasCalendario) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "El rango máximo del calendario es de " + maxDiasCalendario + " días"));
+        }
+
+        Usuario usuario = usuarioRepository.findByEmail(authentication.getName()).orElseThrow();
+
+        Long clienteId = null;
+        if (usuario.getRol() == Rol.CLIENTE) {
+            if (usuario.getCliente() == null) {
+                return ResponseEntity.ok(Map.of());
+            }
+            clienteId = usuario.getCliente().getId();
+        }
+
+        Map<LocalDate, List<CitaCalendarioDTO>> dias = citaService.calendario(desde, hasta, veterinarioId, clienteId);
+        return ResponseEntity.ok(dias);
     }
 
     /**
@@ -89,24 +165,54 @@ public class CitaVeterinariaController {
     @GetMapping("/{id}")
     public ResponseEntity<?> obtenerCita(@PathVariable Long id, Authentication authentication) {
         Usuario usuario = usuarioRepository.findByEmail(authentication.getName()).orElseThrow();
-        CitaVeterinaria cita = citaService.findById(id)
+        CitaVeterinariaDTO cita = citaService.findDTOById(id)
                 .orElseThrow(() -> new EntityNotFoundException("La cita con ID " + id + " no existe."));
 
         // CLIENTE solo puede ver citas de sus mascotas
         if (usuario.getRol() == Rol.CLIENTE) {
-            if (usuario.getCliente() == null
-                    || !cita.getMascota().getCliente().getId().equals(usuario.getCliente().getId())) {
+            if (usuario.getCliente() == null || !usuario.getCliente().getId().equals(cita.getClienteId())) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body(java.util.Map.of("error", "No tienes permiso para ver esta cita"));
             }
         }
 
-        return ResponseEntity.ok(toDTO(cita));
+        return ResponseEntity.ok(cita);
+    }
+
+    /**
+     * Devuelve varias citas (con mascota, veterinario y tratamientos) sin una
+     * consulta por cita: mascota y veterinario llegan en la misma consulta IN y
+     * los tratamientos se cargan por lotes.
+     * El permiso del CLIENTE se comprueba sobre todas las citas a la vez.
+     */
+    private ResponseEntity<?> obtenerVarias(List<Long> ids, Usuario usuario) {
+        ResponseEntity<?> exceso = limiteIds.comprobar(ids, "citas");
+        if (exceso != null) {
+            return exceso;
+        }
+
+        List<CitaVeterinaria> citas = citaService.findAllByIds(ids);
+
+        // CLIENTE solo puede ver citas de sus mascotas
+        if (usuario.getRol() == Rol.CLIENTE) {
+            Long propio = usuario.getCliente() != null ? usuario.getCliente().getId() : null;
+            List<Long> ajenas = citas.stream()
+                    .filter(c -> !c.getMascota().getCliente().getId().equals(propio))
+                    .map(CitaVeterinaria::getId)
+                    .toList();
+            if (!ajenas.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "No tienes permiso para ver estas citas", "ids", ajenas));
+            }
+        }
+
+        return ResponseEntity.ok(citas.stream().map(CitaVeterinariaService::toDTO).toList());
     }
 
     /**
      * Crea una nueva cita veterinaria. Solo VETERINARIO.
      * El body JSON debe incluir mascotaId y veterinarioId.
+     * Devuelve 409 si el veterinario ya tiene una cita solapada.
      * POST /api/citas
      */
     @PostMapping
@@ -117,13 +223,15 @@ public class CitaVeterinariaController {
         cita.setId(null);
         cita.setTratamientos(new ArrayList<>());
 
-        CitaVeterinaria guardada = citaService.save(cita);
-        return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(guardada));
+        CitaVeterinaria guardada = citaService.reservar(cita);
+        return ResponseEntity.status(HttpStatus.CREATED).body(CitaVeterinariaService.toDTO(guardada));
     }
 
     /**
      * Actualiza una cita existente.
      * Preserva los tratamientos existentes (no se modifican desde este endpoint).
+     * Devuelve 409 si el nuevo horario o veterinario se solapa con otra cita;
+     * si no cambian (o la cita se cancela) no se comprueba la agenda.
      * PUT /api/citas/{id}
      */
     @PutMapping("/{id}")
@@ -134,6 +242,7 @@ public class CitaVeterinariaController {
         CitaVeterinaria citaDb = citaService.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(
                         "La cita con ID " + id + " no existe."));
+        CitaVeterinariaService.Hueco anterior = CitaVeterinariaService.Hueco.de(citaDb);
 
         if (citaDTO.getFechaHora() != null)
             citaDb.setFechaHora(citaDTO.getFechaHora());
@@ -142,11 +251,13 @@ public class CitaVeterinariaController {
         if (citaDTO.getDiagnostico() != null)
             citaDb.setDiagnostico(citaDTO.getDiagnostico());
         if (citaDTO.getEstado() != null)
-            citaDb.setEstado(citaDTO.getEstado());
+            citaDb.cambiarEstado(citaDTO.getEstado());
         if (citaDTO.getMascotaId() != null) {
             Mascota mascota = mascotaService.findById(citaDTO.getMascotaId())
                     .orElseThrow(() -> new EntityNotFoundException(
                             "La mascota con ID " + citaDTO.getMascotaId() + " no existe."));
+            // La cita desaparece del resumen del propietario anterior
+            resumenService.invalidar(citaDb.getMascota().getCliente().getId());
             citaDb.setMascota(mascota);
         }
         if (citaDTO.getVeterinarioId() != null) {
@@ -156,8 +267,8 @@ public class CitaVeterinariaController {
             citaDb.setVeterinario(vet);
         }
 
-        CitaVeterinaria guardada = citaService.save(citaDb);
-        return ResponseEntity.ok(toDTO(guardada));
+        CitaVeterinaria guardada = citaService.reservar(citaDb, anterior);
+        return ResponseEntity.ok(CitaVeterinariaService.toDTO(guardada));
     }
 
     /**
@@ -174,54 +285,16 @@ public class CitaVeterinariaController {
         return ResponseEntity.noContent().build();
     }
 
-    // --- Conversiones Entity ↔ DTO ---
-
-    private CitaVeterinariaDTO toDTO(CitaVeterinaria c) {
-        CitaVeterinariaDTO dto = new CitaVeterinariaDTO();
-        dto.setId(c.getId());
-        dto.setFechaHora(c.getFechaHora());
-        dto.setMotivo(c.getMotivo());
-        dto.setDiagnostico(c.getDiagnostico());
-        dto.setEstado(c.getEstado());
-        dto.setCosteTotal(c.getCosteTotal());
-
-        if (c.getMascota() != null) {
-            dto.setMascotaId(c.getMascota().getId());
-            dto.setMascotaNombre(c.getNombreMascotaStr());
-        }
-        if (c.getVeterinario() != null) {
-            dto.setVeterinarioId(c.getVeterinario().getId());
-            dto.setVeterinarioNombre(c.getNombreVeterinarioStr());
-        }
-
-        if (c.getTratamientos() != null) {
-            dto.setTratamientos(c.getTratamientos().stream()
-                    .map(this::tratamientoToDTO)
-                    .toList());
-        } else {
-            dto.setTratamientos(Collections.emptyList());
-        }
-
-        return dto;
-    }
-
-    private TratamientoDTO tratamientoToDTO(Tratamiento t) {
-        TratamientoDTO dto = new TratamientoDTO();
-        dto.setId(t.getId());
-        dto.setDescripcion(t.getDescripcion());
-        dto.setMedicamento(t.getMedicamento());
-        dto.setPrecio(t.getPrecio());
-        dto.setObservaciones(t.getObservaciones());
-        dto.setCitaId(t.getCita() != null ? t.getCita().getId() : null);
-        return dto;
-    }
+    // --- Conversiones DTO → Entity ---
 
     private CitaVeterinaria toEntity(CitaVeterinariaDTO dto) {
         CitaVeterinaria cita = new CitaVeterinaria();
         cita.setFechaHora(dto.getFechaHora());
         cita.setMotivo(dto.getMotivo());
         cita.setDiagnostico(dto.getDiagnostico());
-        cita.setEstado(dto.getEstado());
+        if (dto.getEstado() != null) {
+            cita.cambiarEstado(dto.getEstado());
+        }
 
         if (dto.getMascotaId() != null) {
             Mascota mascota = mascotaService.findById(dto.getMascotaId())
@@ -21,6 +21,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador REST para la gestión de Clientes (Propietarios).
@@ -36,11 +37,15 @@ public class ClienteController {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private LimiteIds limiteIds;
+
     /**
      * Lista todos los clientes o filtra por apellidos si se proporciona el
      * parámetro de búsqueda.
      * GET /api/clientes
      * GET /api/clientes?busqueda=García
+     * GET /api/clientes?ids=1,2,3 (lista sin paginar, en el orden pedido)
      */
     @GetMapping
     public ResponseEntity<?> listarClientes(
@@ -48,22 +53,27 @@ public class ClienteController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sort,
             @RequestParam(required = false) String search,
+            @RequestParam(required = false) List<Long> ids,
             Authentication authentication) {
 
         Usuario usuario = usuarioRepository.findByEmail(authentication.getName()).orElseThrow();
 
+        if (ids != null && !ids.isEmpty()) {
+            return obtenerVarios(ids, usuario);
+        }
+
         // CLIENTE solo ve su propio perfil
         if (usuario.getRol() == Rol.CLIENTE) {
             Cliente cliente = usuario.getCliente();
             if (cliente == null)
                 return ResponseEntity.ok(Page.empty());
-            return ResponseEntity.ok(new PageImpl<>(List.of(toDTO(cliente))));
+            return ResponseEntity.ok(new PageImpl<>(List.of(ClienteService.toDTO(cliente))));
         }
 
         // VETERINARIO ve todos
         Pageable pageable = PageRequest.of(page, size, Sort.by(sort));
         Page<Cliente> clientes = clienteService.findAll(pageable, search);
-        return ResponseEntity.ok(clientes.map(this::toDTO));
+        return ResponseEntity.ok(clientes.map(ClienteService::toDTO));
     }
 
     /**
@@ -82,9 +92,33 @@ public class ClienteController {
             }
         }
 
-        Cliente cliente = clienteService.findById(id)
+        ClienteDTO cliente = clienteService.findDTOById(id)
                 .orElseThrow(() -> new EntityNotFoundException("El cliente con ID " + id + " no existe."));
-        return ResponseEntity.ok(toDTO(cliente));
+        return ResponseEntity.ok(cliente);
+    }
+
+    /**
+     * Devuelve varios clientes con una sola consulta IN.
+     * El permiso del CLIENTE (solo su propio perfil) se comprueba para todos los
+     * IDs a la vez, antes de consultar.
+     */
+    private ResponseEntity<?> obtenerVarios(List<Long> ids, Usuario usuario) {
+        ResponseEntity<?> exceso = limiteIds.comprobar(ids, "clientes");
+        if (exceso != null) {
+            return exceso;
+        }
+
+        // CLIENTE solo puede ver su propio perfil
+        if (usuario.getRol() == Rol.CLIENTE) {
+            Long propio = usuario.getCliente() != null ? usuario.getCliente().getId() : null;
+            if (ids.stream().anyMatch(id -> !id.equals(propio))) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "No tienes permiso para ver este perfil"));
+            }
+        }
+
+        List<ClienteDTO> dtos = clienteService.findAllByIds(ids).stream().map(ClienteService::toDTO).toList();
+        return ResponseEntity.ok(dtos);
     }
 
     /**
@@ -96,7 +130,7 @@ public class ClienteController {
         Cliente cliente = toEntity(clienteDTO);
         cliente.setId(null); // Asegurar creación, no actualización
         Cliente guardado = clienteService.save(cliente);
-        return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(guardado));
+        return ResponseEntity.status(HttpStatus.CREATED).body(ClienteService.toDTO(guardado));
     }
 
     /**
@@ -126,7 +160,7 @@ public class ClienteController {
             clienteDb.setEmail(clienteDTO.getEmail());
 
         Cliente guardado = clienteService.save(clienteDb);
-        return ResponseEntity.ok(toDTO(guardado));
+        return ResponseEntity.ok(ClienteService.toDTO(guardado));
     }
 
     /**
@@ -142,20 +176,7 @@ public class ClienteController {
         return ResponseEntity.noContent().build();
     }
 
-    // --- Conversiones Entity ↔ DTO ---
-
-    private ClienteDTO toDTO(Cliente c) {
-        ClienteDTO dto = new ClienteDTO();
-        dto.setId(c.getId());
-        dto.setNombre(c.getNombre());
-        dto.setApellidos(c.getApellidos());
-        dto.setDni(c.getDni());
-        dto.setTelefono(c.getTelefono());
-        dto.setTelefonoFormateado(c.getTelefonoFormateado());
-        dto.setDireccion(c.getDireccion());
-        dto.setEmail(c.getEmail());
-        return dto;
-    }
+    // --- Conversiones DTO → Entity ---
 
     private Cliente toEntity(ClienteDTO dto) {
         Cliente cliente = new Cliente();
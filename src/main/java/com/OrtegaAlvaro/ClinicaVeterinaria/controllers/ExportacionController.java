@@ -0,0 +1,61 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ExportacionService;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ExportacionService.Formato;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Controlador REST para las exportaciones completas (contabilidad).
+ * Las filas se envían a medida que se leen de la base de datos, sin paginar
+ * ni contar, por lo que el consumo de memoria no depende del volumen.
+ * Solo accesible para el rol VETERINARIO (ver SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/export")
+public class ExportacionController {
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    /**
+     * Exporta todas las filas de una entidad.
+     * GET /api/export/{entidad}?formato=csv|ndjson&gzip=true
+     * Entidades: citas, tratamientos, clientes.
+     */
+    @GetMapping("/{entidad}")
+    public ResponseEntity<?> exportar(
+            @PathVariable String entidad,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        if (!exportacionService.soporta(entidad)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Exportación desconocida: " + entidad));
+        }
+
+        Formato tipo;
+        try {
+            tipo = Formato.valueOf(formato.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Formato no soportado: " + formato + " (csv o ndjson)"));
+        }
+
+        String nombre = entidad + "-" + LocalDate.now() + "." + tipo.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody cuerpo = out -> exportacionService.exportar(entidad, tipo, gzip, out);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + nombre + "\"")
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : tipo.getContentType()))
+                .body(cuerpo);
+    }
+}
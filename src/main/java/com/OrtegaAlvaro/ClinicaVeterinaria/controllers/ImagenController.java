@@ -0,0 +1,95 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CacheImagenEstadisticasDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ImagenEstadisticasDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.LimpiezaImagenesDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.MigracionAlmacenDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.CacheImagenService;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ImagenService;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.LimpiezaImagenesService;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.MigracionAlmacenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controlador REST con información del almacén de imágenes.
+ * Las imágenes en sí se suben y descargan desde /api/mascotas.
+ */
+@RestController
+@RequestMapping("/api/imagenes")
+public class ImagenController {
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private CacheImagenService cacheImagenes;
+
+    @Autowired
+    private MigracionAlmacenService migracionService;
+
+    @Autowired
+    private LimpiezaImagenesService limpiezaService;
+
+    /**
+     * Estadísticas de deduplicación (subidas repetidas y espacio ahorrado).
+     * GET /api/imagenes/estadisticas
+     */
+    @GetMapping("/estadisticas")
+    public ResponseEntity<ImagenEstadisticasDTO> estadisticas() {
+        return ResponseEntity.ok(imagenService.estadisticas());
+    }
+
+    /**
+     * Estadísticas de la caché en memoria de imágenes (tasa de aciertos y
+     * bytes ocupados).
+     * GET /api/imagenes/cache
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<CacheImagenEstadisticasDTO> cache() {
+        return ResponseEntity.ok(cacheImagenes.estadisticas());
+    }
+
+    /**
+     * Lanza en segundo plano la migración de las imágenes de la estructura
+     * plana de upload.dir al almacén configurado. 409 si ya hay una en curso.
+     * POST /api/imagenes/migracion
+     */
+    @PostMapping("/migracion")
+    public ResponseEntity<MigracionAlmacenDTO> iniciarMigracion() {
+        return ResponseEntity.accepted().body(migracionService.iniciar());
+    }
+
+    /**
+     * Progreso de la última migración lanzada.
+     * GET /api/imagenes/migracion
+     */
+    @GetMapping("/migracion")
+    public ResponseEntity<MigracionAlmacenDTO> estadoMigracion() {
+        return ResponseEntity.ok(migracionService.estado());
+    }
+
+    /**
+     * Lanza ahora una pasada de limpieza de imágenes huérfanas (además de la
+     * programada). 409 si ya hay una en curso.
+     * POST /api/imagenes/limpieza
+     */
+    @PostMapping("/limpieza")
+    public ResponseEntity<LimpiezaImagenesDTO> iniciarLimpieza() {
+        return ResponseEntity.accepted().body(limpiezaService.iniciar());
+    }
+
+    /**
+     * Resultado de la última limpieza y ficheros/bytes liberados desde el
+     * arranque.
+     * GET /api/imagenes/limpieza
+     */
+    @GetMapping("/limpieza")
+    public ResponseEntity<LimpiezaImagenesDTO> estadoLimpieza() {
+        return ResponseEntity.ok(limpiezaService.estado());
+    }
+}
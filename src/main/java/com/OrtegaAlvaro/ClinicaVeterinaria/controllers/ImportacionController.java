@@ -0,0 +1,51 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ImportacionResultadoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ImportacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Controlador REST para la importación masiva desde CSV (migración de
+ * clínicas).
+ * El fichero se envía como cuerpo de la petición (Content-Type: text/csv), no
+ * como multipart, de modo que no le afecta el límite de subida de ficheros y
+ * se procesa en streaming sin guardarse en memoria ni en disco.
+ */
+@RestController
+@RequestMapping("/api/import")
+public class ImportacionController {
+
+    @Autowired
+    private ImportacionService importacionService;
+
+    /**
+     * Importa clientes o mascotas.
+     * POST /api/import/clientes (cabecera: nombre,apellidos,dni,telefono[,direccion][,email])
+     * POST /api/import/mascotas (cabecera: nombre,especie,dniCliente[,raza][,fechaNacimiento][,peso])
+     * Devuelve los contadores y los errores por línea.
+     */
+    @PostMapping(value = "/{tipo}", consumes = { "text/csv", "text/plain" })
+    public ResponseEntity<?> importar(@PathVariable String tipo, InputStream cuerpo) throws IOException {
+        try {
+            ImportacionResultadoDTO resultado = switch (tipo) {
+                case "clientes" -> importacionService.importarClientes(cuerpo);
+                case "mascotas" -> importacionService.importarMascotas(cuerpo);
+                default -> null;
+            };
+            if (resultado == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Importación desconocida: " + tipo + " (clientes o mascotas)"));
+            }
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Límite común de las consultas por lista de IDs (?ids=1,2,3) de todos los
+ * controladores.
+ */
+@Component
+public class LimiteIds {
+
+    /**
+     * Número máximo de IDs aceptados en ?ids= por petición.
+     */
+    @Value("${api.ids.max:100}")
+    private int maxIds;
+
+    /**
+     * Comprueba que no se piden demasiados IDs a la vez.
+     *
+     * @param recurso Nombre en plural para el mensaje ("citas", "clientes"...).
+     * @return Respuesta 400 si se supera el límite; null si no.
+     */
+    public ResponseEntity<Map<String, String>> comprobar(List<Long> ids, String recurso) {
+        if (ids.size() > maxIds) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "No se pueden pedir más de " + maxIds + " " + recurso + " a la vez"));
+        }
+        return null;
+    }
+}
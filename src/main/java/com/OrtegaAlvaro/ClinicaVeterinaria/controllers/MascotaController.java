@@ -2,26 +2,31 @@ package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
 
 import com.OrtegaAlvaro.ClinicaVeterinaria.dto.MascotaDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Cliente;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Rol;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Usuario;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.MascotaRepository;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.UsuarioRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.CitaVeterinariaService;
 import com.OrtegaAlvaro.ClinicaVeterinaria.services.ClienteService;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.EntregaImagenService;
 import com.OrtegaAlvaro.ClinicaVeterinaria.services.MascotaService;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.MiniaturaService.Variante;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ResumenClienteService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import com.OrtegaAlvaro.ClinicaVeterinaria.services.ImagenService;
 import org.springframework.data.domain.Page;
@@ -30,7 +35,10 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador REST para la gestión de Mascotas (Pacientes).
@@ -46,18 +54,37 @@ public class MascotaController {
     @Autowired
     private ClienteService clienteService;
 
+    @Autowired
+    private CitaVeterinariaService citaService;
+
     @Autowired
     private ImagenService imagenService;
 
+    @Autowired
+    private EntregaImagenService entregaImagenes;
+
     @Autowired
     private UsuarioRepository usuarioRepository;
 
     @Autowired
     private MascotaRepository mascotaRepository;
 
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    @Autowired
+    private LimiteIds limiteIds;
+
+    /**
+     * Número máximo de citas por página del historial.
+     */
+    @Value("${historial.tamano-pagina-max:100}")
+    private int maxTamanoHistorial;
+
     /**
      * Lista todas las mascotas registradas.
      * GET /api/mascotas
+     * GET /api/mascotas?ids=1,2,3 (lista sin paginar, en el orden pedido)
      */
     @GetMapping
     public ResponseEntity<?> listarMascotas(
@@ -65,21 +92,26 @@ public class MascotaController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sort,
             @RequestParam(required = false) String search,
+            @RequestParam(required = false) List<Long> ids,
             Authentication authentication) {
 
         Usuario usuario = usuarioRepository.findByEmail(authentication.getName()).orElseThrow();
 
+        if (ids != null && !ids.isEmpty()) {
+            return obtenerVarias(ids, usuario);
+        }
+
         // CLIENTE solo ve sus propias mascotas
         if (usuario.getRol() == Rol.CLIENTE && usuario.getCliente() != null) {
             List<Mascota> misMascotas = mascotaRepository.findByClienteId(usuario.getCliente().getId());
-            List<MascotaDTO> dtos = misMascotas.stream().map(this::toDTO).toList();
+            List<MascotaDTO> dtos = misMascotas.stream().map(MascotaService::toDTO).toList();
             return ResponseEntity.ok(new PageImpl<>(dtos));
         }
 
         // VETERINARIO ve todas
         Pageable pageable = PageRequest.of(page, size, Sort.by(sort));
         Page<Mascota> mascotas = mascotaService.findAll(pageable, search);
-        return ResponseEntity.ok(mascotas.map(this::toDTO));
+        return ResponseEntity.ok(mascotas.map(MascotaService::toDTO));
     }
 
     /**
@@ -89,18 +121,97 @@ public class MascotaController {
     @GetMapping("/{id}")
     public ResponseEntity<?> obtenerMascota(@PathVariable Long id, Authentication authentication) {
         Usuario usuario = usuarioRepository.findByEmail(authentication.getName()).orElseThrow();
-        Mascota mascota = mascotaService.findById(id)
+        MascotaDTO mascota = mascotaService.findDTOById(id)
                 .orElseThrow(() -> new EntityNotFoundException("La mascota con ID " + id + " no existe."));
 
         // CLIENTE solo puede ver sus propias mascotas
         if (usuario.getRol() == Rol.CLIENTE) {
-            if (usuario.getCliente() == null || !mascota.getCliente().getId().equals(usuario.getCliente().getId())) {
+            if (usuario.getCliente() == null || !usuario.getCliente().getId().equals(mascota.getClienteId())) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body(java.util.Map.of("error", "No tienes permiso para ver esta mascota"));
             }
         }
 
-        return ResponseEntity.ok(toDTO(mascota));
+        return ResponseEntity.ok(mascota);
+    }
+
+    /**
+     * Historial clínico de una mascota paginado por cursor, de la cita más
+     * reciente a la más antigua y con los tratamientos de cada cita.
+     * GET /api/mascotas/{id}/historial?size=20
+     * GET /api/mascotas/{id}/historial?cursor=...&desde=2024-01-01&hasta=2024-12-31&estado=Realizada
+     */
+    @GetMapping("/{id}/historial")
+    public ResponseEntity<?> historial(@PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String estado,
+            Authentication authentication) {
+
+        if (size < 1 || size > maxTamanoHistorial) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "El tamaño de página debe estar entre 1 y " + maxTamanoHistorial));
+        }
+        if (desde != null && hasta != null && hasta.isBefore(desde)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "La fecha 'hasta' es anterior a 'desde'"));
+        }
+        EstadoCita filtroEstado = null;
+        if (estado != null && !estado.isBlank()) {
+            try {
+                filtroEstado = EstadoCita.desde(estado);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+            }
+        }
+
+        Usuario usuario = usuarioRepository.findByEmail(authentication.getName()).orElseThrow();
+        Mascota mascota = mascotaService.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("La mascota con ID " + id + " no existe."));
+
+        // CLIENTE solo puede ver el historial de sus propias mascotas
+        if (usuario.getRol() == Rol.CLIENTE) {
+            if (usuario.getCliente() == null || !mascota.getCliente().getId().equals(usuario.getCliente().getId())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "No tienes permiso para ver esta mascota"));
+            }
+        }
+
+        try {
+            return ResponseEntity.ok(citaService.historial(id, cursor, size, desde, hasta, filtroEstado));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * Devuelve varias mascotas (con su propietario) en una sola consulta IN.
+     * El permiso del CLIENTE se comprueba sobre todas las mascotas a la vez: si
+     * alguna no es suya, no se devuelve ninguna.
+     */
+    private ResponseEntity<?> obtenerVarias(List<Long> ids, Usuario usuario) {
+        ResponseEntity<?> exceso = limiteIds.comprobar(ids, "mascotas");
+        if (exceso != null) {
+            return exceso;
+        }
+
+        List<Mascota> mascotas = mascotaService.findAllByIds(ids);
+
+        // CLIENTE solo puede ver sus propias mascotas
+        if (usuario.getRol() == Rol.CLIENTE) {
+            Long propio = usuario.getCliente() != null ? usuario.getCliente().getId() : null;
+            List<Long> ajenas = mascotas.stream()
+                    .filter(m -> !m.getCliente().getId().equals(propio))
+                    .map(Mascota::getId)
+                    .toList();
+            if (!ajenas.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "No tienes permiso para ver estas mascotas", "ids", ajenas));
+            }
+        }
+
+        return ResponseEntity.ok(mascotas.stream().map(MascotaService::toDTO).toList());
     }
 
     /**
@@ -114,7 +225,7 @@ public class MascotaController {
         Mascota mascota = toEntity(mascotaDTO);
         mascota.setId(null);
         Mascota guardada = mascotaService.save(mascota);
-        return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(guardada));
+        return ResponseEntity.status(HttpStatus.CREATED).body(MascotaService.toDTO(guardada));
     }
 
     /**
@@ -143,11 +254,13 @@ public class MascotaController {
             Cliente cliente = clienteService.findById(mascotaDTO.getClienteId())
                     .orElseThrow(() -> new EntityNotFoundException(
                             "El cliente con ID " + mascotaDTO.getClienteId() + " no existe."));
+            // El propietario anterior deja de tener esta mascota en su resumen
+            resumenService.invalidar(mascotaDb.getCliente().getId());
             mascotaDb.setCliente(cliente);
         }
 
         Mascota guardada = mascotaService.save(mascotaDb);
-        return ResponseEntity.ok(toDTO(guardada));
+        return ResponseEntity.ok(MascotaService.toDTO(guardada));
     }
 
     /**
@@ -159,86 +272,80 @@ public class MascotaController {
         Mascota mascota = mascotaService.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("La mascota con ID " + id + " no existe."));
 
+        mascotaService.deleteById(id);
+
+        // La imagen se borra en segundo plano, una vez eliminada la mascota
         if (mascota.getImagenUrl() != null && !mascota.getImagenUrl().isEmpty()) {
             String oldFileName = mascota.getImagenUrl().substring(mascota.getImagenUrl().lastIndexOf("/") + 1);
-            imagenService.borrarImagen(oldFileName);
+            imagenService.descartarImagen(oldFileName);
         }
-
-        mascotaService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
 
     /**
-     * Sube una imagen para la mascota.
+     * Sube una imagen para la mascota (JPEG, PNG, GIF o WEBP, según su
+     * contenido).
+     * El número de subidas simultáneas está limitado: si se supera, se responde
+     * 503 con Retry-After (ver LimiteSubidasInterceptor).
      * POST /api/mascotas/{id}/imagen
      */
     @PostMapping("/{id}/imagen")
-    public ResponseEntity<MascotaDTO> subirImagenMascota(@PathVariable Long id,
+    public ResponseEntity<?> subirImagenMascota(@PathVariable Long id,
             @RequestParam("file") MultipartFile file) {
         Mascota mascota = mascotaService.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("La mascota con ID " + id + " no existe."));
 
-        String fileName = imagenService.guardarImagen(file);
+        String oldImagenUrl = mascota.getImagenUrl();
 
-        // Borrar la imagen anterior si existía
-        if (mascota.getImagenUrl() != null && !mascota.getImagenUrl().isEmpty()) {
-            String oldFileName = mascota.getImagenUrl().substring(mascota.getImagenUrl().lastIndexOf("/") + 1);
-            imagenService.borrarImagen(oldFileName);
+        // La referencia a la imagen y el nuevo imagen_url se guardan en la
+        // misma transacción
+        Mascota guardada;
+        try {
+            guardada = imagenService.guardarImagen(file, fileName -> {
+                mascota.setImagenUrl(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/mascotas/imagen/")
+                        .path(fileName)
+                        .toUriString());
+                return mascotaService.save(mascota);
+            });
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(Map.of("error", ex.getMessage()));
         }
 
-        String fileDownloadUri = ServletUriComponentsBuilder.fromCurrentContextPath()
-                .path("/api/mascotas/imagen/")
-                .path(fileName)
-                .toUriString();
-
-        mascota.setImagenUrl(fileDownloadUri);
-        Mascota guardada = mascotaService.save(mascota);
+        // Borrar la imagen anterior (y sus variantes) en segundo plano, una vez
+        // que la mascota ya apunta a la nueva
+        if (oldImagenUrl != null && !oldImagenUrl.isEmpty()) {
+            imagenService.descartarImagen(oldImagenUrl.substring(oldImagenUrl.lastIndexOf("/") + 1));
+        }
 
-        return ResponseEntity.ok(toDTO(guardada));
+        return ResponseEntity.ok(MascotaService.toDTO(guardada));
     }
 
     /**
-     * Descarga la imagen de una mascota.
+     * Descarga la imagen de una mascota en el tamaño pedido. Si la variante
+     * reducida aún no está generada se devuelve el original.
+     * Admite peticiones condicionales (ETag / Last-Modified → 304) y de rango
+     * de bytes (Range → 206).
      * GET /api/mascotas/imagen/{fileName:.+}
+     * GET /api/mascotas/imagen/{fileName:.+}?size=thumb|card|full
      */
     @GetMapping("/imagen/{fileName:.+}")
-    public ResponseEntity<Resource> descargarImagenMascota(@PathVariable String fileName, HttpServletRequest request) {
-        Resource resource = imagenService.cargarImagen(fileName);
-
-        String contentType = null;
+    public ResponseEntity<?> descargarImagenMascota(@PathVariable String fileName,
+            @RequestParam(defaultValue = "full") String size, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Variante variante;
         try {
-            contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-        } catch (Exception ex) {
-            // Ignorar
+            variante = Variante.desde(size);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
         }
 
-        if (contentType == null) {
-            contentType = "application/octet-stream";
-        }
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                .body(resource);
+        entregaImagenes.enviar(imagenService.resolverImagen(fileName, variante), request, response);
+        // La respuesta ya está escrita
+        return null;
     }
 
-    // --- Conversiones Entity ↔ DTO ---
-
-    private MascotaDTO toDTO(Mascota m) {
-        MascotaDTO dto = new MascotaDTO();
-        dto.setId(m.getId());
-        dto.setNombre(m.getNombre());
-        dto.setEspecie(m.getEspecie());
-        dto.setRaza(m.getRaza());
-        dto.setFechaNacimiento(m.getFechaNacimiento());
-        dto.setPeso(m.getPeso());
-        dto.setImagenUrl(m.getImagenUrl());
-        if (m.getCliente() != null) {
-            dto.setClienteId(m.getCliente().getId());
-            dto.setClienteNombre(m.getCliente().getNombre() + " " + m.getCliente().getApellidos());
-        }
-        return dto;
-    }
+    // --- Conversiones DTO → Entity ---
 
     private Mascota toEntity(MascotaDTO dto) {
         Mascota mascota = new Mascota();
@@ -247,7 +354,8 @@ public class MascotaController {
         mascota.setRaza(dto.getRaza());
         mascota.setFechaNacimiento(dto.getFechaNacimiento());
         mascota.setPeso(dto.getPeso());
-        mascota.setImagenUrl(dto.getImagenUrl());
+        // imagenUrl no se copia: solo la asigna la subida de imagen, que lleva
+        // la cuenta de referencias del fichero
 
         if (dto.getClienteId() != null) {
             Cliente cliente = clienteService.findById(dto.getClienteId())
@@ -0,0 +1,50 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Rol;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Usuario;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.UsuarioRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ResumenClienteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Controlador REST con los datos propios del usuario autenticado.
+ */
+@RestController
+@RequestMapping("/api/me")
+public class MeController {
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    /**
+     * Resumen completo del cliente autenticado en una sola petición: sus datos,
+     * sus mascotas, las citas de cada mascota y los tratamientos de cada cita.
+     * GET /api/me/overview
+     */
+    @GetMapping("/overview")
+    public ResponseEntity<?> resumen(Authentication authentication) {
+        Usuario usuario = usuarioRepository.findByEmail(authentication.getName()).orElseThrow();
+
+        if (usuario.getRol() != Rol.CLIENTE) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "El resumen solo está disponible para clientes."));
+        }
+        if (usuario.getCliente() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "El usuario no tiene un cliente asociado."));
+        }
+
+        return ResponseEntity.ok(resumenService.obtener(usuario.getCliente()));
+    }
+}
@@ -0,0 +1,79 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.SerieCitaDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.SerieCitaEdicionDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.SerieCitaResultadoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.SerieCitaService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Controlador REST para las series de citas periódicas (pacientes crónicos).
+ * Permite crear todas las citas de una serie en una sola petición y editar o
+ * cancelar sus citas pendientes de forma conjunta.
+ */
+@RestController
+@RequestMapping("/api/citas/series")
+public class SerieCitaController {
+
+    @Autowired
+    private SerieCitaService serieService;
+
+    /**
+     * Crea una serie de citas a partir de una regla de recurrencia.
+     * Devuelve 409 si alguna fecha choca con la agenda del veterinario, salvo
+     * que se indique omitirConflictos = true, y 400 si la regla no genera
+     * ninguna cita (fecha final anterior a la de inicio).
+     * POST /api/citas/series
+     */
+    @PostMapping
+    public ResponseEntity<?> crearSerie(@Valid @RequestBody SerieCitaDTO serieDTO) {
+        if (serieDTO.getOcurrencias() == null && serieDTO.getHasta() == null) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Debe indicar el número de ocurrencias o la fecha final de la serie"));
+        }
+        if (serieDTO.getOcurrencias() != null && serieDTO.getOcurrencias() > serieService.getMaxOcurrencias()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Una serie no puede superar las "
+                            + serieService.getMaxOcurrencias() + " citas"));
+        }
+
+        if (serieDTO.getHasta() != null && serieDTO.getFechaInicio() != null
+                && serieDTO.getHasta().isBefore(serieDTO.getFechaInicio())) {
+            // La serie no tendría ninguna cita
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "La fecha final de la serie no puede ser anterior a la de inicio"));
+        }
+
+        SerieCitaResultadoDTO resultado = serieService.crearSerie(serieDTO);
+        return ResponseEntity.status(HttpStatus.CREATED).body(resultado);
+    }
+
+    /**
+     * Modifica el motivo y/o el veterinario de las citas pendientes de la serie.
+     * PUT /api/citas/series/{id}
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<Map<String, Integer>> editarSerie(
+            @PathVariable Long id,
+            @RequestBody SerieCitaEdicionDTO edicionDTO) {
+
+        int actualizadas = serieService.editarSerie(id, edicionDTO);
+        return ResponseEntity.ok(Map.of("citasActualizadas", actualizadas));
+    }
+
+    /**
+     * Cancela las citas pendientes futuras de la serie.
+     * POST /api/citas/series/{id}/cancelar
+     */
+    @PostMapping("/{id}/cancelar")
+    public ResponseEntity<Map<String, Integer>> cancelarSerie(@PathVariable Long id) {
+        int canceladas = serieService.cancelarSerie(id);
+        return ResponseEntity.ok(Map.of("citasCanceladas", canceladas));
+    }
+}
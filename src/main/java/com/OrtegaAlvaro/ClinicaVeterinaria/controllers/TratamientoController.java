@@ -7,7 +7,9 @@ import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Tratamiento;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Usuario;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.TratamientoRepository;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.UsuarioRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.CacheDatosService;
 import com.OrtegaAlvaro.ClinicaVeterinaria.services.CitaVeterinariaService;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ResumenClienteService;
 import com.OrtegaAlvaro.ClinicaVeterinaria.services.TratamientoService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
@@ -45,6 +47,12 @@ public class TratamientoController {
     @Autowired
     private TratamientoRepository tratamientoRepository;
 
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    @Autowired
+    private CacheDatosService cacheDatos;
+
     /**
      * Lista todos los tratamientos del sistema.
      * GET /api/tratamientos
@@ -63,14 +71,14 @@ public class TratamientoController {
         if (usuario.getRol() == Rol.CLIENTE && usuario.getCliente() != null) {
             List<Tratamiento> misTratamientos = tratamientoRepository
                     .findByCitaMascotaClienteId(usuario.getCliente().getId());
-            List<TratamientoDTO> dtos = misTratamientos.stream().map(this::toDTO).toList();
+            List<TratamientoDTO> dtos = misTratamientos.stream().map(TratamientoService::toDTO).toList();
             return ResponseEntity.ok(new PageImpl<>(dtos));
         }
 
         // VETERINARIO ve todos
         Pageable pageable = PageRequest.of(page, size, Sort.by(sort));
         Page<Tratamiento> tratamientos = tratamientoService.findAll(pageable, search);
-        return ResponseEntity.ok(tratamientos.map(this::toDTO));
+        return ResponseEntity.ok(tratamientos.map(TratamientoService::toDTO));
     }
 
     /**
@@ -84,7 +92,7 @@ public class TratamientoController {
                         "La cita con ID " + citaId + " no existe."));
 
         List<TratamientoDTO> dtos = tratamientoService.findByCitaId(citaId).stream()
-                .map(this::toDTO)
+                .map(TratamientoService::toDTO)
                 .toList();
         return ResponseEntity.ok(dtos);
     }
@@ -95,11 +103,11 @@ public class TratamientoController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<TratamientoDTO> obtenerTratamiento(@PathVariable Long id) {
-        Tratamiento trat = tratamientoService.findById(id)
+        TratamientoDTO trat = tratamientoService.findDTOById(id)
                 .orElseThrow(() -> new EntityNotFoundException(
                         "El tratamiento con ID " + id + " no existe."));
 
-        return ResponseEntity.ok(toDTO(trat));
+        return ResponseEntity.ok(trat);
     }
 
     /**
@@ -114,7 +122,7 @@ public class TratamientoController {
         Tratamiento trat = toEntity(tratamientoDTO);
         trat.setId(null);
         Tratamiento guardado = tratamientoService.save(trat);
-        return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(guardado));
+        return ResponseEntity.status(HttpStatus.CREATED).body(TratamientoService.toDTO(guardado));
     }
 
     /**
@@ -142,11 +150,15 @@ public class TratamientoController {
             CitaVeterinaria cita = citaService.findById(tratamientoDTO.getCitaId())
                     .orElseThrow(() -> new EntityNotFoundException(
                             "La cita con ID " + tratamientoDTO.getCitaId() + " no existe."));
+            // El tratamiento desaparece del resumen del propietario anterior
+            // y del detalle de la cita anterior
+            resumenService.invalidar(tratDb.getCita().getMascota().getCliente().getId());
+            cacheDatos.invalidar(CacheDatosService.CITAS, tratDb.getCita().getId());
             tratDb.setCita(cita);
         }
 
         Tratamiento guardado = tratamientoService.save(tratDb);
-        return ResponseEntity.ok(toDTO(guardado));
+        return ResponseEntity.ok(TratamientoService.toDTO(guardado));
     }
 
     /**
@@ -163,18 +175,7 @@ public class TratamientoController {
         return ResponseEntity.noContent().build();
     }
 
-    // --- Conversiones Entity ↔ DTO ---
-
-    private TratamientoDTO toDTO(Tratamiento t) {
-        TratamientoDTO dto = new TratamientoDTO();
-        dto.setId(t.getId());
-        dto.setDescripcion(t.getDescripcion());
-        dto.setMedicamento(t.getMedicamento());
-        dto.setPrecio(t.getPrecio());
-        dto.setObservaciones(t.getObservaciones());
-        dto.setCitaId(t.getCita() != null ? t.getCita().getId() : null);
-        return dto;
-    }
+    // --- Conversiones DTO → Entity ---
 
     private Tratamiento toEntity(TratamientoDTO dto) {
         Tratamiento trat = new Tratamiento();
@@ -1,7 +1,9 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ReasignacionResultadoDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.dto.VeterinarioDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Veterinario;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ReasignacionCitasService;
 import com.OrtegaAlvaro.ClinicaVeterinaria.services.VeterinarioService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
@@ -28,6 +30,12 @@ public class VeterinarioController {
     @Autowired
     private VeterinarioService veterinarioService;
 
+    @Autowired
+    private ReasignacionCitasService reasignacionService;
+
+    @Autowired
+    private LimiteIds limiteIds;
+
     /**
      * Devuelve la lista de especialidades disponibles en el sistema.
      * GET /api/veterinarios/especialidades
@@ -49,17 +57,30 @@ public class VeterinarioController {
     /**
      * Lista todos los veterinarios registrados.
      * GET /api/veterinarios
+     * GET /api/veterinarios?ids=1,2,3 (lista sin paginar, en el orden pedido)
      */
     @GetMapping
-    public ResponseEntity<Page<VeterinarioDTO>> listarVeterinarios(
+    public ResponseEntity<?> listarVeterinarios(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sort,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) List<Long> ids) {
+
+        if (ids != null && !ids.isEmpty()) {
+            ResponseEntity<?> exceso = limiteIds.comprobar(ids, "veterinarios");
+            if (exceso != null) {
+                return exceso;
+            }
+            List<VeterinarioDTO> dtos = veterinarioService.findAllByIds(ids).stream()
+                    .map(VeterinarioService::toDTO)
+                    .toList();
+            return ResponseEntity.ok(dtos);
+        }
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(sort));
         Page<Veterinario> veterinarios = veterinarioService.findAll(pageable, search);
-        Page<VeterinarioDTO> dtos = veterinarios.map(this::toDTO);
+        Page<VeterinarioDTO> dtos = veterinarios.map(VeterinarioService::toDTO);
 
         return ResponseEntity.ok(dtos);
     }
@@ -70,11 +91,11 @@ public class VeterinarioController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<VeterinarioDTO> obtenerVeterinario(@PathVariable Long id) {
-        Veterinario vet = veterinarioService.findById(id)
+        VeterinarioDTO vet = veterinarioService.findDTOById(id)
                 .orElseThrow(() -> new EntityNotFoundException(
                         "El veterinario con ID " + id + " no existe."));
 
-        return ResponseEntity.ok(toDTO(vet));
+        return ResponseEntity.ok(vet);
     }
 
     /**
@@ -88,7 +109,7 @@ public class VeterinarioController {
         Veterinario veterinario = toEntity(veterinarioDTO);
         veterinario.setId(null);
         Veterinario guardado = veterinarioService.save(veterinario);
-        return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(guardado));
+        return ResponseEntity.status(HttpStatus.CREATED).body(VeterinarioService.toDTO(guardado));
     }
 
     /**
@@ -116,7 +137,7 @@ public class VeterinarioController {
             vetDb.setEmail(veterinarioDTO.getEmail());
 
         Veterinario guardado = veterinarioService.save(vetDb);
-        return ResponseEntity.ok(toDTO(guardado));
+        return ResponseEntity.ok(VeterinarioService.toDTO(guardado));
     }
 
     /**
@@ -133,19 +154,18 @@ public class VeterinarioController {
         return ResponseEntity.noContent().build();
     }
 
-    // --- Conversiones Entity ↔ DTO ---
-
-    private VeterinarioDTO toDTO(Veterinario v) {
-        VeterinarioDTO dto = new VeterinarioDTO();
-        dto.setId(v.getId());
-        dto.setNombre(v.getNombre());
-        dto.setApellidos(v.getApellidos());
-        dto.setNumeroColegiado(v.getNumeroColegiado());
-        dto.setEspecialidad(v.getEspecialidad());
-        dto.setEmail(v.getEmail());
-        return dto;
+    /**
+     * Reparte las citas pendientes futuras del veterinario entre los compañeros
+     * de su especialidad, equilibrando la carga y respetando sus agendas.
+     * POST /api/veterinarios/{id}/reasignar
+     */
+    @PostMapping("/{id}/reasignar")
+    public ResponseEntity<ReasignacionResultadoDTO> reasignarCitas(@PathVariable Long id) {
+        return ResponseEntity.ok(reasignacionService.reasignarCitasFuturas(id));
     }
 
+    // --- Conversiones DTO → Entity ---
+
     private Veterinario toEntity(VeterinarioDTO dto) {
         Veterinario vet = new Veterinario();
         vet.setNombre(dto.getNombre());
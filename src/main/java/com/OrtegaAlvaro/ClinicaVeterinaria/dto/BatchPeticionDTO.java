@@ -0,0 +1,52 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Petición del endpoint /api/batch: varias operaciones sobre la API en una sola
+ * llamada HTTP.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPeticionDTO {
+
+    /**
+     * Si es true, todas las operaciones se ejecutan en orden dentro de una única
+     * transacción, que se deshace si alguna responde con un error (status >= 400).
+     */
+    private boolean transaccional;
+
+    @NotEmpty(message = "Debe indicar al menos una operación")
+    @Valid
+    private List<Operacion> operaciones;
+
+    /**
+     * Sub-petición sobre un endpoint existente de la API.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Operacion {
+
+        /** Identificador libre para localizar la respuesta. */
+        private String id;
+
+        @NotBlank(message = "El método HTTP es obligatorio")
+        private String metodo;
+
+        /** Ruta con query string opcional, p. ej. /api/citas?size=50 */
+        @NotBlank(message = "La ruta es obligatoria")
+        private String ruta;
+
+        /** Cuerpo JSON de la operación (POST/PUT). */
+        private Object cuerpo;
+    }
+}
@@ -0,0 +1,23 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Respuesta de una operación dentro de /api/batch.
+ * El cuerpo se incluye tal cual lo generó el controlador, sin volver a
+ * deserializarlo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResultadoDTO {
+
+    private String id;
+    private int status;
+
+    @JsonRawValue
+    private String cuerpo;
+}
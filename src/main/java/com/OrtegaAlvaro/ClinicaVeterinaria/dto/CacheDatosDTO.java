@@ -0,0 +1,24 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estadísticas de una caché de servicio desde el arranque.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheDatosDTO {
+
+    private String nombre;
+    private long aciertos;
+    private long fallos;
+    /** aciertos / (aciertos + fallos), 0 si no ha habido lecturas. */
+    private double tasaAciertos;
+    /** Entradas descartadas por tamaño máximo o caducidad. */
+    private long expulsiones;
+    /** Elementos en memoria (aproximado). */
+    private long elementos;
+}
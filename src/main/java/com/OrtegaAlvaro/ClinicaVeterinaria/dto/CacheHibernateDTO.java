@@ -0,0 +1,23 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Estadísticas de la caché de segundo nivel de Hibernate: totales y detalle
+ * por región.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheHibernateDTO {
+
+    private long aciertos;
+    private long fallos;
+    private long escrituras;
+    private double tasaAciertos;
+    private List<CacheRegionDTO> regiones;
+}
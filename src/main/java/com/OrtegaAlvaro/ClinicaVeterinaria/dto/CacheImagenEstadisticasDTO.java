@@ -0,0 +1,24 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estadísticas de la caché en memoria de imágenes desde el arranque.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheImagenEstadisticasDTO {
+
+    private long aciertos;
+    private long fallos;
+    /** aciertos / (aciertos + fallos); 1.0 si aún no hay peticiones. */
+    private double tasaAciertos;
+    private long expulsiones;
+    private long entradas;
+    private long bytesUsados;
+    private long presupuestoBytes;
+    private long maxBytesEntrada;
+}
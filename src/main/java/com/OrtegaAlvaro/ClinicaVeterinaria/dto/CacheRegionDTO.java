@@ -0,0 +1,23 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estadísticas de una región de caché desde el arranque.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheRegionDTO {
+
+    private String region;
+    private long aciertos;
+    private long fallos;
+    private long escrituras;
+    /** aciertos / (aciertos + fallos), 0 si no ha habido lecturas. */
+    private double tasaAciertos;
+    /** Elementos en memoria, -1 si el proveedor no lo informa. */
+    private long elementos;
+}
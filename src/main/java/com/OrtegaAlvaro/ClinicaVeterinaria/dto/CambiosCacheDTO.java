@@ -0,0 +1,26 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Estado de la sincronización de cachés de este nodo con el resto.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambiosCacheDTO {
+
+    private String nodo;
+    private boolean activo;
+    /** Último ID de cambio_cache leído. */
+    private long cursor;
+    /** IDs saltados que aún pueden aparecer (transacciones abiertas). */
+    private int huecosPendientes;
+    /** Cambios de otros nodos aplicados desde el arranque. */
+    private long aplicados;
+    private Instant ultimaLectura;
+}
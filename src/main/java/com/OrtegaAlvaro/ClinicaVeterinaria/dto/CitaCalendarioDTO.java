@@ -0,0 +1,28 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO compacto para las vistas de calendario.
+ * Se construye directamente desde la consulta (proyección JPQL), sin cargar
+ * entidades ni tratamientos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitaCalendarioDTO {
+
+    private Long id;
+    private LocalDateTime fechaHora;
+    private String motivo;
+    private EstadoCita estado;
+    private Long mascotaId;
+    private String mascotaNombre;
+    private Long veterinarioId;
+    private String veterinarioNombre;
+}
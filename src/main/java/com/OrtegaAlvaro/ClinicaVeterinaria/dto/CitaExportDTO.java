@@ -0,0 +1,31 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila plana de una cita para las exportaciones masivas.
+ * Se construye directamente desde la consulta (proyección JPQL) e incluye el
+ * coste total ya agregado, sin cargar la lista de tratamientos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitaExportDTO {
+
+    private Long id;
+    private LocalDateTime fechaHora;
+    private String motivo;
+    private String diagnostico;
+    private EstadoCita estado;
+    private Long mascotaId;
+    private String mascotaNombre;
+    private Long clienteId;
+    private Long veterinarioId;
+    private String veterinarioNombre;
+    private Double costeTotal;
+}
@@ -1,5 +1,7 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,6 +13,8 @@ import java.util.List;
  * DTO para la transferencia de datos de CitaVeterinaria.
  * Incluye referencias aplanadas a Mascota y Veterinario, así como
  * la lista de tratamientos y el coste total calculado.
+ * El ID del propietario solo sirve para comprobar permisos sin volver a
+ * cargar la cita y no se serializa.
  */
 @Data
 @NoArgsConstructor
@@ -21,11 +25,25 @@ public class CitaVeterinariaDTO {
     private LocalDateTime fechaHora;
     private String motivo;
     private String diagnostico;
-    private String estado;
+    private EstadoCita estado;
     private Long mascotaId;
     private String mascotaNombre;
     private Long veterinarioId;
     private String veterinarioNombre;
     private Double costeTotal;
     private List<TratamientoDTO> tratamientos;
+    @JsonIgnore
+    private Long clienteId;
+
+    /**
+     * Copia independiente, para no compartir la instancia guardada en caché.
+     * Los tratamientos también se copian, en una lista inmutable.
+     */
+    public CitaVeterinariaDTO copia() {
+        List<TratamientoDTO> copiaTratamientos = tratamientos != null
+                ? tratamientos.stream().map(TratamientoDTO::copia).toList()
+                : null;
+        return new CitaVeterinariaDTO(id, fechaHora, motivo, diagnostico, estado, mascotaId, mascotaNombre,
+                veterinarioId, veterinarioNombre, costeTotal, copiaTratamientos, clienteId);
+    }
 }
@@ -21,4 +21,11 @@ public class ClienteDTO {
     private String telefonoFormateado;
     private String direccion;
     private String email;
+
+    /**
+     * Copia independiente, para no compartir la instancia guardada en caché.
+     */
+    public ClienteDTO copia() {
+        return new ClienteDTO(id, nombre, apellidos, dni, telefono, telefonoFormateado, direccion, email);
+    }
 }
@@ -0,0 +1,21 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página del historial clínico de una mascota.
+ * Para pedir la siguiente página se envía 'siguienteCursor' en el parámetro
+ * cursor; es null cuando no quedan más citas.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorialPaginaDTO {
+
+    private List<ResumenCitaDTO> citas;
+    private String siguienteCursor;
+}
@@ -0,0 +1,30 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estadísticas del almacén de imágenes deduplicado.
+ * Los cinco primeros campos cuentan desde el arranque de la aplicación; el
+ * resto sale de la tabla imagen_ref.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImagenEstadisticasDTO {
+
+    private long subidas;
+    private long subidasDuplicadas;
+    /** subidasDuplicadas / subidas (0 si no hay subidas). */
+    private double tasaDuplicados;
+    private long bytesAhorradosDesdeArranque;
+    /** Bytes que se ha ahorrado la reducción y recompresión de las subidas. */
+    private long bytesReducidosDesdeArranque;
+
+    private long ficheros;
+    private long referencias;
+    private long bytesEnDisco;
+    /** Bytes que ocuparían de más las imágenes si cada referencia tuviera su copia. */
+    private long bytesAhorrados;
+}
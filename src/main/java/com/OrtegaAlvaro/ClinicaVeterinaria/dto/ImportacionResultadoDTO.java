@@ -0,0 +1,35 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Informe devuelto tras una importación masiva desde CSV.
+ * La lista de errores está limitada (importacion.max-errores); los contadores
+ * siempre reflejan el fichero completo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportacionResultadoDTO {
+
+    private long registrosLeidos;
+    private long importados;
+    private long rechazados;
+    private List<ErrorLinea> errores;
+    private boolean erroresTruncados;
+
+    /**
+     * Motivo por el que se rechazó una línea del fichero.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ErrorLinea {
+        private long linea;
+        private String mensaje;
+    }
+}
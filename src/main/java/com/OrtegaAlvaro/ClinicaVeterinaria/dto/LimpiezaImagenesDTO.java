@@ -0,0 +1,31 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Estado de la limpieza de imágenes huérfanas: datos de la última pasada y
+ * totales desde el arranque.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LimpiezaImagenesDTO {
+
+    private boolean enCurso;
+    private LocalDateTime inicio;
+    /** null mientras está en curso o si nunca se ha lanzado. */
+    private LocalDateTime fin;
+    /** Nombres distintos referenciados por mascotas en la última pasada. */
+    private long referenciadas;
+    private long revisados;
+    private long huerfanosBorrados;
+    private long bytesLiberados;
+    private long errores;
+
+    private long totalHuerfanosBorrados;
+    private long totalBytesLiberados;
+}
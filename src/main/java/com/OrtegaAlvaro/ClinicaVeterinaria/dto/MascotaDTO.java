@@ -22,7 +22,15 @@ public class MascotaDTO {
     private String raza;
     private LocalDate fechaNacimiento;
     private Double peso;
+    // Solo de salida: se asigna con POST /api/mascotas/{id}/imagen
     private String imagenUrl;
     private Long clienteId;
     private String clienteNombre;
+
+    /**
+     * Copia independiente, para no compartir la instancia guardada en caché.
+     */
+    public MascotaDTO copia() {
+        return new MascotaDTO(id, nombre, especie, raza, fechaNacimiento, peso, imagenUrl, clienteId, clienteNombre);
+    }
 }
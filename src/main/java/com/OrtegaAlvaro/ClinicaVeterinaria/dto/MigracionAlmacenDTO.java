@@ -0,0 +1,24 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Estado de la migración de imágenes desde la estructura plana de upload.dir
+ * al almacén configurado.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigracionAlmacenDTO {
+
+    private boolean enCurso;
+    private long migradas;
+    private long errores;
+    private LocalDateTime inicio;
+    /** null mientras está en curso o si nunca se ha lanzado. */
+    private LocalDateTime fin;
+}
@@ -0,0 +1,24 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resumen devuelto tras reasignar las citas futuras de un veterinario.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReasignacionResultadoDTO {
+
+    private Long veterinarioId;
+    private int citasReasignadas;
+    /** Citas recibidas por cada veterinario (ID → número de citas). */
+    private Map<Long, Integer> reparto;
+    /** IDs de las citas que no encajan en ninguna agenda y siguen sin mover. */
+    private List<Long> citasSinAsignar;
+}
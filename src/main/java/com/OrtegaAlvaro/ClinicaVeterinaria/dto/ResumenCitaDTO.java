@@ -0,0 +1,43 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cita con sus tratamientos, tal y como aparece en el resumen del cliente y en
+ * el historial de una mascota.
+ * El ID de la mascota solo sirve para colgar la cita de su mascota al montar
+ * el árbol y no se serializa.
+ */
+@Data
+@NoArgsConstructor
+public class ResumenCitaDTO {
+
+    private Long id;
+    @JsonIgnore
+    private Long mascotaId;
+    private LocalDateTime fechaHora;
+    private String motivo;
+    private String diagnostico;
+    private EstadoCita estado;
+    private String veterinarioNombre;
+    private Double costeTotal = 0.0;
+    private List<ResumenTratamientoDTO> tratamientos = new ArrayList<>();
+
+    public ResumenCitaDTO(Long id, Long mascotaId, LocalDateTime fechaHora, String motivo, String diagnostico,
+            EstadoCita estado, String veterinarioNombre) {
+        this.id = id;
+        this.mascotaId = mascotaId;
+        this.fechaHora = fechaHora;
+        this.motivo = motivo;
+        this.diagnostico = diagnostico;
+        this.estado = estado;
+        this.veterinarioNombre = veterinarioNombre != null ? veterinarioNombre : "No asignado (Baja)";
+    }
+}
@@ -0,0 +1,37 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vista completa de un cliente para su propia pantalla de inicio: sus datos,
+ * sus mascotas y, dentro de cada mascota, sus citas con los tratamientos.
+ * Se monta en memoria a partir de tres proyecciones, sin entidades gestionadas.
+ */
+@Data
+@NoArgsConstructor
+public class ResumenClienteDTO {
+
+    private Long id;
+    private String nombre;
+    private String apellidos;
+    private String dni;
+    private String telefono;
+    private String direccion;
+    private String email;
+    private List<ResumenMascotaDTO> mascotas = new ArrayList<>();
+
+    public ResumenClienteDTO(Long id, String nombre, String apellidos, String dni, String telefono,
+            String direccion, String email) {
+        this.id = id;
+        this.nombre = nombre;
+        this.apellidos = apellidos;
+        this.dni = dni;
+        this.telefono = telefono;
+        this.direccion = direccion;
+        this.email = email;
+    }
+}
@@ -0,0 +1,37 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mascota dentro del resumen del cliente, con su historial de citas.
+ * Se construye directamente desde la consulta (proyección JPQL).
+ */
+@Data
+@NoArgsConstructor
+public class ResumenMascotaDTO {
+
+    private Long id;
+    private String nombre;
+    private String especie;
+    private String raza;
+    private LocalDate fechaNacimiento;
+    private Double peso;
+    private String imagenUrl;
+    private List<ResumenCitaDTO> citas = new ArrayList<>();
+
+    public ResumenMascotaDTO(Long id, String nombre, String especie, String raza, LocalDate fechaNacimiento,
+            Double peso, String imagenUrl) {
+        this.id = id;
+        this.nombre = nombre;
+        this.especie = especie;
+        this.raza = raza;
+        this.fechaNacimiento = fechaNacimiento;
+        this.peso = peso;
+        this.imagenUrl = imagenUrl;
+    }
+}
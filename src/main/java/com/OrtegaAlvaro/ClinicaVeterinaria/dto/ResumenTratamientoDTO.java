@@ -0,0 +1,24 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tratamiento dentro del resumen del cliente.
+ * El ID de la cita solo sirve para colgarlo de su cita y no se serializa.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenTratamientoDTO {
+
+    private Long id;
+    @JsonIgnore
+    private Long citaId;
+    private String descripcion;
+    private String medicamento;
+    private Double precio;
+    private String observaciones;
+}
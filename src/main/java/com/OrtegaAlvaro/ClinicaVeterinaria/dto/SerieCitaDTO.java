@@ -0,0 +1,50 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.FrecuenciaSerie;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de entrada para crear una serie de citas periódicas.
+ * La serie termina tras 'ocurrencias' citas o al alcanzar 'hasta', lo que
+ * ocurra antes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerieCitaDTO {
+
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    private LocalDateTime fechaInicio;
+
+    @NotNull(message = "La frecuencia es obligatoria")
+    private FrecuenciaSerie frecuencia;
+
+    @Positive(message = "El intervalo debe ser positivo")
+    private Integer intervalo = 1;
+
+    @Positive(message = "El número de ocurrencias debe ser positivo")
+    private Integer ocurrencias;
+
+    private LocalDateTime hasta;
+
+    @NotBlank(message = "El motivo de la consulta es obligatorio")
+    private String motivo;
+
+    @NotNull(message = "Debes seleccionar una mascota")
+    private Long mascotaId;
+
+    private Long veterinarioId;
+
+    /**
+     * Si es true, las fechas que chocan con la agenda del veterinario se omiten
+     * en lugar de rechazar toda la serie.
+     */
+    private boolean omitirConflictos;
+}
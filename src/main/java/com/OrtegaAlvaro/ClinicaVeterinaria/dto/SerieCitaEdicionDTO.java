@@ -0,0 +1,22 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de entrada para editar las citas pendientes de una serie.
+ * Solo se modifican los campos no nulos, y únicamente en las citas
+ * pendientes a partir de 'desde' (por defecto, ahora).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerieCitaEdicionDTO {
+
+    private String motivo;
+    private Long veterinarioId;
+    private LocalDateTime desde;
+}
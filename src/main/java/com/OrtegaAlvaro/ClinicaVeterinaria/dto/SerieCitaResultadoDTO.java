@@ -0,0 +1,21 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resumen devuelto tras crear una serie de citas.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerieCitaResultadoDTO {
+
+    private Long serieId;
+    private int citasCreadas;
+    private List<LocalDateTime> fechasOmitidas;
+}
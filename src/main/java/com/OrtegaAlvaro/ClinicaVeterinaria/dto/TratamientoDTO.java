@@ -20,4 +20,11 @@ public class TratamientoDTO {
     private Double precio;
     private String observaciones;
     private Long citaId;
+
+    /**
+     * Copia independiente, para no compartir la instancia guardada en caché.
+     */
+    public TratamientoDTO copia() {
+        return new TratamientoDTO(id, descripcion, medicamento, precio, observaciones, citaId);
+    }
 }
@@ -18,4 +18,11 @@ public class VeterinarioDTO {
     private String numeroColegiado;
     private String especialidad;
     private String email;
+
+    /**
+     * Copia independiente, para no compartir la instancia guardada en caché.
+     */
+    public VeterinarioDTO copia() {
+        return new VeterinarioDTO(id, nombre, apellidos, numeroColegiado, especialidad, email);
+    }
 }
@@ -0,0 +1,46 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Invalidación de caché registrada por un nodo, para que el resto descarte
+ * sus copias locales (ver CambioCacheService).
+ */
+@Entity
+@Table(name = "cambio_cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioCache {
+
+    /**
+     * Asignado por la base de datos al insertar, creciente para todos los
+     * nodos: es el cursor con el que cada nodo lee los cambios nuevos.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Nombre de la caché de Spring (ver CacheDatosService).
+     */
+    @Column(nullable = false, length = 40)
+    private String cache;
+
+    /**
+     * ID del registro cambiado; null si hay que vaciar toda la caché.
+     */
+    private Long clave;
+
+    /**
+     * Nodo que hizo el cambio (ya descartó sus copias al confirmar).
+     */
+    @Column(nullable = false, length = 36)
+    private String nodo;
+
+    @Column(nullable = false)
+    private LocalDateTime creado;
+}
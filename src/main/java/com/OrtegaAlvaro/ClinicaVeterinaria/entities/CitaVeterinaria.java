@@ -1,9 +1,11 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.entities;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.exceptions.ConflictoException;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDateTime;
@@ -18,14 +20,21 @@ import java.util.List;
  * y los servicios económicos realizados (Tratamientos).
  */
 @Entity
-@Table(name = "cita_veterinaria")
+@Table(name = "cita_veterinaria", indexes = {
+        @Index(name = "idx_cita_veterinario_fecha", columnList = "veterinario_id, fecha_hora"),
+        @Index(name = "idx_cita_fecha", columnList = "fecha_hora"),
+        @Index(name = "idx_cita_serie_fecha", columnList = "serie_id, fecha_hora"),
+        @Index(name = "idx_cita_estado_fecha", columnList = "estado, fecha_hora"),
+        @Index(name = "idx_cita_mascota_fecha", columnList = "mascota_id, fecha_hora")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class CitaVeterinaria {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cita_veterinaria_seq")
+    @SequenceGenerator(name = "cita_veterinaria_seq", sequenceName = "cita_veterinaria_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "fecha_hora", nullable = false)
@@ -39,9 +48,13 @@ public class CitaVeterinaria {
     private String diagnostico;
 
     /**
-     * Estado actual del flujo de la cita (Ej: Pendiente, Realizada, Cancelada).
+     * Estado actual del flujo de la cita (Pendiente, Realizada, Cancelada).
+     * Se almacena como código de una letra; los cambios deben pasar por
+     * cambiarEstado para respetar las transiciones permitidas.
      */
-    private String estado;
+    @Column(nullable = false, length = 1, columnDefinition = "CHAR(1)")
+    @Setter(AccessLevel.NONE)
+    private EstadoCita estado = EstadoCita.PENDIENTE;
 
     // --- RELACIONES ---
 
@@ -68,12 +81,26 @@ public class CitaVeterinaria {
     @EqualsAndHashCode.Exclude
     private Veterinario veterinario;
 
+    /**
+     * Serie periódica a la que pertenece la cita (null si es una cita suelta).
+     * Permite editar o cancelar todas las ocurrencias futuras con una única
+     * sentencia UPDATE.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "serie_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private SerieCita serie;
+
     /**
      * Lista de servicios o tratamientos aplicados en esta cita.
      * Relación 1:N con cascada total (Si se borra la cita, se borran sus líneas de
      * tratamiento).
+     * Al recorrer varias citas, los tratamientos se inicializan de 50 en 50 con
+     * una consulta IN en lugar de una consulta por cita.
      */
     @OneToMany(mappedBy = "cita", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
     private List<Tratamiento> tratamientos = new ArrayList<>();
@@ -91,6 +118,21 @@ public class CitaVeterinaria {
         tratamiento.setCita(this);
     }
 
+    /**
+     * Cambia el estado de la cita validando la transición.
+     *
+     * @param nuevoEstado Estado destino.
+     * @throws ConflictoException si la transición no está permitida (p. ej.
+     *                            reabrir una cita cancelada).
+     */
+    public void cambiarEstado(EstadoCita nuevoEstado) {
+        if (this.estado != null && !this.estado.puedeCambiarA(nuevoEstado)) {
+            throw new ConflictoException("No se puede pasar una cita de '" + this.estado.getEtiqueta()
+                    + "' a '" + nuevoEstado.getEtiqueta() + "'.");
+        }
+        this.estado = nuevoEstado;
+    }
+
     /**
      * Calcula el coste total de la cita sumando el precio de todos los tratamientos
      * asociados.
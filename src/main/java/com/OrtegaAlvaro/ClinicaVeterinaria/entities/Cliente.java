@@ -1,6 +1,8 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
@@ -17,13 +19,16 @@ import java.util.List;
  */
 @Entity
 @Table(name = "cliente")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "cliente")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Cliente {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cliente_seq")
+    @SequenceGenerator(name = "cliente_seq", sequenceName = "cliente_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "El nombre es obligatorio")
@@ -55,6 +60,7 @@ public class Cliente {
      * implique la eliminación de sus mascotas (Orphan Removal).
      */
     @OneToMany(mappedBy = "cliente", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "cliente_mascotas")
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
     private List<Mascota> mascotas = new ArrayList<>();
@@ -0,0 +1,73 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Estados del ciclo de vida de una cita.
+ * En base de datos se guarda un código de una letra (columna CHAR(1)) y en la
+ * API se expone la etiqueta legible ("Pendiente", "Realizada", "Cancelada").
+ *
+ * Transiciones permitidas:
+ * PENDIENTE → REALIZADA | CANCELADA.
+ * REALIZADA y CANCELADA son estados finales.
+ */
+public enum EstadoCita {
+    PENDIENTE("P", "Pendiente"),
+    REALIZADA("R", "Realizada"),
+    CANCELADA("C", "Cancelada");
+
+    private final String codigo;
+    private final String etiqueta;
+
+    EstadoCita(String codigo, String etiqueta) {
+        this.codigo = codigo;
+        this.etiqueta = etiqueta;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    @JsonValue
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    /**
+     * Indica si una cita en este estado puede pasar al estado destino.
+     * Mantener el mismo estado siempre está permitido.
+     */
+    public boolean puedeCambiarA(EstadoCita destino) {
+        return this == destino || this == PENDIENTE;
+    }
+
+    /**
+     * Interpreta el estado recibido desde la API, aceptando tanto la etiqueta
+     * ("Pendiente") como el nombre del enum ("PENDIENTE"), sin distinguir
+     * mayúsculas.
+     *
+     * @throws IllegalArgumentException si el valor no corresponde a ningún estado.
+     */
+    @JsonCreator
+    public static EstadoCita desde(String valor) {
+        for (EstadoCita estado : values()) {
+            if (estado.etiqueta.equalsIgnoreCase(valor) || estado.name().equalsIgnoreCase(valor)) {
+                return estado;
+            }
+        }
+        throw new IllegalArgumentException("Estado de cita no válido: " + valor);
+    }
+
+    /**
+     * Recupera el estado a partir del código almacenado en base de datos.
+     */
+    public static EstadoCita desdeCodigo(String codigo) {
+        for (EstadoCita estado : values()) {
+            if (estado.codigo.equals(codigo)) {
+                return estado;
+            }
+        }
+        throw new IllegalArgumentException("Código de estado desconocido: " + codigo);
+    }
+}
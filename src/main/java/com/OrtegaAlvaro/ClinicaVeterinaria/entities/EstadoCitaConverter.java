@@ -0,0 +1,21 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.entities;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Conversor JPA que almacena EstadoCita como su código de una letra.
+ */
+@Converter(autoApply = true)
+public class EstadoCitaConverter implements AttributeConverter<EstadoCita, String> {
+
+    @Override
+    public String convertToDatabaseColumn(EstadoCita estado) {
+        return estado != null ? estado.getCodigo() : null;
+    }
+
+    @Override
+    public EstadoCita convertToEntityAttribute(String codigo) {
+        return codigo != null ? EstadoCita.desdeCodigo(codigo) : null;
+    }
+}
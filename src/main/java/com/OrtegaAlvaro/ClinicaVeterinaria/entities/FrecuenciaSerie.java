@@ -0,0 +1,34 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.entities;
+
+import java.time.LocalDateTime;
+
+/**
+ * Unidad de repetición de una serie de citas periódicas.
+ * DIARIA: cada N días.
+ * SEMANAL: cada N semanas.
+ * MENSUAL: cada N meses (mismo día del mes).
+ */
+public enum FrecuenciaSerie {
+    DIARIA,
+    SEMANAL,
+    MENSUAL;
+
+    /**
+     * Calcula la n-ésima ocurrencia de la serie (la primera es n = 0).
+     * Se calcula siempre desde la fecha de inicio para que las series mensuales
+     * no deriven (31 ene → 28 feb → 31 mar).
+     *
+     * @param inicio    Fecha de la primera ocurrencia.
+     * @param intervalo Número de unidades entre ocurrencias.
+     * @param n         Índice de la ocurrencia.
+     * @return Fecha de la ocurrencia.
+     */
+    public LocalDateTime ocurrencia(LocalDateTime inicio, int intervalo, int n) {
+        long pasos = (long) intervalo * n;
+        return switch (this) {
+            case DIARIA -> inicio.plusDays(pasos);
+            case SEMANAL -> inicio.plusWeeks(pasos);
+            case MENSUAL -> inicio.plusMonths(pasos);
+        };
+    }
+}
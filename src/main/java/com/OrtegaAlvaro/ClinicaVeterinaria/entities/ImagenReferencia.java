@@ -0,0 +1,46 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fichero de imagen almacenado una sola vez por contenido (el nombre es su
+ * SHA-256) junto con el número de mascotas que lo usan.
+ * El contador se modifica siempre con sentencias atómicas del repositorio,
+ * nunca leyendo y guardando la entidad.
+ */
+@Entity
+@Table(name = "imagen_ref")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImagenReferencia {
+
+    /**
+     * Nombre del fichero: SHA-256 en hexadecimal más la extensión.
+     */
+    @Id
+    @Column(length = 80)
+    private String nombre;
+
+    @Column(nullable = false)
+    private int referencias;
+
+    /**
+     * Tamaño del fichero en bytes.
+     */
+    @Column(nullable = false)
+    private long tamano;
+
+    @Column(nullable = false)
+    private LocalDateTime creada;
+
+    /**
+     * Última vez que se sumó una referencia (subida de una mascota). La
+     * limpieza de huérfanas no toca las imágenes usadas recientemente.
+     */
+    @Column(nullable = false)
+    private LocalDateTime usada;
+}
@@ -1,6 +1,8 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PastOrPresent;
@@ -21,13 +23,16 @@ import java.util.List;
  */
 @Entity
 @Table(name = "mascota")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "mascota")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Mascota {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mascota_seq")
+    @SequenceGenerator(name = "mascota_seq", sequenceName = "mascota_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "El nombre es obligatorio")
@@ -0,0 +1,68 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.entities;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidad que representa una serie de citas periódicas (p. ej. la revisión
+ * semanal de un paciente crónico).
+ * Guarda la regla de recurrencia; cada ocurrencia se materializa como una
+ * CitaVeterinaria independiente que referencia a la serie.
+ */
+@Entity
+@Table(name = "serie_cita")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerieCita {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "serie_cita_seq")
+    @SequenceGenerator(name = "serie_cita_seq", sequenceName = "serie_cita_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "fecha_inicio", nullable = false)
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    private LocalDateTime fechaInicio;
+
+    @NotNull(message = "La frecuencia es obligatoria")
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private FrecuenciaSerie frecuencia;
+
+    @NotNull(message = "El intervalo es obligatorio")
+    @Positive(message = "El intervalo debe ser positivo")
+    @Column(nullable = false)
+    private Integer intervalo;
+
+    /**
+     * Número de citas generadas al crear la serie.
+     */
+    @NotNull(message = "El número de ocurrencias es obligatorio")
+    @Positive(message = "El número de ocurrencias debe ser positivo")
+    @Column(nullable = false)
+    private Integer ocurrencias;
+
+    @NotBlank(message = "El motivo de la consulta es obligatorio")
+    private String motivo;
+
+    // --- RELACIONES ---
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "mascota_id", nullable = false)
+    @NotNull(message = "Debes seleccionar una mascota")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Mascota mascota;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "veterinario_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Veterinario veterinario;
+}
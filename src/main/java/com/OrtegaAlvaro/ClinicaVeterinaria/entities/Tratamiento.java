@@ -18,7 +18,8 @@ import lombok.*;
 public class Tratamiento {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tratamiento_seq")
+    @SequenceGenerator(name = "tratamiento_seq", sequenceName = "tratamiento_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "La descripción del servicio es obligatoria")
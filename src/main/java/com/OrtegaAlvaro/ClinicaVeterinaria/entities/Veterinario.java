@@ -1,6 +1,8 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
@@ -15,13 +17,16 @@ import java.util.List;
  */
 @Entity
 @Table(name = "veterinario")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "veterinario")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Veterinario {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "veterinario_seq")
+    @SequenceGenerator(name = "veterinario_seq", sequenceName = "veterinario_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "El nombre es obligatorio")
@@ -0,0 +1,14 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.events;
+
+import java.util.List;
+
+/**
+ * Evento publicado cuando se eliminan o sustituyen registros que tenían
+ * imágenes en disco.
+ * Si se publica dentro de una transacción, los ficheros solo se borran si
+ * confirma (ver ImagenService).
+ *
+ * @param nombresArchivo Nombres de las imágenes en el almacén (ver AlmacenImagenes).
+ */
+public record ImagenesDescartadasEvent(List<String> nombresArchivo) {
+}
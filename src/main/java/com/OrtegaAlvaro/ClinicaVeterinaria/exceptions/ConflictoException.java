@@ -0,0 +1,13 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.exceptions;
+
+/**
+ * Excepción de negocio que indica que la operación choca con el estado actual
+ * de los datos (por ejemplo, un veterinario que ya tiene una cita a esa hora).
+ * El manejador global la traduce a 409 Conflict.
+ */
+public class ConflictoException extends RuntimeException {
+
+    public ConflictoException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,45 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.repositories;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CambioCache;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio del registro de invalidaciones de caché entre nodos.
+ */
+@Repository
+public interface CambioCacheRepository extends JpaRepository<CambioCache, Long> {
+
+    /**
+     * Cambios posteriores al cursor, en orden de ID (recorre la clave primaria).
+     */
+    List<CambioCache> findByIdGreaterThanOrderByIdAsc(Long cursor, Limit limite);
+
+    /**
+     * Último ID registrado, o 0 si no hay ninguno.
+     */
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM CambioCache c")
+    long ultimoId();
+
+    /**
+     * Borra un lote de cambios anteriores a 'limite'.
+     *
+     * @return Filas borradas (menos que 'lote' cuando ya no quedan).
+     */
+    @Modifying
+    // Sin declarar la tabla afectada, Hibernate vaciaría toda la caché de
+    // segundo nivel en cada sentencia nativa
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cambio_cache"))
+    @Query(value = "DELETE FROM cambio_cache WHERE creado < :limite LIMIT :lote", nativeQuery = true)
+    int borrarAnteriores(@Param("limite") LocalDateTime limite, @Param("lote") int lote);
+}
@@ -1,15 +1,28 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.repositories;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaCalendarioDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaExportDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenCitaDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CitaVeterinaria;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Veterinario;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.hibernate.jpa.HibernateHints;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.stereotype.Repository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repositorio de acceso a datos para la entidad CitaVeterinaria.
@@ -65,6 +78,231 @@ public interface CitaVeterinariaRepository extends JpaRepository<CitaVeterinaria
      */
     List<CitaVeterinaria> findByMascotaClienteId(Long clienteId);
 
-    @Query("SELECT c FROM CitaVeterinaria c WHERE LOWER(c.motivo) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(c.diagnostico) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(c.estado) LIKE LOWER(CONCAT('%', :search, '%'))")
+    /**
+     * Citas de las mascotas de un cliente en un estado concreto (filtro
+     * ?estado= del listado del CLIENTE).
+     */
+    List<CitaVeterinaria> findByMascotaClienteIdAndEstado(Long clienteId, EstadoCita estado);
+
+    /**
+     * Cuenta las citas activas de un veterinario cuya hora de inicio cae dentro
+     * del intervalo abierto (desde, hasta).
+     * Se resuelve con el índice compuesto (veterinario_id, fecha_hora) y excluye
+     * las citas canceladas y la propia cita cuando se trata de una edición.
+     *
+     * @param veterinarioId Identificador del veterinario.
+     * @param desde         Límite inferior (exclusivo).
+     * @param hasta         Límite superior (exclusivo).
+     * @param excluirId     ID de la cita que se está editando (0 si es nueva).
+     * @return Número de citas que se solapan.
+     */
+    @Query("SELECT COUNT(c) FROM CitaVeterinaria c WHERE c.veterinario.id = :veterinarioId AND c.fechaHora > :desde AND c.fechaHora < :hasta AND c.id <> :excluirId AND c.estado <> com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita.CANCELADA")
+    long contarSolapamientos(@Param("veterinarioId") Long veterinarioId,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta,
+            @Param("excluirId") Long excluirId);
+
+    /**
+     * Proyección de calendario de todas las citas en el rango [desde, hasta).
+     * Recorre el índice de fecha_hora y devuelve DTOs planos ordenados.
+     */
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaCalendarioDTO(c.id, c.fechaHora, c.motivo, c.estado, m.id, m.nombre, v.id, CONCAT(v.nombre, ' ', v.apellidos)) "
+            + "FROM CitaVeterinaria c JOIN c.mascota m LEFT JOIN c.veterinario v "
+            + "WHERE c.fechaHora >= :desde AND c.fechaHora < :hasta ORDER BY c.fechaHora")
+    List<CitaCalendarioDTO> findCalendario(@Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Proyección de calendario de un veterinario en el rango [desde, hasta).
+     * Usa el índice compuesto (veterinario_id, fecha_hora).
+     */
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaCalendarioDTO(c.id, c.fechaHora, c.motivo, c.estado, m.id, m.nombre, v.id, CONCAT(v.nombre, ' ', v.apellidos)) "
+            + "FROM CitaVeterinaria c JOIN c.mascota m JOIN c.veterinario v "
+            + "WHERE v.id = :veterinarioId AND c.fechaHora >= :desde AND c.fechaHora < :hasta ORDER BY c.fechaHora")
+    List<CitaCalendarioDTO> findCalendarioVeterinario(@Param("veterinarioId") Long veterinarioId,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Proyección de calendario limitada a las mascotas de un cliente.
+     * Utilizada para que el CLIENTE solo vea sus propias citas.
+     */
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaCalendarioDTO(c.id, c.fechaHora, c.motivo, c.estado, m.id, m.nombre, v.id, CONCAT(v.nombre, ' ', v.apellidos)) "
+            + "FROM CitaVeterinaria c JOIN c.mascota m LEFT JOIN c.veterinario v "
+            + "WHERE m.cliente.id = :clienteId AND (:veterinarioId IS NULL OR v.id = :veterinarioId) "
+            + "AND c.fechaHora >= :desde AND c.fechaHora < :hasta ORDER BY c.fechaHora")
+    List<CitaCalendarioDTO> findCalendarioCliente(@Param("clienteId") Long clienteId,
+            @Param("veterinarioId") Long veterinarioId,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Todas las citas de las mascotas de un cliente para su resumen, de la más
+     * reciente a la más antigua.
+     * El veterinario se une con LEFT JOIN para no perder las citas sin asignar.
+     */
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenCitaDTO(c.id, m.id, c.fechaHora, c.motivo, c.diagnostico, c.estado, CONCAT(v.nombre, ' ', v.apellidos)) "
+            + "FROM CitaVeterinaria c JOIN c.mascota m LEFT JOIN c.veterinario v "
+            + "WHERE m.cliente.id = :clienteId ORDER BY c.fechaHora DESC, c.id DESC")
+    List<ResumenCitaDTO> findResumenByClienteId(@Param("clienteId") Long clienteId);
+
+    /**
+     * Página del historial de una mascota, de la cita más reciente a la más
+     * antigua, continuando tras el cursor (fechaHora, id) si se indica.
+     * Recorre el índice (mascota_id, fecha_hora) y se detiene al llegar al
+     * límite, sin contar el total ni saltar filas con OFFSET.
+     */
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenCitaDTO(c.id, c.mascota.id, c.fechaHora, c.motivo, c.diagnostico, c.estado, CONCAT(v.nombre, ' ', v.apellidos)) "
+            + "FROM CitaVeterinaria c LEFT JOIN c.veterinario v "
+            + "WHERE c.mascota.id = :mascotaId "
+            + "AND (:desde IS NULL OR c.fechaHora >= :desde) AND (:hasta IS NULL OR c.fechaHora < :hasta) "
+            + "AND (:estado IS NULL OR c.estado = :estado) "
+            + "AND (:cursorFecha IS NULL OR c.fechaHora < :cursorFecha OR (c.fechaHora = :cursorFecha AND c.id < :cursorId)) "
+            + "ORDER BY c.fechaHora DESC, c.id DESC")
+    List<ResumenCitaDTO> findHistorial(@Param("mascotaId") Long mascotaId,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta,
+            @Param("estado") EstadoCita estado,
+            @Param("cursorFecha") LocalDateTime cursorFecha,
+            @Param("cursorId") Long cursorId,
+            Limit limite);
+
+    /**
+     * Horas de inicio de las citas activas de un veterinario dentro de un rango.
+     * Se usa para comprobar en memoria los solapamientos de muchas fechas a la
+     * vez (series periódicas) con una sola consulta sobre el índice.
+     */
+    @Query("SELECT c.fechaHora FROM CitaVeterinaria c WHERE c.veterinario.id = :veterinarioId AND c.fechaHora > :desde AND c.fechaHora < :hasta AND c.estado <> com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita.CANCELADA")
+    List<LocalDateTime> findHorasOcupadas(@Param("veterinarioId") Long veterinarioId,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Igual que findHorasOcupadas pero ignorando las citas de una serie concreta
+     * (las que se van a mover de veterinario).
+     */
+    @Query("SELECT c.fechaHora FROM CitaVeterinaria c WHERE c.veterinario.id = :veterinarioId AND c.fechaHora > :desde AND c.fechaHora < :hasta AND c.estado <> com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita.CANCELADA AND (c.serie IS NULL OR c.serie.id <> :serieId)")
+    List<LocalDateTime> findHorasOcupadasFueraDeSerie(@Param("veterinarioId") Long veterinarioId,
+            @Param("serieId") Long serieId,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Horas de las citas pendientes de una serie a partir de una fecha.
+     */
+    @Query("SELECT c.fechaHora FROM CitaVeterinaria c WHERE c.serie.id = :serieId AND c.fechaHora >= :desde AND c.estado = com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita.PENDIENTE ORDER BY c.fechaHora")
+    List<LocalDateTime> findHorasPendientesDeSerie(@Param("serieId") Long serieId,
+            @Param("desde") LocalDateTime desde);
+
+    /**
+     * Cambia el motivo de todas las citas pendientes de una serie en una única
+     * sentencia.
+     *
+     * @return Número de citas actualizadas.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CitaVeterinaria c SET c.motivo = :motivo WHERE c.serie.id = :serieId AND c.fechaHora >= :desde AND c.estado = com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita.PENDIENTE")
+    int actualizarMotivoDeSerie(@Param("serieId") Long serieId,
+            @Param("desde") LocalDateTime desde,
+            @Param("motivo") String motivo);
+
+    /**
+     * Reasigna el veterinario de todas las citas pendientes de una serie en una
+     * única sentencia.
+     *
+     * @return Número de citas actualizadas.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CitaVeterinaria c SET c.veterinario = :veterinario WHERE c.serie.id = :serieId AND c.fechaHora >= :desde AND c.estado = com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita.PENDIENTE")
+    int actualizarVeterinarioDeSerie(@Param("serieId") Long serieId,
+            @Param("desde") LocalDateTime desde,
+            @Param("veterinario") Veterinario veterinario);
+
+    /**
+     * Cancela todas las citas pendientes de una serie en una única sentencia.
+     *
+     * @return Número de citas canceladas.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CitaVeterinaria c SET c.estado = com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita.CANCELADA WHERE c.serie.id = :serieId AND c.fechaHora >= :desde AND c.estado = com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita.PENDIENTE")
+    int cancelarSerie(@Param("serieId") Long serieId, @Param("desde") LocalDateTime desde);
+
+    /**
+     * Desvincula de un veterinario todas sus citas en una única sentencia
+     * (equivalente a ON DELETE SET NULL). No carga ninguna entidad en memoria.
+     *
+     * @return Número de citas desvinculadas.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CitaVeterinaria c SET c.veterinario = NULL WHERE c.veterinario.id = :veterinarioId")
+    int desvincularVeterinario(@Param("veterinarioId") Long veterinarioId);
+
+    /**
+     * ID y hora de las citas pendientes de un veterinario a partir de una fecha,
+     * en orden cronológico. Proyección ligera para la reasignación por baja.
+     */
+    @Query("SELECT c.id, c.fechaHora FROM CitaVeterinaria c WHERE c.veterinario.id = :veterinarioId AND c.fechaHora > :desde AND c.estado = com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita.PENDIENTE ORDER BY c.fechaHora")
+    List<Object[]> findPendientesDeVeterinario(@Param("veterinarioId") Long veterinarioId,
+            @Param("desde") LocalDateTime desde);
+
+    /**
+     * Agenda activa (veterinario, hora) de varios veterinarios dentro de un rango,
+     * en una sola consulta.
+     */
+    @Query("SELECT c.veterinario.id, c.fechaHora FROM CitaVeterinaria c WHERE c.veterinario.id IN :veterinarioIds AND c.fechaHora > :desde AND c.fechaHora < :hasta AND c.estado <> com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita.CANCELADA")
+    List<Object[]> findHorasOcupadasDeVeterinarios(@Param("veterinarioIds") Collection<Long> veterinarioIds,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Asigna un veterinario a un conjunto de citas en una única sentencia.
+     *
+     * @return Número de citas actualizadas.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CitaVeterinaria c SET c.veterinario = :veterinario WHERE c.id IN :ids")
+    int asignarVeterinario(@Param("ids") Collection<Long> ids, @Param("veterinario") Veterinario veterinario);
+
+    @Query("SELECT c FROM CitaVeterinaria c WHERE LOWER(c.motivo) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(c.diagnostico) LIKE LOWER(CONCAT('%', :search, '%'))")
     Page<CitaVeterinaria> findBySearch(@Param("search") String search, Pageable pageable);
+
+    /**
+     * Filtra las citas por estado. Se resuelve con el índice (estado, fecha_hora).
+     */
+    Page<CitaVeterinaria> findByEstado(EstadoCita estado, Pageable pageable);
+
+    /**
+     * Búsqueda de texto restringida a un estado concreto.
+     */
+    @Query("SELECT c FROM CitaVeterinaria c WHERE c.estado = :estado AND (LOWER(c.motivo) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(c.diagnostico) LIKE LOWER(CONCAT('%', :search, '%')))")
+    Page<CitaVeterinaria> findBySearchAndEstado(@Param("search") String search,
+            @Param("estado") EstadoCita estado,
+            Pageable pageable);
+
+    /**
+     * Número de citas por estado (filas [EstadoCita, Long]).
+     * El GROUP BY recorre solo el índice (estado, fecha_hora), sin leer la tabla.
+     */
+    @Query("SELECT c.estado, COUNT(c) FROM CitaVeterinaria c GROUP BY c.estado")
+    List<Object[]> contarPorEstado();
+
+    /**
+     * Recorre todas las citas con un cursor de solo lectura para la exportación.
+     * El Stream debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaExportDTO(c.id, c.fechaHora, c.motivo, c.diagnostico, c.estado, m.id, m.nombre, m.cliente.id, v.id, CONCAT(v.nombre, ' ', v.apellidos), "
+            + "(SELECT COALESCE(SUM(t.precio), 0.0) FROM Tratamiento t WHERE t.cita = c)) "
+            + "FROM CitaVeterinaria c JOIN c.mascota m LEFT JOIN c.veterinario v ORDER BY c.id")
+    Stream<CitaExportDTO> streamExportacion();
+
+    /**
+     * Carga varias citas por ID en una sola consulta IN, con mascota y
+     * veterinario (JOIN FETCH). Los tratamientos se cargan por lotes
+     * (@BatchSize en CitaVeterinaria.tratamientos).
+     */
+    @EntityGraph(attributePaths = { "mascota", "veterinario" })
+    List<CitaVeterinaria> findAllByIdIn(Collection<Long> ids);
 }
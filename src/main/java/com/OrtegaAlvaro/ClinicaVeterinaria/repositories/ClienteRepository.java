@@ -1,7 +1,12 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.repositories;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ClienteDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Cliente;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.hibernate.jpa.HibernateHints;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -10,6 +15,7 @@ import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio de persistencia para la entidad Cliente.
@@ -45,4 +51,43 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
 
     @Query("SELECT c FROM Cliente c WHERE LOWER(c.nombre) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(c.apellidos) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(c.dni) LIKE LOWER(CONCAT('%', :search, '%'))")
     Page<Cliente> findBySearch(@Param("search") String search, Pageable pageable);
+
+    /**
+     * Borra el cliente con una única sentencia DELETE.
+     * Las mascotas, series, citas, tratamientos y el usuario asociado se eliminan
+     * en la propia base de datos mediante las claves foráneas ON DELETE CASCADE,
+     * sin cargar el grafo de entidades en memoria.
+     *
+     * @param id Identificador del cliente.
+     * @return Número de clientes borrados (0 o 1).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Cliente c WHERE c.id = :id")
+    int borrarEnCascada(@Param("id") Long id);
+
+    /**
+     * Recorre todos los clientes con un cursor de solo lectura para la
+     * exportación.
+     * El Stream debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.ClienteDTO(c.id, c.nombre, c.apellidos, c.dni, c.telefono, CAST(NULL AS String), c.direccion, c.email) "
+            + "FROM Cliente c ORDER BY c.id")
+    Stream<ClienteDTO> streamExportacion();
+
+    /**
+     * Todos los DNI registrados. Se carga una sola vez al inicio de una
+     * importación masiva para detectar duplicados en memoria.
+     */
+    @Query("SELECT c.dni FROM Cliente c")
+    List<String> findAllDni();
+
+    /**
+     * Pares (DNI, ID) de todos los clientes, para resolver el propietario de las
+     * mascotas importadas sin una consulta por línea.
+     */
+    @Query("SELECT c.dni, c.id FROM Cliente c")
+    List<Object[]> findAllDniConId();
 }
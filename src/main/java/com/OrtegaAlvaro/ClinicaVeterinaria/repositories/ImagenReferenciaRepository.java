@@ -0,0 +1,76 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.repositories;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.ImagenReferencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.hibernate.jpa.HibernateHints;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio de los contadores de referencias de las imágenes almacenadas.
+ * Todas las modificaciones son sentencias atómicas que bloquean la fila, de
+ * modo que una subida y un borrado simultáneos del mismo contenido se
+ * ejecutan en serie.
+ */
+@Repository
+public interface ImagenReferenciaRepository extends JpaRepository<ImagenReferencia, String> {
+
+    /**
+     * Suma una referencia al fichero, creando su registro si es la primera.
+     *
+     * @return 1 si se ha creado el registro, 2 si ya existía (convención de
+     *         MariaDB para INSERT ... ON DUPLICATE KEY UPDATE).
+     */
+    @Modifying
+    // Sin declarar la tabla afectada, Hibernate vaciaría toda la caché de
+    // segundo nivel en cada sentencia nativa
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "imagen_ref"))
+    @Query(value = "INSERT INTO imagen_ref (nombre, referencias, tamano, creada, usada) VALUES (:nombre, 1, :tamano, NOW(), NOW()) "
+            + "ON DUPLICATE KEY UPDATE referencias = referencias + 1, usada = NOW()", nativeQuery = true)
+    int sumarReferencia(@Param("nombre") String nombre, @Param("tamano") long tamano);
+
+    /**
+     * Resta una referencia al fichero.
+     *
+     * @return Filas modificadas (0 si el fichero no está registrado).
+     */
+    @Modifying
+    @Query("UPDATE ImagenReferencia i SET i.referencias = i.referencias - 1 WHERE i.nombre = :nombre AND i.referencias > 0")
+    int restarReferencia(@Param("nombre") String nombre);
+
+    /**
+     * Elimina el registro si ya no le quedan referencias.
+     *
+     * @return 1 si se ha eliminado (y el fichero puede borrarse), 0 si no.
+     */
+    @Modifying
+    @Query("DELETE FROM ImagenReferencia i WHERE i.nombre = :nombre AND i.referencias = 0")
+    int eliminarSinReferencias(@Param("nombre") String nombre);
+
+    /**
+     * Elimina el registro de una imagen que ninguna mascota usa, salvo que se
+     * le haya sumado una referencia después de 'limite' (una subida en curso
+     * cuya mascota aún no se ha guardado).
+     *
+     * @return 1 si se ha eliminado, 0 si no existe o se ha usado hace poco.
+     */
+    @Modifying
+    @Query("DELETE FROM ImagenReferencia i WHERE i.nombre = :nombre AND i.usada < :limite")
+    int eliminarHuerfana(@Param("nombre") String nombre, @Param("limite") LocalDateTime limite);
+
+    /**
+     * Totales del almacén: ficheros, referencias, bytes en disco y bytes que
+     * ocuparían sin deduplicar.
+     * Devuelve una única fila {Long, Long, Long, Long}.
+     */
+    @Query("SELECT COUNT(i), COALESCE(SUM(i.referencias), 0), COALESCE(SUM(i.tamano), 0), "
+            + "COALESCE(SUM(i.tamano * i.referencias), 0) FROM ImagenReferencia i")
+    List<Object[]> totales();
+}
@@ -1,14 +1,21 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.repositories;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenMascotaDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.hibernate.jpa.HibernateHints;
+import jakarta.persistence.QueryHint;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repositorio de persistencia para la entidad Mascota.
@@ -40,4 +47,47 @@ public interface MascotaRepository extends JpaRepository<Mascota, Long> {
 
     @Query("SELECT m FROM Mascota m WHERE LOWER(m.nombre) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(m.especie) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(m.raza) LIKE LOWER(CONCAT('%', :search, '%'))")
     Page<Mascota> findBySearch(@Param("search") String search, Pageable pageable);
+
+    /**
+     * Rutas de las imágenes de todas las mascotas de un cliente.
+     * Se consultan antes de un borrado en cascada para poder limpiar los
+     * ficheros del disco tras el commit.
+     *
+     * @param clienteId Identificador del propietario.
+     * @return URLs de imagen no nulas.
+     */
+    @Query("SELECT m.imagenUrl FROM Mascota m WHERE m.cliente.id = :clienteId AND m.imagenUrl IS NOT NULL")
+    List<String> findImagenesDeCliente(@Param("clienteId") Long clienteId);
+
+    /**
+     * IDs de las mascotas de un cliente, para descartarlas de la caché de
+     * segundo nivel tras un borrado en cascada.
+     */
+    @Query("SELECT m.id FROM Mascota m WHERE m.cliente.id = :clienteId")
+    List<Long> findIdsDeCliente(@Param("clienteId") Long clienteId);
+
+    /**
+     * Recorre las URLs de imagen de todas las mascotas con un cursor de solo
+     * lectura, para la limpieza de imágenes huérfanas.
+     * El Stream debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("SELECT m.imagenUrl FROM Mascota m WHERE m.imagenUrl IS NOT NULL")
+    Stream<String> streamImagenes();
+
+    /**
+     * Mascotas de un cliente para su resumen, como proyección sin entidades.
+     */
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenMascotaDTO(m.id, m.nombre, m.especie, m.raza, m.fechaNacimiento, m.peso, m.imagenUrl) "
+            + "FROM Mascota m WHERE m.cliente.id = :clienteId ORDER BY m.nombre, m.id")
+    List<ResumenMascotaDTO> findResumenByClienteId(@Param("clienteId") Long clienteId);
+
+    /**
+     * Carga varias mascotas por ID en una sola consulta IN, con su propietario
+     * (JOIN FETCH) para construir los DTO sin consultas adicionales.
+     */
+    @EntityGraph(attributePaths = "cliente")
+    List<Mascota> findAllByIdIn(Collection<Long> ids);
 }
@@ -0,0 +1,24 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.repositories;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.SerieCita;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio de persistencia para las series de citas periódicas.
+ */
+@Repository
+public interface SerieCitaRepository extends JpaRepository<SerieCita, Long> {
+
+    /**
+     * Desvincula de un veterinario todas sus series en una única sentencia.
+     *
+     * @return Número de series desvinculadas.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE SerieCita s SET s.veterinario = NULL WHERE s.veterinario.id = :veterinarioId")
+    int desvincularVeterinario(@Param("veterinarioId") Long veterinarioId);
+}
@@ -1,14 +1,21 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.repositories;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenTratamientoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.TratamientoDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Tratamiento;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.hibernate.jpa.HibernateHints;
+import jakarta.persistence.QueryHint;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repositorio de persistencia para la entidad Tratamiento.
@@ -55,6 +62,34 @@ public interface TratamientoRepository extends JpaRepository<Tratamiento, Long>
      */
     List<Tratamiento> findByCitaMascotaClienteId(Long clienteId);
 
+    /**
+     * Tratamientos de todas las citas de un cliente para su resumen.
+     * Las uniones recorren las claves ajenas sin cargar citas ni mascotas.
+     */
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenTratamientoDTO(t.id, c.id, t.descripcion, t.medicamento, t.precio, t.observaciones) "
+            + "FROM Tratamiento t JOIN t.cita c JOIN c.mascota m WHERE m.cliente.id = :clienteId ORDER BY t.id")
+    List<ResumenTratamientoDTO> findResumenByClienteId(@Param("clienteId") Long clienteId);
+
+    /**
+     * Tratamientos de un conjunto de citas en una sola consulta IN, para
+     * completar una página de historial.
+     */
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenTratamientoDTO(t.id, t.cita.id, t.descripcion, t.medicamento, t.precio, t.observaciones) "
+            + "FROM Tratamiento t WHERE t.cita.id IN :citaIds ORDER BY t.id")
+    List<ResumenTratamientoDTO> findResumenByCitaIdIn(@Param("citaIds") Collection<Long> citaIds);
+
     @Query("SELECT t FROM Tratamiento t WHERE LOWER(t.descripcion) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(t.medicamento) LIKE LOWER(CONCAT('%', :search, '%'))")
     Page<Tratamiento> findBySearch(@Param("search") String search, Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Recorre todos los tratamientos con un cursor de solo lectura para la
+     * exportación.
+     * El Stream debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("SELECT new com.OrtegaAlvaro.ClinicaVeterinaria.dto.TratamientoDTO(t.id, t.descripcion, t.medicamento, t.precio, t.observaciones, t.cita.id) "
+            + "FROM Tratamiento t ORDER BY t.id")
+    Stream<TratamientoDTO> streamExportacion();
+}
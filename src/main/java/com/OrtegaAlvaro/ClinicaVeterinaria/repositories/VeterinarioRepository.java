@@ -1,7 +1,9 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.repositories;
 
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Veterinario;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -9,6 +11,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio de persistencia para la entidad Veterinario.
@@ -41,6 +44,33 @@ public interface VeterinarioRepository extends JpaRepository<Veterinario, Long>
      */
     List<Veterinario> findByApellidosContainingIgnoreCase(String apellidos);
 
+    /**
+     * Bloquea la fila del veterinario (SELECT ... FOR UPDATE) hasta el final de
+     * la transacción en curso.
+     * Serializa las reservas concurrentes sobre la agenda de un mismo profesional
+     * aunque lleguen desde instancias distintas de la aplicación.
+     *
+     * @param id Identificador del veterinario.
+     * @return El veterinario bloqueado, si existe.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM Veterinario v WHERE v.id = :id")
+    Optional<Veterinario> bloquearParaReserva(@Param("id") Long id);
+
+    /**
+     * Bloquea, en orden de ID, la fila de un veterinario junto con las de todos
+     * los profesionales de una especialidad.
+     * Tomar los cerrojos siempre en el mismo orden evita interbloqueos entre
+     * reasignaciones concurrentes.
+     *
+     * @param id           Veterinario de origen.
+     * @param especialidad Especialidad de los veterinarios candidatos.
+     * @return Veterinarios bloqueados, ordenados por ID.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM Veterinario v WHERE v.id = :id OR v.especialidad = :especialidad ORDER BY v.id")
+    List<Veterinario> bloquearEquipo(@Param("id") Long id, @Param("especialidad") String especialidad);
+
     @Query("SELECT v FROM Veterinario v WHERE LOWER(v.nombre) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(v.apellidos) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(v.especialidad) LIKE LOWER(CONCAT('%', :search, '%'))")
     Page<Veterinario> findBySearch(@Param("search") String search, Pageable pageable);
 }
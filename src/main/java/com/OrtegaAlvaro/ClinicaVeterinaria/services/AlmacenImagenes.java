@@ -0,0 +1,65 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Almacén donde se guardan los ficheros de imagen (originales y variantes),
+ * identificados solo por su nombre.
+ * Hay dos implementaciones, elegidas con imagenes.almacen.tipo (ver
+ * AlmacenConfig):
+ * - local: disco local repartido en subdirectorios por prefijo del nombre.
+ * - s3: cualquier servicio compatible con S3, compartido entre varios nodos.
+ * En ambos casos las imágenes se sirven desde una copia en disco local, para
+ * poder usar sendfile y generar las variantes con ImageIO.
+ */
+public interface AlmacenImagenes {
+
+    /**
+     * Fichero guardado en el almacén, tal como aparece al recorrerlo.
+     *
+     * @param modificado Fecha de la última escritura.
+     */
+    record Fichero(String nombre, long tamano, Instant modificado) {
+    }
+
+    /**
+     * Indica si existe una imagen con ese nombre. Es la comprobación fiable
+     * que se usa para deduplicar las subidas.
+     */
+    boolean existe(String nombre) throws IOException;
+
+    /**
+     * Guarda un fichero local con el nombre indicado, sustituyendo al anterior
+     * si existía. El fichero de origen se mueve: tras la llamada ya no está en
+     * su ruta original.
+     *
+     * @param nombre Nombre de la imagen en el almacén.
+     * @param origen Fichero en el mismo sistema de ficheros que upload.dir.
+     */
+    void guardar(String nombre, Path origen) throws IOException;
+
+    /**
+     * Localiza una copia local de la imagen para leerla.
+     *
+     * @return La ruta en disco, o vacío si la imagen no existe.
+     */
+    Optional<Path> buscar(String nombre) throws IOException;
+
+    /**
+     * Borra la imagen si existe.
+     */
+    void borrar(String nombre) throws IOException;
+
+    /**
+     * Recorre todos los ficheros del almacén (originales y variantes) sin
+     * cargar el listado completo en memoria. Los ficheros internos
+     * (temporales, copias locales) no se incluyen.
+     * El Stream debe cerrarse al terminar; los errores de lectura durante el
+     * recorrido se lanzan como UncheckedIOException.
+     */
+    Stream<Fichero> listar() throws IOException;
+}
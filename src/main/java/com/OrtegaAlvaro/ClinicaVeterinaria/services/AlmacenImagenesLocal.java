@@ -0,0 +1,119 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Almacén de imágenes en disco local.
+ * Cada fichero se guarda en dos niveles de subdirectorios tomados de los
+ * cuatro primeros caracteres de su nombre (abcdef....jpg → ab/cd/abcdef....jpg),
+ * de modo que ningún directorio acumula más de unos pocos cientos de
+ * ficheros. Como los nombres empiezan por el SHA-256 del contenido (o por un
+ * UUID en las imágenes antiguas) el reparto es uniforme, y las variantes
+ * ({nombre}-thumb.jpg) caen en el mismo directorio que su original.
+ * Los ficheros de la estructura plana anterior (directamente en upload.dir) se
+ * siguen encontrando mientras MigracionAlmacenService los mueve.
+ */
+public class AlmacenImagenesLocal implements AlmacenImagenes {
+
+    /** Subdirectorio para nombres que no empiezan por cuatro dígitos hexadecimales. */
+    private static final String SIN_PREFIJO = "otros";
+
+    private final Path raiz;
+
+    public AlmacenImagenesLocal(Path raiz) {
+        this.raiz = raiz;
+    }
+
+    @Override
+    public boolean existe(String nombre) throws IOException {
+        return buscar(nombre).isPresent();
+    }
+
+    @Override
+    public void guardar(String nombre, Path origen) throws IOException {
+        Path destino = fragmentar(raiz, nombre);
+        Files.createDirectories(destino.getParent());
+        Files.move(origen, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public Optional<Path> buscar(String nombre) throws IOException {
+        Path ruta = fragmentar(raiz, nombre);
+        if (Files.isRegularFile(ruta)) {
+            return Optional.of(ruta);
+        }
+        Path plana = raiz.resolve(nombre);
+        if (Files.isRegularFile(plana)) {
+            return Optional.of(plana);
+        }
+        // La migración puede haberlo movido entre las dos comprobaciones
+        return Files.isRegularFile(ruta) ? Optional.of(ruta) : Optional.empty();
+    }
+
+    @Override
+    public void borrar(String nombre) throws IOException {
+        Files.deleteIfExists(fragmentar(raiz, nombre));
+        Files.deleteIfExists(raiz.resolve(nombre));
+    }
+
+    @Override
+    public Stream<Fichero> listar() throws IOException {
+        // Primer nivel: ficheros de la estructura plana y directorios de
+        // fragmentos; los que empiezan por punto (.tmp, .s3) se ignoran
+        return Files.list(raiz)
+                .filter(ruta -> !ruta.getFileName().toString().startsWith("."))
+                .flatMap(AlmacenImagenesLocal::ficherosBajo);
+    }
+
+    /**
+     * Ruta de un fichero dentro de la estructura de dos niveles bajo 'raiz'.
+     */
+    static Path fragmentar(Path raiz, String nombre) {
+        String prefijo = nombre.length() >= 4 ? nombre.substring(0, 4).toLowerCase(Locale.ROOT) : "";
+        if (!prefijo.matches("[0-9a-f]{4}")) {
+            return raiz.resolve(SIN_PREFIJO).resolve(nombre);
+        }
+        return raiz.resolve(prefijo.substring(0, 2)).resolve(prefijo.substring(2, 4)).resolve(nombre);
+    }
+
+    /**
+     * Ficheros visibles bajo una ruta (ella misma si es un fichero). Los que
+     * desaparecen durante el recorrido se omiten.
+     */
+    static Stream<Fichero> ficherosBajo(Path ruta) {
+        try {
+            return Files.walk(ruta)
+                    .filter(f -> !f.getFileName().toString().startsWith("."))
+                    .map(AlmacenImagenesLocal::leerFichero)
+                    .flatMap(Optional::stream);
+        } catch (NoSuchFileException ex) {
+            return Stream.empty();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static Optional<Fichero> leerFichero(Path ruta) {
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(ruta, BasicFileAttributes.class);
+            if (!atributos.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new Fichero(ruta.getFileName().toString(), atributos.size(),
+                    atributos.lastModifiedTime().toInstant()));
+        } catch (NoSuchFileException ex) {
+            return Optional.empty();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Almacén de imágenes en un bucket compatible con S3 (AWS, MinIO,
+ * LocalStack...), compartido por todos los nodos de la aplicación.
+ * Cada nodo guarda en disco una copia de las imágenes que sirve, con la misma
+ * estructura de dos niveles que el almacén local, y la descarga del bucket la
+ * primera vez que se pide. Como el contenido de un nombre no cambia nunca
+ * (es su hash), la copia no puede quedar desactualizada, pero sí sobrar: otro
+ * nodo puede haber borrado la imagen. Por eso cada copia se vuelve a
+ * comprobar en el bucket (HEAD) si hace más de 'revalidacion' que no se
+ * comprueba, y se borra si ya no está.
+ * Las copias ocupan como máximo 'maxBytesCopias': al superarlo se borran las
+ * menos usadas.
+ * Las imágenes que aún están en la estructura plana antigua de upload.dir se
+ * siguen sirviendo desde ahí hasta que MigracionAlmacenService las sube.
+ */
+public class AlmacenImagenesS3 implements AlmacenImagenes {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlmacenImagenesS3.class);
+
+    private final S3Client s3;
+
+    private final String bucket;
+
+    private final Path raizPlana;
+
+    private final Path copiasLocales;
+
+    private final Duration revalidacion;
+
+    /**
+     * Copias locales de este nodo. Al expulsar una entrada por tamaño se borra
+     * su fichero.
+     */
+    private final Cache<String, Copia> copias;
+
+    /**
+     * @param comprobada Última vez que se vio en el bucket.
+     */
+    private record Copia(long tamano, Instant comprobada) {
+    }
+
+    /**
+     * Nombres que no estaban en el bucket hace poco. Evita una petición al
+     * bucket cada vez que se pide una variante que no se genera (originales
+     * ya pequeños).
+     */
+    private final Cache<String, Boolean> ausentes = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .maximumSize(10_000)
+            .build();
+
+    /**
+     * @param raizPlana     Directorio de subidas (estructura plana antigua).
+     * @param copiasLocales Directorio de las copias locales; debe estar en el
+     *                      mismo sistema de ficheros que los temporales de
+     *                      subida. Las copias que ya tenga (de una ejecución
+     *                      anterior) se cuentan en el máximo y se comprueban
+     *                      la primera vez que se sirven.
+     * @param maxBytesCopias Espacio máximo de las copias locales.
+     * @param revalidacion   Tiempo que se sirve una copia sin volver a
+     *                       comprobar que sigue en el bucket.
+     */
+    public AlmacenImagenesS3(S3Client s3, String bucket, Path raizPlana, Path copiasLocales, long maxBytesCopias,
+            Duration revalidacion) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.raizPlana = raizPlana;
+        this.copiasLocales = copiasLocales;
+        this.revalidacion = revalidacion;
+        this.copias = Caffeine.newBuilder()
+                .maximumWeight(maxBytesCopias)
+                .weigher((String nombre, Copia copia) -> (int) Math.min(copia.tamano(), Integer.MAX_VALUE))
+                // Se ejecuta con la entrada bloqueada: una descarga simultánea
+                // del mismo nombre no puede colocar su copia entre medias
+                .evictionListener((String nombre, Copia copia, RemovalCause causa) -> borrarCopia(nombre))
+                // Las expulsiones (y sus borrados) se hacen en el hilo que guarda la
+                // copia, no en el pool común
+                .executor(Runnable::run)
+                .build();
+        registrarCopiasExistentes();
+    }
+
+    @Override
+    public boolean existe(String nombre) throws IOException {
+        if (Files.isRegularFile(raizPlana.resolve(nombre))) {
+            return true;
+        }
+        // Se pregunta siempre al bucket: la copia local de este nodo puede
+        // seguir ahí aunque otro nodo ya haya borrado la imagen
+        return enBucket(nombre);
+    }
+
+    @Override
+    public void guardar(String nombre, Path origen) throws IOException {
+        try {
+            s3.putObject(b -> b.bucket(bucket).key(nombre), RequestBody.fromFile(origen));
+        } catch (SdkException ex) {
+            throw new IOException("No se pudo subir la imagen " + nombre + " al bucket", ex);
+        }
+        ausentes.invalidate(nombre);
+        // El fichero subido se queda como copia local
+        Path copia = AlmacenImagenesLocal.fragmentar(copiasLocales, nombre);
+        Files.createDirectories(copia.getParent());
+        Files.move(origen, copia, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        copias.put(nombre, new Copia(Files.size(copia), Instant.now()));
+    }
+
+    @Override
+    public Optional<Path> buscar(String nombre) throws IOException {
+        Path copia = AlmacenImagenesLocal.fragmentar(copiasLocales, nombre);
+        if (Files.isRegularFile(copia)) {
+            return vigente(nombre, copia) ? Optional.of(copia) : Optional.empty();
+        }
+        Path plana = raizPlana.resolve(nombre);
+        if (Files.isRegularFile(plana)) {
+            return Optional.of(plana);
+        }
+        if (ausentes.getIfPresent(nombre) != null) {
+            return Optional.empty();
+        }
+        return descargar(nombre, copia);
+    }
+
+    @Override
+    public void borrar(String nombre) throws IOException {
+        try {
+            s3.deleteObject(b -> b.bucket(bucket).key(nombre));
+        } catch (SdkException ex) {
+            throw new IOException("No se pudo borrar la imagen " + nombre + " del bucket", ex);
+        }
+        copias.invalidate(nombre);
+        Files.deleteIfExists(AlmacenImagenesLocal.fragmentar(copiasLocales, nombre));
+        Files.deleteIfExists(raizPlana.resolve(nombre));
+    }
+
+    /**
+     * Objetos del bucket, página a página (1000 por petición), seguidos de los
+     * ficheros que quedan en la estructura plana antigua.
+     */
+    @Override
+    public Stream<Fichero> listar() throws IOException {
+        Stream<Fichero> objetos = s3.listObjectsV2Paginator(b -> b.bucket(bucket)).contents().stream()
+                .map(o -> new Fichero(o.key(), o.size(), o.lastModified()));
+        Stream<Fichero> planos = Files.list(raizPlana)
+                .filter(ruta -> !ruta.getFileName().toString().startsWith(".") && Files.isRegularFile(ruta))
+                .flatMap(AlmacenImagenesLocal::ficherosBajo);
+        return Stream.concat(objetos, planos);
+    }
+
+    /**
+     * Crea el bucket si no existe (útil con un servicio S3 local de pruebas).
+     */
+    public void crearBucketSiFalta() {
+        try {
+            s3.headBucket(b -> b.bucket(bucket));
+        } catch (S3Exception ex) {
+            if (ex.statusCode() != 404) {
+                throw ex;
+            }
+            s3.createBucket(b -> b.bucket(bucket));
+        }
+    }
+
+    /**
+     * Descarga la imagen a un temporal y la mueve de forma atómica a su sitio,
+     * para que nunca se sirva una copia a medias. Si dos peticiones la
+     * descargan a la vez, la segunda simplemente sustituye a la primera.
+     */
+    private Optional<Path> descargar(String nombre, Path copia) throws IOException {
+        Files.createDirectories(copia.getParent());
+        Path temporal = copia.resolveSibling(".descarga-" + UUID.randomUUID() + ".tmp");
+        try {
+            s3.getObject(b -> b.bucket(bucket).key(nombre), ResponseTransformer.toFile(temporal));
+            Files.move(temporal, copia, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            copias.put(nombre, new Copia(Files.size(copia), Instant.now()));
+            return Optional.of(copia);
+        } catch (S3Exception ex) {
+            if (ex.statusCode() == 404) {
+                ausentes.put(nombre, Boolean.TRUE);
+                return Optional.empty();
+            }
+            throw new IOException("No se pudo descargar la imagen " + nombre + " del bucket", ex);
+        } catch (SdkException ex) {
+            throw new IOException("No se pudo descargar la imagen " + nombre + " del bucket", ex);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Indica si la copia local se puede servir: se ha comprobado hace poco o
+     * el bucket confirma que la imagen sigue ahí. Si ya no está se borra.
+     * Si el bucket no responde se sirve la copia (su contenido es correcto;
+     * como mucho, la imagen ya no se usa).
+     */
+    private boolean vigente(String nombre, Path copia) throws IOException {
+        Copia registrada = copias.getIfPresent(nombre);
+        Instant ahora = Instant.now();
+        if (registrada != null && registrada.comprobada().plus(revalidacion).isAfter(ahora)) {
+            return true;
+        }
+        try {
+            if (!enBucket(nombre)) {
+                copias.invalidate(nombre);
+                Files.deleteIfExists(copia);
+                ausentes.put(nombre, Boolean.TRUE);
+                return false;
+            }
+        } catch (IOException ex) {
+            logger.warn("No se pudo comprobar la imagen {} en el bucket; se sirve la copia local: {}", nombre,
+                    ex.getMessage());
+            return true;
+        }
+        copias.put(nombre, new Copia(Files.size(copia), ahora));
+        return true;
+    }
+
+    private boolean enBucket(String nombre) throws IOException {
+        try {
+            s3.headObject(b -> b.bucket(bucket).key(nombre));
+            return true;
+        } catch (S3Exception ex) {
+            if (ex.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("No se pudo consultar la imagen " + nombre + " en el bucket", ex);
+        } catch (SdkException ex) {
+            throw new IOException("No se pudo consultar la imagen " + nombre + " en el bucket", ex);
+        }
+    }
+
+    /**
+     * Registra las copias que ya había en disco (sin fecha de comprobación) y
+     * borra las descargas que quedaron a medias.
+     */
+    private void registrarCopiasExistentes() {
+        try (Stream<Path> rutas = Files.walk(copiasLocales)) {
+            rutas.filter(Files::isRegularFile).forEach(ruta -> {
+                String nombre = ruta.getFileName().toString();
+                try {
+                    if (nombre.startsWith(".descarga-")) {
+                        Files.deleteIfExists(ruta);
+                    } else {
+                        copias.put(nombre, new Copia(Files.size(ruta), Instant.EPOCH));
+                    }
+                } catch (IOException ex) {
+                    logger.warn("No se pudo revisar la copia local {}: {}", nombre, ex.getMessage());
+                }
+            });
+        } catch (NoSuchFileException ex) {
+            // Aún no hay copias
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudieron revisar las copias locales de " + copiasLocales, ex);
+        }
+    }
+
+    private void borrarCopia(String nombre) {
+        try {
+            Files.deleteIfExists(AlmacenImagenesLocal.fragmentar(copiasLocales, nombre));
+        } catch (IOException ex) {
+            logger.warn("No se pudo borrar la copia local {}: {}", nombre, ex.getMessage());
+        }
+    }
+}
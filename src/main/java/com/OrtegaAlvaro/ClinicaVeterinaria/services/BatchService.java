@@ -0,0 +1,236 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.BatchPeticionDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.BatchPeticionDTO.Operacion;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.BatchResultadoDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.access.WebInvocationPrivilegeEvaluator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.DispatcherServlet;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Servicio que ejecuta las operaciones de /api/batch contra los controladores
+ * existentes.
+ * Cada operación se despacha al DispatcherServlet con una petición y una
+ * respuesta en memoria, de modo que pasa por los mismos controladores,
+ * validaciones y manejador de excepciones que una llamada normal.
+ * <ul>
+ * <li>Sin transacción: las lecturas (GET) consecutivas se ejecutan a la vez en
+ * hilos virtuales; cada escritura espera a las lecturas anteriores y se ejecuta
+ * sola, respetando el orden de la petición.</li>
+ * <li>Con transacción: todas las operaciones se ejecutan en orden dentro de una
+ * única transacción, que se deshace si alguna falla.</li>
+ * </ul>
+ */
+@Service
+public class BatchService {
+
+    /** Rutas que no pueden incluirse en un batch (streaming, recursión o login). */
+    private static final List<String> RUTAS_EXCLUIDAS = List.of("/api/batch", "/api/export", "/api/import", "/api/auth");
+
+    private static final Set<String> METODOS = Set.of("GET", "POST", "PUT", "DELETE");
+
+    /**
+     * Caracteres admitidos en la ruta (sin la query string). MVC decodifica
+     * '%xx' y elimina los parámetros ';...' antes de enrutar, así que una ruta
+     * como /api/%62atch o /api/batch;x llegaría a /api/batch sin coincidir con
+     * RUTAS_EXCLUIDAS: se rechazan en lugar de intentar normalizarlas.
+     */
+    private static final Pattern RUTA_VALIDA = Pattern.compile("/api/[A-Za-z0-9._~/-]*");
+
+    @Autowired
+    private DispatcherServlet dispatcherServlet;
+
+    @Autowired
+    private WebInvocationPrivilegeEvaluator privilegeEvaluator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${batch.max-operaciones:20}")
+    private int maxOperaciones;
+
+    /**
+     * Número máximo de operaciones por batch.
+     */
+    public int getMaxOperaciones() {
+        return maxOperaciones;
+    }
+
+    /**
+     * Comprueba la forma de cada operación (método soportado y ruta de la API).
+     *
+     * @return Mensaje de error, o null si todas son válidas.
+     */
+    public String validar(BatchPeticionDTO peticion) {
+        if (peticion.getOperaciones().size() > maxOperaciones) {
+            return "Un batch no puede superar las " + maxOperaciones + " operaciones";
+        }
+        for (Operacion op : peticion.getOperaciones()) {
+            String ruta = rutaSinQuery(op.getRuta());
+            if (!METODOS.contains(op.getMetodo().toUpperCase(Locale.ROOT))) {
+                return "Método no soportado en la operación " + op.getId() + ": " + op.getMetodo();
+            }
+            if (!RUTA_VALIDA.matcher(ruta).matches() || ruta.contains("..") || ruta.contains("//")
+                    || RUTAS_EXCLUIDAS.stream().anyMatch(ruta::startsWith)) {
+                return "Ruta no permitida en la operación " + op.getId() + ": " + op.getRuta();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evalúa de una sola vez las reglas de autorización de SecurityConfig para
+     * todas las operaciones, antes de ejecutar ninguna.
+     *
+     * @return IDs de las operaciones denegadas (vacío si todas están permitidas).
+     */
+    public List<String> operacionesDenegadas(BatchPeticionDTO peticion, HttpServletRequest request,
+            Authentication authentication) {
+        List<String> denegadas = new ArrayList<>();
+        for (Operacion op : peticion.getOperaciones()) {
+            if (!privilegeEvaluator.isAllowed(request.getContextPath(), rutaSinQuery(op.getRuta()),
+                    op.getMetodo().toUpperCase(Locale.ROOT), authentication)) {
+                denegadas.add(op.getId());
+            }
+        }
+        return denegadas;
+    }
+
+    /**
+     * Ejecuta todas las operaciones y devuelve sus resultados en el mismo orden.
+     */
+    public List<BatchResultadoDTO> ejecutar(BatchPeticionDTO peticion, HttpServletRequest request,
+            HttpServletResponse response) {
+        return peticion.isTransaccional()
+                ? ejecutarEnTransaccion(peticion.getOperaciones(), request, response)
+                : ejecutarConcurrente(peticion.getOperaciones(), request, response);
+    }
+
+    // --- Métodos auxiliares ---
+
+    private List<BatchResultadoDTO> ejecutarEnTransaccion(List<Operacion> operaciones, HttpServletRequest request,
+            HttpServletResponse response) {
+        List<BatchResultadoDTO> resultados = new ArrayList<>(operaciones.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean fallo = false;
+            for (Operacion op : operaciones) {
+                if (fallo) {
+                    // No se ejecuta: la transacción ya se va a deshacer
+                    resultados.add(new BatchResultadoDTO(op.getId(), HttpStatus.FAILED_DEPENDENCY.value(), null));
+                    continue;
+                }
+                BatchResultadoDTO resultado = despachar(op, request, response);
+                resultados.add(resultado);
+                if (resultado.getStatus() >= 400) {
+                    fallo = true;
+                    status.setRollbackOnly();
+                }
+            }
+        });
+        return resultados;
+    }
+
+    private List<BatchResultadoDTO> ejecutarConcurrente(List<Operacion> operaciones, HttpServletRequest request,
+            HttpServletResponse response) {
+        BatchResultadoDTO[] resultados = new BatchResultadoDTO[operaciones.size()];
+        SecurityContext contexto = SecurityContextHolder.getContext();
+
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> lecturas = new ArrayList<>();
+            for (int i = 0; i < operaciones.size(); i++) {
+                Operacion op = operaciones.get(i);
+                int indice = i;
+                if ("GET".equalsIgnoreCase(op.getMetodo())) {
+                    lecturas.add(hilos.submit(() -> {
+                        SecurityContextHolder.setContext(contexto);
+                        try {
+                            resultados[indice] = despachar(op, request, response);
+                        } finally {
+                            SecurityContextHolder.clearContext();
+                        }
+                    }));
+                } else {
+                    esperar(lecturas);
+                    resultados[indice] = despachar(op, request, response);
+                }
+            }
+            esperar(lecturas);
+        }
+        return Arrays.asList(resultados);
+    }
+
+    private void esperar(List<Future<?>> tareas) {
+        try {
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch interrumpido", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Error al ejecutar una operación del batch", ex.getCause());
+        }
+        tareas.clear();
+    }
+
+    private BatchResultadoDTO despachar(Operacion op, HttpServletRequest request, HttpServletResponse response) {
+        byte[] cuerpo = op.getCuerpo() != null ? objectMapper.writeValueAsBytes(op.getCuerpo()) : null;
+        PeticionInterna peticion = new PeticionInterna(request, op.getMetodo(), op.getRuta(), cuerpo);
+        RespuestaInterna respuesta = new RespuestaInterna(response);
+        try {
+            dispatcherServlet.service(peticion, respuesta);
+        } catch (Exception ex) {
+            return new BatchResultadoDTO(op.getId(), HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                    objectMapper.writeValueAsString(Map.of(
+                            "error", "Error interno del servidor",
+                            "mensaje", String.valueOf(ex.getMessage()))));
+        }
+        return new BatchResultadoDTO(op.getId(), respuesta.getStatus(), cuerpoJson(respuesta));
+    }
+
+    /**
+     * Cuerpo de la operación listo para incrustarse en el JSON del batch: tal
+     * cual si ya es JSON, como cadena si es texto, o null si está vacío.
+     */
+    private String cuerpoJson(RespuestaInterna respuesta) {
+        String cuerpo = respuesta.getCuerpo();
+        if (cuerpo.isEmpty()) {
+            return null;
+        }
+        String tipo = respuesta.getContentType();
+        if (tipo != null && tipo.toLowerCase(Locale.ROOT).contains("json")) {
+            return cuerpo;
+        }
+        return objectMapper.writeValueAsString(cuerpo);
+    }
+
+    private static String rutaSinQuery(String ruta) {
+        int q = ruta.indexOf('?');
+        return q < 0 ? ruta : ruta.substring(0, q);
+    }
+}
@@ -0,0 +1,70 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.exceptions.ConflictoException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bloqueos en memoria por franjas (lock striping) para la agenda de los
+ * veterinarios.
+ * Cada pareja (veterinario, día) se asigna a uno de N cerrojos fijos, de modo
+ * que dos reservas del mismo veterinario en el mismo día se ejecutan en serie
+ * mientras que el resto de reservas sigue en paralelo.
+ */
+@Service
+public class BloqueoAgendaService {
+
+    private final ReentrantLock[] franjas;
+
+    private final long esperaMaximaMs;
+
+    public BloqueoAgendaService(@Value("${citas.bloqueo.franjas:64}") int numFranjas,
+            @Value("${citas.bloqueo.espera-ms:5000}") long esperaMaximaMs) {
+        this.franjas = new ReentrantLock[numFranjas];
+        for (int i = 0; i < numFranjas; i++) {
+            this.franjas[i] = new ReentrantLock();
+        }
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    /**
+     * Ejecuta la acción en exclusión mutua con cualquier otra reserva del mismo
+     * veterinario en el mismo día.
+     * La acción debe incluir su propia transacción para que el cerrojo se libere
+     * después del commit.
+     *
+     * @param veterinarioId Veterinario cuya agenda se modifica.
+     * @param dia           Día de la cita.
+     * @param accion        Operación a ejecutar con el cerrojo adquirido.
+     * @return El resultado de la acción.
+     */
+    public <T> T ejecutar(Long veterinarioId, LocalDate dia, Supplier<T> accion) {
+        ReentrantLock cerrojo = franjas[indice(veterinarioId, dia)];
+        try {
+            if (!cerrojo.tryLock(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                throw new ConflictoException(
+                        "La agenda del veterinario está siendo modificada. Inténtelo de nuevo.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConflictoException("Reserva interrumpida. Inténtelo de nuevo.");
+        }
+        try {
+            return accion.get();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private int indice(Long veterinarioId, LocalDate dia) {
+        int h = Objects.hash(veterinarioId, dia);
+        h ^= (h >>> 16);
+        return Math.floorMod(h, franjas.length);
+    }
+}
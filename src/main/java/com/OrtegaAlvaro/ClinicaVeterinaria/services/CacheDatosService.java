@@ -0,0 +1,134 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CacheDatosDTO;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cachés de DTOs de los servicios (detalle de clientes, mascotas,
+ * veterinarios, citas y tratamientos por ID).
+ * Las cachés guardan DTOs, nunca entidades gestionadas. Cada caché guarda su
+ * propia copia del DTO y a cada petición se le entrega otra (ver obtener), así
+ * que quien lo reciba puede modificarlo sin afectar a las demás.
+ * El CacheManager es transaccional (ver CacheConfig): dentro de una
+ * transacción, invalidar y vaciar se aplican tras el commit y no se aplican
+ * si hace rollback. Además se anotan en la misma transacción para que los
+ * demás nodos descarten sus copias (ver CambioCacheService).
+ */
+@Service
+public class CacheDatosService {
+
+    public static final String CLIENTES = "clientes";
+
+    public static final String MASCOTAS = "mascotas";
+
+    public static final String VETERINARIOS = "veterinarios";
+
+    public static final String CITAS = "citas";
+
+    public static final String TRATAMIENTOS = "tratamientos";
+
+    /**
+     * Todas las cachés de la aplicación, en el orden en que se muestran sus
+     * estadísticas.
+     */
+    public static final List<String> NOMBRES = List.of(ResumenClienteService.CACHE, CLIENTES, MASCOTAS,
+            VETERINARIOS, CITAS, TRATAMIENTOS);
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CambioCacheService cambioCache;
+
+    private final TransactionTemplate lectura;
+
+    public CacheDatosService(PlatformTransactionManager transactionManager) {
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+    }
+
+    /**
+     * Devuelve una copia del DTO guardado en la caché o, si no está, lo carga
+     * y guarda una copia suya. Con el DTO en caché no se abre ninguna
+     * transacción ni se lanza ninguna consulta. Si se llama dentro de una
+     * transacción, la escritura en la caché se aplica tras el commit.
+     *
+     * @param clave  ID del registro.
+     * @param cargar Consulta el DTO (en una transacción de solo lectura); vacío
+     *               si el registro no existe (no se cachea).
+     * @param copiar Copia independiente del DTO (p. ej. ClienteDTO::copia).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> obtener(String nombre, Long clave, Supplier<Optional<T>> cargar,
+            UnaryOperator<T> copiar) {
+        Cache cache = cacheManager.getCache(nombre);
+        if (cache == null) {
+            return cargar.get();
+        }
+        Cache.ValueWrapper guardado = cache.get(clave);
+        if (guardado != null && guardado.get() != null) {
+            return Optional.of(copiar.apply((T) guardado.get()));
+        }
+        Optional<T> cargado = lectura.execute(status -> cargar.get());
+        cargado.ifPresent(dto -> cache.put(clave, copiar.apply(dto)));
+        return cargado;
+    }
+
+    /**
+     * Descarta una entrada.
+     *
+     * @param clave ID del registro (se ignora si es null).
+     */
+    public void invalidar(String nombre, Long clave) {
+        Cache cache = cacheManager.getCache(nombre);
+        if (cache != null && clave != null) {
+            cache.evict(clave);
+            cambioCache.registrar(nombre, clave);
+        }
+    }
+
+    /**
+     * Descarta todas las entradas de las cachés indicadas. Se usa cuando un
+     * cambio afecta a muchos DTOs a la vez (por ejemplo, el nombre de un
+     * veterinario aparece en todas sus citas).
+     */
+    public void vaciar(String... nombres) {
+        for (String nombre : nombres) {
+            Cache cache = cacheManager.getCache(nombre);
+            if (cache != null) {
+                cache.clear();
+                cambioCache.registrar(nombre, null);
+            }
+        }
+    }
+
+    /**
+     * Aciertos, fallos, expulsiones por tamaño o caducidad y elementos de
+     * cada caché desde el arranque.
+     */
+    public List<CacheDatosDTO> estadisticas() {
+        List<CacheDatosDTO> resultado = new ArrayList<>();
+        for (String nombre : NOMBRES) {
+            Cache cache = cacheManager.getCache(nombre);
+            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativa) {
+                CacheStats stats = nativa.stats();
+                resultado.add(new CacheDatosDTO(nombre, stats.hitCount(), stats.missCount(),
+                        stats.requestCount() > 0 ? stats.hitRate() : 0.0, stats.evictionCount(),
+                        nativa.estimatedSize()));
+            }
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,123 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CacheHibernateDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CacheRegionDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Acceso a la caché de segundo nivel de Hibernate (regiones de Veterinario,
+ * Cliente, Mascota y Cliente.mascotas).
+ * Hibernate la mantiene sola en las operaciones normales de JPA; hay que
+ * descartar entradas a mano cuando la base de datos cambia filas por su
+ * cuenta, como en los borrados ON DELETE CASCADE.
+ */
+@Service
+public class CacheHibernateService {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Descarta de la caché las entidades indicadas.
+     * Si hay una transacción en curso se descartan tras el commit, para que una
+     * lectura concurrente no vuelva a cachear las filas antes de que se borren.
+     */
+    public void evictar(Class<?> entidad, Collection<?> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        trasCommit(() -> {
+            jakarta.persistence.Cache cache = entityManagerFactory.getCache();
+            for (Object id : ids) {
+                cache.evict(entidad, id);
+            }
+        });
+    }
+
+    /**
+     * Descarta de la caché una colección de una entidad concreta (por
+     * ejemplo, las mascotas de un cliente), tras el commit si hay transacción.
+     *
+     * @param entidad     Entidad propietaria de la colección.
+     * @param propiedad   Nombre del atributo de la colección.
+     * @param propietario ID de la entidad propietaria.
+     */
+    public void evictarColeccion(Class<?> entidad, String propiedad, Object propietario) {
+        String rol = entidad.getName() + "." + propiedad;
+        trasCommit(() -> sessionFactory().getCache().evictCollectionData(rol, propietario));
+    }
+
+    /**
+     * Descarta todas las entidades de un tipo, o todas las de la caché si
+     * 'entidad' es null. Se usa al aplicar cambios de otros nodos (ver
+     * CambioCacheService), sin esperar a ninguna transacción.
+     */
+    public void evictarTodas(Class<?> entidad) {
+        if (entidad == null) {
+            entityManagerFactory.getCache().evictAll();
+        } else {
+            entityManagerFactory.getCache().evict(entidad);
+        }
+    }
+
+    /**
+     * Descarta la colección indicada de todas las entidades propietarias.
+     */
+    public void evictarColecciones(Class<?> entidad, String propiedad) {
+        sessionFactory().getCache().evictCollectionData(entidad.getName() + "." + propiedad);
+    }
+
+    public CacheHibernateDTO estadisticas() {
+        Statistics stats = sessionFactory().getStatistics();
+        List<CacheRegionDTO> regiones = new ArrayList<>();
+        String[] nombres = stats.getSecondLevelCacheRegionNames();
+        Arrays.sort(nombres);
+        for (String region : nombres) {
+            CacheRegionStatistics r = stats.getDomainDataRegionStatistics(region);
+            if (r != null) {
+                regiones.add(new CacheRegionDTO(region, r.getHitCount(), r.getMissCount(), r.getPutCount(),
+                        tasa(r.getHitCount(), r.getMissCount()), r.getElementCountInMemory()));
+            }
+        }
+        long aciertos = stats.getSecondLevelCacheHitCount();
+        long fallos = stats.getSecondLevelCacheMissCount();
+        return new CacheHibernateDTO(aciertos, fallos, stats.getSecondLevelCachePutCount(), tasa(aciertos, fallos),
+                regiones);
+    }
+
+    // --- Métodos auxiliares ---
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    private static double tasa(long aciertos, long fallos) {
+        long total = aciertos + fallos;
+        return total > 0 ? (double) aciertos / total : 0.0;
+    }
+
+    private static void trasCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
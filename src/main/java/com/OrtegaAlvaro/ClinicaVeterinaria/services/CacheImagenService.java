@@ -0,0 +1,118 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CacheImagenEstadisticasDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Caché en memoria del contenido de las imágenes más pedidas (las del
+ * dashboard y las citas recientes).
+ * Los bytes se guardan fuera del heap en ByteBuffer directos, así que no
+ * añaden presión al recolector, y la política de expulsión es la W-TinyLFU de
+ * Caffeine, que protege las imágenes frecuentes frente a recorridos puntuales.
+ * El tamaño total está limitado por un presupuesto de bytes y las imágenes
+ * grandes no se cachean.
+ */
+@Service
+public class CacheImagenService {
+
+    /**
+     * Contenido de un fichero junto con los datos que identifican la versión
+     * leída.
+     */
+    public record Entrada(ByteBuffer datos, long tamano, long modificado) {
+    }
+
+    /** Por nombre de fichero: es único en el almacén y no depende de dónde esté la copia local. */
+    private final Cache<String, Entrada> cache;
+
+    private final long maxBytes;
+
+    private final long maxBytesEntrada;
+
+    public CacheImagenService(@Value("${imagenes.cache.max-bytes:64MB}") DataSize maxBytes,
+            @Value("${imagenes.cache.max-bytes-entrada:1MB}") DataSize maxBytesEntrada) {
+        this.maxBytes = maxBytes.toBytes();
+        this.maxBytesEntrada = Math.min(maxBytesEntrada.toBytes(), Integer.MAX_VALUE);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(this.maxBytes)
+                .weigher((String nombre, Entrada entrada) -> entrada.datos().capacity())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Devuelve el contenido del fichero desde memoria, leyéndolo del disco si
+     * no está o si ha cambiado desde que se cacheó.
+     *
+     * @param ruta       Fichero a leer.
+     * @param tamano     Tamaño actual del fichero.
+     * @param modificado Fecha de modificación actual (ms).
+     * @return La entrada (su buffer es de solo lectura y debe usarse con
+     *         duplicate()), o null si el fichero supera el tamaño máximo por
+     *         entrada.
+     */
+    public Entrada obtener(Path ruta, long tamano, long modificado) throws IOException {
+        if (tamano > maxBytesEntrada) {
+            return null;
+        }
+        String nombre = ruta.getFileName().toString();
+        Entrada actual = cache.getIfPresent(nombre);
+        if (actual != null && actual.tamano() == tamano && actual.modificado() == modificado) {
+            return actual;
+        }
+        try {
+            // compute(): dos peticiones simultáneas del mismo fichero lo leen una vez
+            return cache.asMap().compute(nombre, (clave, previa) -> {
+                if (previa != null && previa.tamano() == tamano && previa.modificado() == modificado) {
+                    return previa;
+                }
+                return leer(ruta, tamano, modificado);
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Descarta de la caché las imágenes indicadas (por nombre de fichero).
+     */
+    public void invalidar(Iterable<String> nombres) {
+        cache.invalidateAll(nombres);
+    }
+
+    public CacheImagenEstadisticasDTO estadisticas() {
+        CacheStats stats = cache.stats();
+        long bytesUsados = cache.policy().eviction()
+                .map(e -> e.weightedSize().orElse(0L))
+                .orElse(0L);
+        return new CacheImagenEstadisticasDTO(stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), cache.estimatedSize(), bytesUsados, maxBytes, maxBytesEntrada);
+    }
+
+    private static Entrada leer(Path ruta, long tamano, long modificado) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) tamano);
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        buffer.flip();
+        return new Entrada(buffer.asReadOnlyBuffer(), tamano, modificado);
+    }
+}
@@ -0,0 +1,338 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CambiosCacheDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CambioCache;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Cliente;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Veterinario;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CambioCacheRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Mantiene coherentes las cachés en memoria cuando hay varios nodos detrás
+ * del balanceador, sin Redis ni colas de mensajes: la base de datos hace de
+ * canal.
+ * - Cada invalidación (CacheDatosService) se anota en cambio_cache dentro de
+ * la misma transacción que el cambio: si hace rollback, tampoco queda
+ * anotada. Las de una transacción se acumulan sin repetir y se insertan
+ * juntas antes del commit.
+ * - Cada nodo lee periódicamente los cambios con ID mayor que su cursor, por
+ * lotes, y descarta sus copias locales: la caché de Spring indicada y las
+ * entidades correspondientes de la caché de segundo nivel de Hibernate.
+ * - Los IDs se asignan al insertar pero las transacciones confirman en otro
+ * orden, así que un hueco en la numeración puede ser una transacción aún
+ * abierta. Los huecos se vuelven a consultar durante
+ * cache.cambios.espera-huecos-ms antes de darlos por descartados (rollback).
+ * - Las entradas más antiguas que cache.cambios.retencion-minutos se borran.
+ * Un nodo que lleva más tiempo sin leer vacía todas sus cachés.
+ * Las imágenes no pasan por aquí: su nombre es el hash del contenido, así
+ * que una copia en memoria nunca queda desactualizada.
+ */
+@Service
+public class CambioCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CambioCacheService.class);
+
+    /**
+     * Huecos que se siguen como máximo; con más se vacían todas las cachés.
+     */
+    private static final int MAX_HUECOS = 1000;
+
+    @Autowired
+    private CambioCacheRepository cambioRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheHibernateService cacheHibernate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${cache.cambios.activo:true}")
+    private boolean activo;
+
+    @Value("${cache.cambios.tamano-lote:500}")
+    private int tamanoLote;
+
+    @Value("${cache.cambios.espera-huecos-ms:60000}")
+    private long esperaHuecosMs;
+
+    @Value("${cache.cambios.retencion-minutos:60}")
+    private long retencionMinutos;
+
+    /**
+     * Identificador de este nodo: sus propios cambios no se vuelven a aplicar.
+     */
+    private final String nodo = UUID.randomUUID().toString();
+
+    /**
+     * Último ID leído.
+     */
+    private long cursor;
+
+    /**
+     * IDs saltados pendientes de confirmar, con el momento en que se vieron.
+     */
+    private final Map<Long, Instant> huecos = new HashMap<>();
+
+    private Instant ultimaLectura = Instant.now();
+
+    private long aplicados;
+
+    /**
+     * Los cambios anteriores al arranque no interesan: las cachés de este
+     * nodo empiezan vacías.
+     */
+    @PostConstruct
+    void iniciar() {
+        if (activo) {
+            cursor = cambioRepository.ultimoId();
+        }
+    }
+
+    /**
+     * Anota una invalidación para los demás nodos. Debe llamarse dentro de
+     * la transacción que hace el cambio (si no hay, se guarda en una propia).
+     * Dentro de una transacción no se inserta nada hasta antes del commit: una
+     * misma (caché, clave) se anota una sola vez, y las claves de una caché
+     * que también se vacía entera se omiten.
+     *
+     * @param clave ID del registro, o null si se vacía toda la caché.
+     */
+    public void registrar(String cache, Long clave) {
+        if (!activo) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cambioRepository.save(new CambioCache(null, cache, clave, nodo, LocalDateTime.now()));
+            return;
+        }
+        pendientes().anotar(cache, clave);
+    }
+
+    /**
+     * Aplica los cambios hechos por otros nodos desde la última lectura.
+     */
+    @Scheduled(fixedDelayString = "${cache.cambios.intervalo-ms:2000}")
+    public synchronized void sondear() {
+        if (!activo) {
+            return;
+        }
+        Instant ahora = Instant.now();
+        if (Duration.between(ultimaLectura, ahora).toMinutes() >= retencionMinutos) {
+            // Puede que se hayan purgado cambios que este nodo no llegó a leer
+            logger.warn("Sin leer cambios de caché desde {}; se vacían todas las cachés", ultimaLectura);
+            vaciarTodo();
+        }
+
+        revisarHuecos(ahora);
+
+        List<CambioCache> lote;
+        do {
+            lote = cambioRepository.findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(tamanoLote));
+            for (CambioCache cambio : lote) {
+                anotarHuecos(cursor, cambio.getId(), ahora);
+                aplicar(cambio);
+                cursor = cambio.getId();
+            }
+        } while (lote.size() == tamanoLote);
+        ultimaLectura = ahora;
+    }
+
+    /**
+     * Borra por lotes los cambios más antiguos que el periodo de retención.
+     */
+    @Scheduled(fixedDelayString = "${cache.cambios.purga-ms:600000}")
+    public void purgar() {
+        if (!activo) {
+            return;
+        }
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(retencionMinutos);
+        int borrados = 0;
+        int lote;
+        do {
+            lote = transactionTemplate.execute(status -> cambioRepository.borrarAnteriores(limite, tamanoLote));
+            borrados += lote;
+        } while (lote == tamanoLote);
+        if (borrados > 0) {
+            logger.debug("Purgados {} cambios de caché anteriores a {}", borrados, limite);
+        }
+    }
+
+    public synchronized CambiosCacheDTO estado() {
+        return new CambiosCacheDTO(nodo, activo, cursor, huecos.size(), aplicados, ultimaLectura);
+    }
+
+    // --- Métodos auxiliares ---
+
+    /**
+     * Vuelve a buscar los IDs saltados (transacciones que estaban abiertas) y
+     * olvida los que llevan demasiado tiempo sin aparecer.
+     */
+    private void revisarHuecos(Instant ahora) {
+        if (huecos.isEmpty()) {
+            return;
+        }
+        for (CambioCache cambio : cambioRepository.findAllById(huecos.keySet())) {
+            aplicar(cambio);
+            huecos.remove(cambio.getId());
+        }
+        Instant limite = ahora.minusMillis(esperaHuecosMs);
+        huecos.values().removeIf(visto -> visto.isBefore(limite));
+    }
+
+    private void anotarHuecos(long anterior, long siguiente, Instant ahora) {
+        long saltados = siguiente - anterior - 1;
+        if (saltados <= 0) {
+            return;
+        }
+        if (huecos.size() + saltados > MAX_HUECOS) {
+            // Salto anómalo de la numeración: no merece la pena seguirlo
+            logger.warn("Salto de {} IDs en cambio_cache; se vacían todas las cachés", saltados);
+            huecos.clear();
+            vaciarTodo();
+            return;
+        }
+        for (long id = anterior + 1; id < siguiente; id++) {
+            huecos.putIfAbsent(id, ahora);
+        }
+    }
+
+    /**
+     * Descarta las copias locales afectadas por un cambio de otro nodo. Se
+     * usa el CacheManager directamente (no CacheDatosService) para no volver
+     * a anotar el cambio.
+     */
+    private void aplicar(CambioCache cambio) {
+        if (nodo.equals(cambio.getNodo())) {
+            return;
+        }
+        Long clave = cambio.getClave();
+        Cache cache = cacheManager.getCache(cambio.getCache());
+        if (cache != null) {
+            if (clave != null) {
+                cache.evict(clave);
+            } else {
+                cache.clear();
+            }
+        }
+
+        switch (cambio.getCache()) {
+            case CacheDatosService.CLIENTES -> evictarEntidad(Cliente.class, clave);
+            case CacheDatosService.VETERINARIOS -> evictarEntidad(Veterinario.class, clave);
+            case CacheDatosService.MASCOTAS -> {
+                evictarEntidad(Mascota.class, clave);
+                // La mascota puede haber cambiado de dueño
+                cacheHibernate.evictarColecciones(Cliente.class, "mascotas");
+            }
+            case ResumenClienteService.CACHE -> {
+                // Altas de mascotas (p. ej. importaciones) del cliente
+                if (clave != null) {
+                    cacheHibernate.evictarColeccion(Cliente.class, "mascotas", clave);
+                } else {
+                    cacheHibernate.evictarColecciones(Cliente.class, "mascotas");
+                }
+            }
+            default -> {
+            }
+        }
+        aplicados++;
+    }
+
+    private void evictarEntidad(Class<?> entidad, Long clave) {
+        if (clave != null) {
+            cacheHibernate.evictar(entidad, List.of(clave));
+        } else {
+            cacheHibernate.evictarTodas(entidad);
+        }
+    }
+
+    private void vaciarTodo() {
+        for (String nombre : CacheDatosService.NOMBRES) {
+            Cache cache = cacheManager.getCache(nombre);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        cacheHibernate.evictarTodas(null);
+    }
+
+    /**
+     * Cambios de la transacción en curso, registrados como sincronización
+     * para que una transacción anidada (REQUIRES_NEW) tenga los suyos.
+     */
+    private Pendientes pendientes() {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sincronizacion instanceof Pendientes propios && propios.servicio() == this) {
+                return propios;
+            }
+        }
+        Pendientes nuevos = new Pendientes();
+        TransactionSynchronizationManager.registerSynchronization(nuevos);
+        return nuevos;
+    }
+
+    private record Clave(String cache, Long clave) {
+    }
+
+    /**
+     * Invalidaciones de una transacción, sin repetir y en orden de llegada.
+     */
+    private class Pendientes implements TransactionSynchronization {
+
+        private final Set<Clave> claves = new LinkedHashSet<>();
+
+        void anotar(String cache, Long clave) {
+            claves.add(new Clave(cache, clave));
+        }
+
+        CambioCacheService servicio() {
+            return CambioCacheService.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            Set<String> vaciadas = new HashSet<>();
+            for (Clave c : claves) {
+                if (c.clave() == null) {
+                    vaciadas.add(c.cache());
+                }
+            }
+            LocalDateTime ahora = LocalDateTime.now();
+            List<CambioCache> cambios = new ArrayList<>();
+            for (Clave c : claves) {
+                if (c.clave() == null || !vaciadas.contains(c.cache())) {
+                    cambios.add(new CambioCache(null, c.cache(), c.clave(), nodo, ahora));
+                }
+            }
+            cambioRepository.saveAll(cambios);
+            claves.clear();
+        }
+    }
+}
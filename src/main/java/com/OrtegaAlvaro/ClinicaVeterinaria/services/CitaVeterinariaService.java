@@ -1,15 +1,41 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.services;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaCalendarioDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaVeterinariaDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.HistorialPaginaDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenCitaDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenTratamientoDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CitaVeterinaria;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
+import com.OrtegaAlvaro.ClinicaVeterinaria.exceptions.ConflictoException;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CitaVeterinariaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.TratamientoRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.VeterinarioRepository;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 /**
  * Servicio de lógica de negocio para la gestión de Citas Veterinarias.
@@ -23,6 +49,30 @@ public class CitaVeterinariaService {
     @Autowired
     private CitaVeterinariaRepository citaRepository;
 
+    @Autowired
+    private VeterinarioRepository veterinarioRepository;
+
+    @Autowired
+    private TratamientoRepository tratamientoRepository;
+
+    @Autowired
+    private BloqueoAgendaService bloqueoAgenda;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    @Autowired
+    private CacheDatosService cacheDatos;
+
+    /**
+     * Duración que ocupa cada cita en la agenda del veterinario.
+     */
+    @Value("${citas.duracion-minutos:30}")
+    private long duracionMinutos;
+
     /**
      * Recupera el catálogo completo de citas registradas.
      * 
@@ -33,7 +83,24 @@ public class CitaVeterinariaService {
     }
 
     public Page<CitaVeterinaria> findAll(Pageable pageable, String search) {
-        if (search != null && !search.trim().isEmpty()) {
+        return findAll(pageable, search, null);
+    }
+
+    /**
+     * Listado paginado con búsqueda de texto y filtro opcional por estado.
+     *
+     * @param pageable Paginación y orden.
+     * @param search   Texto a buscar en motivo o diagnóstico (opcional).
+     * @param estado   Estado por el que filtrar (opcional).
+     */
+    public Page<CitaVeterinaria> findAll(Pageable pageable, String search, EstadoCita estado) {
+        boolean conTexto = search != null && !search.trim().isEmpty();
+        if (estado != null) {
+            return conTexto
+                    ? citaRepository.findBySearchAndEstado(search, estado, pageable)
+                    : citaRepository.findByEstado(estado, pageable);
+        }
+        if (conTexto) {
             return citaRepository.findBySearch(search, pageable);
         }
         return citaRepository.findAll(pageable);
@@ -49,14 +116,154 @@ public class CitaVeterinariaService {
         return citaRepository.findById(id);
     }
 
+    /**
+     * Detalle de una cita (con mascota, veterinario y tratamientos) como DTO,
+     * desde la caché si está. Con la cita en caché no se lanza ninguna
+     * consulta.
+     * Se devuelve una copia: modificarla no afecta a la caché.
+     *
+     * @param id Identificador de la cita.
+     * @return El DTO, o vacío si la cita no existe.
+     */
+    public Optional<CitaVeterinariaDTO> findDTOById(Long id) {
+        return cacheDatos.obtener(CacheDatosService.CITAS, id,
+                () -> citaRepository.findById(id).map(CitaVeterinariaService::toDTO), CitaVeterinariaDTO::copia);
+    }
+
+    /**
+     * Recupera varias citas en una sola consulta IN.
+     *
+     * @param ids Identificadores pedidos.
+     * @return Las citas existentes, en el orden de los IDs y sin repetidos.
+     */
+    public List<CitaVeterinaria> findAllByIds(List<Long> ids) {
+        return ConsultasPorId.enOrden(ids, citaRepository.findAllByIdIn(ids), CitaVeterinaria::getId);
+    }
+
     /**
      * Persiste (Crea o Actualiza) una cita en la base de datos.
      * 
      * @param cita La entidad a guardar.
      * @return La entidad persistida (incluyendo su ID generado si es nueva).
      */
+    @Transactional
     public CitaVeterinaria save(CitaVeterinaria cita) {
-        return citaRepository.save(cita);
+        CitaVeterinaria guardada = citaRepository.save(cita);
+        resumenService.invalidar(clienteDe(guardada));
+        cacheDatos.invalidar(CacheDatosService.CITAS, guardada.getId());
+        return guardada;
+    }
+
+    /**
+     * Veterinario y hora de inicio que ocupa una cita en la agenda.
+     */
+    public record Hueco(Long veterinarioId, LocalDateTime fechaHora) {
+
+        /**
+         * Hueco que ocupa la cita, o null si no ocupa ninguno (cancelada o sin
+         * veterinario u hora).
+         */
+        public static Hueco de(CitaVeterinaria cita) {
+            if (cita.getEstado() == EstadoCita.CANCELADA || cita.getVeterinario() == null
+                    || cita.getFechaHora() == null) {
+                return null;
+            }
+            return new Hueco(cita.getVeterinario().getId(), cita.getFechaHora());
+        }
+    }
+
+    /**
+     * Crea una cita comprobando antes que el veterinario no tenga otra cita que
+     * se solape con ella.
+     *
+     * @see #reservar(CitaVeterinaria, Hueco)
+     */
+    public CitaVeterinaria reservar(CitaVeterinaria cita) {
+        return reservar(cita, null);
+    }
+
+    /**
+     * Crea o actualiza una cita comprobando antes que el veterinario no tenga
+     * otra cita que se solape con ella.
+     * La comprobación y el guardado se hacen bajo el cerrojo de la franja
+     * (veterinario, día) y con la fila del veterinario bloqueada en base de
+     * datos, de modo que dos reservas simultáneas no pueden ocupar el mismo hueco
+     * aunque lleguen a instancias distintas.
+     * Si la cita no ocupa hueco (cancelada) o sigue en el mismo que antes del
+     * cambio, se guarda sin comprobar: editar el motivo o el diagnóstico de
+     * una cita nunca da conflicto.
+     *
+     * @param cita     La cita a guardar.
+     * @param anterior Hueco que ocupaba antes del cambio (Hueco.de con la cita
+     *                 aún sin modificar), o null si es nueva.
+     * @return La cita persistida.
+     * @throws ConflictoException si el hueco ya está ocupado.
+     */
+    public CitaVeterinaria reservar(CitaVeterinaria cita, Hueco anterior) {
+        Hueco hueco = Hueco.de(cita);
+        if (hueco == null || hueco.equals(anterior)) {
+            // Llamada interna: sin pasar por el proxy, la transacción se abre aquí
+            return transactionTemplate.execute(status -> save(cita));
+        }
+
+        Long veterinarioId = hueco.veterinarioId();
+        return bloqueoAgenda.ejecutar(veterinarioId, hueco.fechaHora().toLocalDate(),
+                () -> transactionTemplate.execute(status -> {
+                    veterinarioRepository.bloquearParaReserva(veterinarioId)
+                            .orElseThrow(() -> new EntityNotFoundException(
+                                    "El veterinario con ID " + veterinarioId + " no existe."));
+                    comprobarDisponibilidad(veterinarioId, hueco.fechaHora(), cita.getId());
+                    CitaVeterinaria guardada = citaRepository.save(cita);
+                    // Dentro de la transacción: se anota con el cambio y se
+                    // descarta tras el commit
+                    resumenService.invalidar(clienteDe(guardada));
+                    cacheDatos.invalidar(CacheDatosService.CITAS, guardada.getId());
+                    return guardada;
+                }));
+    }
+
+    /**
+     * Verifica que el veterinario tiene libre el hueco que empieza en la fecha
+     * indicada.
+     * Debe invocarse dentro de una transacción que tenga bloqueada la fila del
+     * veterinario.
+     *
+     * @param veterinarioId ID del profesional.
+     * @param fechaHora     Inicio de la cita.
+     * @param excluirId     ID de la cita en edición (null si es nueva).
+     * @throws ConflictoException si existe otra cita solapada.
+     */
+    public void comprobarDisponibilidad(Long veterinarioId, LocalDateTime fechaHora, Long excluirId) {
+        Duration duracion = getDuracionCita();
+        long solapadas = citaRepository.contarSolapamientos(veterinarioId,
+                fechaHora.minus(duracion), fechaHora.plus(duracion),
+                excluirId != null ? excluirId : 0L);
+        if (solapadas > 0) {
+            throw new ConflictoException("El veterinario con ID " + veterinarioId
+                    + " ya tiene una cita que se solapa con " + fechaHora + ".");
+        }
+    }
+
+    /**
+     * Comprueba en memoria si una cita que empieza en 'inicio' se solapa con
+     * alguna de las horas ya ocupadas.
+     * Permite validar muchas fechas contra una sola consulta de la agenda.
+     *
+     * @param ocupadas Horas de inicio ya reservadas, ordenadas.
+     * @param inicio   Inicio de la cita a comprobar.
+     * @return true si hay solapamiento.
+     */
+    public boolean haySolapamiento(NavigableSet<LocalDateTime> ocupadas, LocalDateTime inicio) {
+        Duration duracion = getDuracionCita();
+        LocalDateTime siguiente = ocupadas.higher(inicio.minus(duracion));
+        return siguiente != null && siguiente.isBefore(inicio.plus(duracion));
+    }
+
+    /**
+     * Duración configurada de una cita (propiedad citas.duracion-minutos).
+     */
+    public Duration getDuracionCita() {
+        return Duration.ofMinutes(duracionMinutos);
     }
 
     /**
@@ -64,8 +271,74 @@ public class CitaVeterinariaService {
      * 
      * @param id Identificador de la cita a eliminar.
      */
+    @Transactional
     public void deleteById(Long id) {
+        Long clienteId = citaRepository.findById(id).map(CitaVeterinariaService::clienteDe).orElse(null);
         citaRepository.deleteById(id);
+        resumenService.invalidar(clienteId);
+        cacheDatos.invalidar(CacheDatosService.CITAS, id);
+        // Sus tratamientos se borran en cascada
+        cacheDatos.vaciar(CacheDatosService.TRATAMIENTOS);
+    }
+
+    private static String codificarCursor(LocalDateTime fechaHora, Long id) {
+        String valor = fechaHora + "_" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodificarCursor(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = valor.split("_", 2);
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Cursor no válido.");
+            }
+            // Se valida el formato aquí para devolver siempre el mismo error
+            LocalDateTime.parse(partes[0]);
+            Long.parseLong(partes[1]);
+            return partes;
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("Cursor no válido.");
+        }
+    }
+
+    // --- Conversiones Entity → DTO ---
+
+    public static CitaVeterinariaDTO toDTO(CitaVeterinaria c) {
+        CitaVeterinariaDTO dto = new CitaVeterinariaDTO();
+        dto.setId(c.getId());
+        dto.setFechaHora(c.getFechaHora());
+        dto.setMotivo(c.getMotivo());
+        dto.setDiagnostico(c.getDiagnostico());
+        dto.setEstado(c.getEstado());
+        dto.setCosteTotal(c.getCosteTotal());
+
+        if (c.getMascota() != null) {
+            dto.setMascotaId(c.getMascota().getId());
+            dto.setMascotaNombre(c.getNombreMascotaStr());
+            dto.setClienteId(clienteDe(c));
+        }
+        if (c.getVeterinario() != null) {
+            dto.setVeterinarioId(c.getVeterinario().getId());
+            dto.setVeterinarioNombre(c.getNombreVeterinarioStr());
+        }
+
+        if (c.getTratamientos() != null) {
+            dto.setTratamientos(c.getTratamientos().stream()
+                    .map(TratamientoService::toDTO)
+                    .toList());
+        } else {
+            dto.setTratamientos(Collections.emptyList());
+        }
+
+        return dto;
+    }
+
+    private static Long clienteDe(CitaVeterinaria cita) {
+        if (cita.getMascota() == null || cita.getMascota().getCliente() == null) {
+            return null;
+        }
+        return cita.getMascota().getCliente().getId();
     }
 
     // --- MÉTODOS DE NEGOCIO ESPECÍFICOS ---
@@ -81,6 +354,65 @@ public class CitaVeterinariaService {
         return citaRepository.findByMascotaIdOrderByFechaHoraDesc(mascotaId);
     }
 
+    /**
+     * Recupera una página del historial clínico de una mascota, de la cita más
+     * reciente a la más antigua.
+     * La paginación es por cursor sobre (fechaHora, id): cada página continúa
+     * donde terminó la anterior usando el índice (mascota_id, fecha_hora), así
+     * que su coste no depende de cuántas páginas se hayan leído antes. Los
+     * tratamientos de toda la página se cargan con una única consulta IN.
+     *
+     * @param mascotaId ID del paciente.
+     * @param cursor    Cursor devuelto por la página anterior (null para la
+     *                  primera).
+     * @param tamano    Número máximo de citas de la página.
+     * @param desde     Filtro opcional: citas desde este día (incluido).
+     * @param hasta     Filtro opcional: citas hasta este día (incluido).
+     * @param estado    Filtro opcional por estado.
+     * @return Las citas de la página y el cursor de la siguiente (null si no
+     *         hay más).
+     * @throws IllegalArgumentException si el cursor no es válido.
+     */
+    public HistorialPaginaDTO historial(Long mascotaId, String cursor, int tamano,
+            LocalDate desde, LocalDate hasta, EstadoCita estado) {
+        LocalDateTime cursorFecha = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] partes = decodificarCursor(cursor);
+            cursorFecha = LocalDateTime.parse(partes[0]);
+            cursorId = Long.valueOf(partes[1]);
+        }
+
+        // Se pide una cita de más para saber si existe página siguiente
+        List<ResumenCitaDTO> citas = new ArrayList<>(citaRepository.findHistorial(mascotaId,
+                desde != null ? desde.atStartOfDay() : null,
+                hasta != null ? hasta.plusDays(1).atStartOfDay() : null,
+                estado, cursorFecha, cursorId, Limit.of(tamano + 1)));
+
+        String siguiente = null;
+        if (citas.size() > tamano) {
+            citas.remove(tamano);
+            ResumenCitaDTO ultima = citas.get(tamano - 1);
+            siguiente = codificarCursor(ultima.getFechaHora(), ultima.getId());
+        }
+
+        if (!citas.isEmpty()) {
+            Map<Long, ResumenCitaDTO> porId = new HashMap<>();
+            for (ResumenCitaDTO c : citas) {
+                porId.put(c.getId(), c);
+            }
+            for (ResumenTratamientoDTO t : tratamientoRepository.findResumenByCitaIdIn(porId.keySet())) {
+                ResumenCitaDTO cita = porId.get(t.getCitaId());
+                cita.getTratamientos().add(t);
+                if (t.getPrecio() != null) {
+                    cita.setCosteTotal(cita.getCosteTotal() + t.getPrecio());
+                }
+            }
+        }
+
+        return new HistorialPaginaDTO(citas, siguiente);
+    }
+
     /**
      * Obtiene la agenda de trabajo de un veterinario.
      * Ordenado cronológicamente ascendente (próximas citas primero).
@@ -103,4 +435,35 @@ public class CitaVeterinariaService {
     public List<CitaVeterinaria> buscarEntreFechas(LocalDateTime inicio, LocalDateTime fin) {
         return citaRepository.findByFechaHoraBetween(inicio, fin);
     }
-}
\ No newline at end of file
+
+    /**
+     * Construye la vista de calendario entre dos días (ambos incluidos),
+     * agrupada por día.
+     * Los datos salen de una proyección sin tratamientos ni entidades
+     * gestionadas.
+     *
+     * @param desde         Primer día del rango.
+     * @param hasta         Último día del rango (incluido).
+     * @param veterinarioId Filtro opcional por veterinario.
+     * @param clienteId     Si no es null, limita el resultado a las mascotas de
+     *                      ese cliente.
+     * @return Mapa ordenado día → citas de ese día.
+     */
+    public Map<LocalDate, List<CitaCalendarioDTO>> calendario(LocalDate desde, LocalDate hasta,
+            Long veterinarioId, Long clienteId) {
+        LocalDateTime inicio = desde.atStartOfDay();
+        LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+
+        List<CitaCalendarioDTO> citas;
+        if (clienteId != null) {
+            citas = citaRepository.findCalendarioCliente(clienteId, veterinarioId, inicio, fin);
+        } else if (veterinarioId != null) {
+            citas = citaRepository.findCalendarioVeterinario(veterinarioId, inicio, fin);
+        } else {
+            citas = citaRepository.findCalendario(inicio, fin);
+        }
+
+        return citas.stream().collect(Collectors.groupingBy(
+                c -> c.getFechaHora().toLocalDate(), TreeMap::new, Collectors.toList()));
+    }
+}
@@ -1,9 +1,15 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.services;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ClienteDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Cliente;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
+import com.OrtegaAlvaro.ClinicaVeterinaria.events.ImagenesDescartadasEvent;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.ClienteRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.MascotaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -21,6 +27,21 @@ public class ClienteService {
     @Autowired
     private ClienteRepository clienteRepository;
 
+    @Autowired
+    private MascotaRepository mascotaRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    @Autowired
+    private CacheHibernateService cacheHibernate;
+
+    @Autowired
+    private CacheDatosService cacheDatos;
+
     /**
      * Obtiene el listado completo de clientes registrados en el sistema.
      * 
@@ -47,6 +68,28 @@ public class ClienteService {
         return clienteRepository.findById(id);
     }
 
+    /**
+     * Detalle de un cliente como DTO, desde la caché si está.
+     * Se devuelve una copia: modificarla no afecta a la caché.
+     *
+     * @param id Identificador del cliente.
+     * @return El DTO, o vacío si el cliente no existe.
+     */
+    public Optional<ClienteDTO> findDTOById(Long id) {
+        return cacheDatos.obtener(CacheDatosService.CLIENTES, id,
+                () -> clienteRepository.findById(id).map(ClienteService::toDTO), ClienteDTO::copia);
+    }
+
+    /**
+     * Recupera varios clientes en una sola consulta IN.
+     *
+     * @param ids Identificadores pedidos.
+     * @return Los clientes existentes, en el orden de los IDs y sin repetidos.
+     */
+    public List<Cliente> findAllByIds(List<Long> ids) {
+        return ConsultasPorId.enOrden(ids, clienteRepository.findAllById(ids), Cliente::getId);
+    }
+
     /**
      * Busca un cliente por su Documento Nacional de Identidad.
      * Fundamental para validar duplicados antes de crear un nuevo registro.
@@ -73,17 +116,63 @@ public class ClienteService {
      * @param cliente Entidad con los datos a guardar.
      * @return El cliente persistido.
      */
+    @Transactional
     public Cliente save(Cliente cliente) {
-        return clienteRepository.save(cliente);
+        Cliente guardado = clienteRepository.save(cliente);
+        resumenService.invalidar(guardado.getId());
+        cacheDatos.invalidar(CacheDatosService.CLIENTES, guardado.getId());
+        // El nombre del cliente aparece en el DTO de sus mascotas
+        cacheDatos.vaciar(CacheDatosService.MASCOTAS);
+        return guardado;
     }
 
     /**
-     * Elimina un cliente del sistema.
+     * Elimina un cliente del sistema junto con sus mascotas, citas, tratamientos
+     * y usuario.
+     * El borrado se delega en las claves foráneas ON DELETE CASCADE de la base de
+     * datos (una sola sentencia DELETE), por lo que su coste no depende del
+     * tamaño del historial. Las imágenes de las mascotas se borran del disco en
+     * segundo plano tras el commit.
+     * Hibernate no se entera de las mascotas que borra la cascada, así que se
+     * descartan a mano de la caché de segundo nivel.
      * 
      * @param id Identificador del cliente a eliminar.
      */
+    @Transactional
     public void deleteById(Long id) {
-        clienteRepository.deleteById(id);
+        List<String> imagenes = mascotaRepository.findImagenesDeCliente(id).stream()
+                .filter(url -> !url.isEmpty())
+                .map(url -> url.substring(url.lastIndexOf("/") + 1))
+                .toList();
+
+        List<Long> mascotas = mascotaRepository.findIdsDeCliente(id);
+
+        clienteRepository.borrarEnCascada(id);
+        resumenService.invalidar(id);
+        cacheHibernate.evictar(Mascota.class, mascotas);
+        cacheHibernate.evictarColeccion(Cliente.class, "mascotas", id);
+        cacheDatos.invalidar(CacheDatosService.CLIENTES, id);
+        mascotas.forEach(m -> cacheDatos.invalidar(CacheDatosService.MASCOTAS, m));
+        // Las citas y tratamientos borrados no se conocen por ID
+        cacheDatos.vaciar(CacheDatosService.CITAS, CacheDatosService.TRATAMIENTOS);
+
+        if (!imagenes.isEmpty()) {
+            eventPublisher.publishEvent(new ImagenesDescartadasEvent(imagenes));
+        }
     }
 
-}
\ No newline at end of file
+    // --- Conversiones Entity → DTO ---
+
+    public static ClienteDTO toDTO(Cliente c) {
+        ClienteDTO dto = new ClienteDTO();
+        dto.setId(c.getId());
+        dto.setNombre(c.getNombre());
+        dto.setApellidos(c.getApellidos());
+        dto.setDni(c.getDni());
+        dto.setTelefono(c.getTelefono());
+        dto.setTelefonoFormateado(c.getTelefonoFormateado());
+        dto.setDireccion(c.getDireccion());
+        dto.setEmail(c.getEmail());
+        return dto;
+    }
+}
@@ -0,0 +1,32 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Utilidades para las consultas por lista de IDs (?ids=1,2,3).
+ */
+final class ConsultasPorId {
+
+    private ConsultasPorId() {
+    }
+
+    /**
+     * Devuelve las entidades en el orden en que se pidieron los IDs, sin
+     * repetidos y omitiendo los que no existen (la consulta IN no garantiza
+     * ningún orden).
+     */
+    static <T> List<T> enOrden(Collection<Long> ids, List<T> encontradas, Function<T, Long> id) {
+        Map<Long, T> porId = new HashMap<>();
+        encontradas.forEach(e -> porId.put(id.apply(e), e));
+        return ids.stream()
+                .distinct()
+                .map(porId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -1,6 +1,7 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.services;
 
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CitaVeterinaria;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CitaVeterinariaRepository;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.ClienteRepository;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.MascotaRepository;
@@ -45,11 +46,35 @@ public class DashboardService {
         stats.put("totalClientes", clienteRepo.count());
         stats.put("totalMascotas", mascotaRepo.count());
         stats.put("totalVeterinarios", veterinarioRepo.count());
-        stats.put("totalCitas", citaRepo.count());
+
+        // Recuento por estado en una sola consulta sobre el índice (estado, fecha_hora).
+        long totalCitas = 0;
+        for (EstadoCita estado : EstadoCita.values()) {
+            stats.put(claveCitas(estado), 0L);
+        }
+        for (Object[] fila : citaRepo.contarPorEstado()) {
+            EstadoCita estado = (EstadoCita) fila[0];
+            long total = (Long) fila[1];
+            stats.put(claveCitas(estado), total);
+            totalCitas += total;
+        }
+        stats.put("totalCitas", totalCitas);
 
         return stats;
     }
 
+    /**
+     * Clave del recuento de citas de cada estado en el mapa de estadísticas.
+     * Es explícita para que renombrar una etiqueta no cambie las claves que usa la vista.
+     */
+    private static String claveCitas(EstadoCita estado) {
+        return switch (estado) {
+            case PENDIENTE -> "citasPendientes";
+            case REALIZADA -> "citasRealizadas";
+            case CANCELADA -> "citasCanceladas";
+        };
+    }
+
     /**
      * Recupera el historial operativo más reciente.
      * Obtiene las últimas 5 citas registradas (independientemente de su estado)
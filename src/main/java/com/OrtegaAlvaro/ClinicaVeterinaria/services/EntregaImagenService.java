@@ -0,0 +1,317 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.CacheImagenService.Entrada;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ImagenService.ImagenResuelta;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Envía los ficheros de imagen con las cabeceras de caché HTTP adecuadas.
+ * - ETag fuerte y Last-Modified. El ETag es el propio nombre cuando empieza
+ * por el SHA-256 del contenido; solo se calcula el hash de los ficheros con
+ * nombres antiguos (UUID). Las peticiones condicionales (If-None-Match /
+ * If-Modified-Since) se responden con 304 sin cuerpo.
+ * - Cache-Control inmutable cuando la URL siempre devuelve el mismo contenido
+ * (los nombres de fichero son únicos por subida); revalidación en otro caso.
+ * - Peticiones de un rango de bytes (Range / If-Range) → 206.
+ * - Las imágenes pequeñas se sirven desde la caché en memoria
+ * (CacheImagenService); el resto se envía con sendfile del contenedor cuando
+ * está disponible y, si no, con FileChannel.transferTo, sin copiarlo a arrays
+ * en el heap.
+ * El ETag y el tipo MIME se calculan una vez por fichero y se guardan en
+ * memoria mientras no cambien su tamaño ni su fecha de modificación.
+ */
+@Service
+public class EntregaImagenService {
+
+    /** Atributos de petición con los que Tomcat envía un fichero por sendfile. */
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FICHERO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_INMUTABLE = "private, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDAR = "private, no-cache";
+
+    /**
+     * {sha256}.{ext} o, en las variantes, {sha256}-{variante}.{ext}.
+     */
+    private static final Pattern NOMBRE_HASH = Pattern.compile("([0-9a-f]{64}(?:-[a-z]+)?)\\.[a-z0-9]+");
+
+    /**
+     * Datos de un fichero que no cambian mientras no cambie el propio fichero.
+     */
+    private record Metadatos(long tamano, long modificado, String etag, String tipo) {
+    }
+
+    private final Map<Path, Metadatos> metadatos = new ConcurrentHashMap<>();
+
+    private final Map<String, String> tiposPorExtension = new ConcurrentHashMap<>();
+
+    private final int maxEntradas;
+
+    private final CacheImagenService cacheImagenes;
+
+    public EntregaImagenService(@Value("${imagenes.entrega.max-metadatos:10000}") int maxEntradas,
+            CacheImagenService cacheImagenes) {
+        this.maxEntradas = maxEntradas;
+        this.cacheImagenes = cacheImagenes;
+    }
+
+    /**
+     * Escribe en la respuesta la imagen indicada (o 304 / 206 / 416 según las
+     * cabeceras de la petición).
+     *
+     * @param imagen   Fichero a enviar y si su URL es inmutable.
+     * @param request  Petición HTTP (GET o HEAD).
+     * @param response Respuesta en la que se escribe.
+     */
+    public void enviar(ImagenResuelta imagen, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path ruta = imagen.ruta();
+        Metadatos datos = obtenerMetadatos(ruta);
+
+        response.setHeader(HttpHeaders.ETAG, datos.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, datos.modificado());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, imagen.definitiva() ? CACHE_INMUTABLE : CACHE_REVALIDAR);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (noModificado(request, datos)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long inicio = 0;
+        long longitud = datos.tamano();
+        long[] rango = rangoPedido(request, datos);
+        if (rango != null) {
+            if (rango.length == 0) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + datos.tamano());
+                return;
+            }
+            inicio = rango[0];
+            longitud = rango[1] - rango[0] + 1;
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + rango[0] + "-" + rango[1] + "/" + datos.tamano());
+        }
+
+        response.setContentType(datos.tipo());
+        response.setContentLengthLong(longitud);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + ruta.getFileName() + "\"");
+
+        if ("HEAD".equals(request.getMethod()) || longitud == 0) {
+            return;
+        }
+
+        // Las imágenes pequeñas y frecuentes se sirven desde memoria
+        Entrada enMemoria = cacheImagenes.obtener(ruta, datos.tamano(), datos.modificado());
+        if (enMemoria != null) {
+            ByteBuffer cuerpo = enMemoria.datos().duplicate();
+            cuerpo.position((int) inicio).limit((int) (inicio + longitud));
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            while (cuerpo.hasRemaining()) {
+                salida.write(cuerpo);
+            }
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            // El contenedor copia el fichero al socket directamente desde el kernel
+            request.setAttribute(SENDFILE_FICHERO, ruta.toRealPath().toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, inicio + longitud);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long posicion = inicio;
+            long fin = inicio + longitud;
+            while (posicion < fin) {
+                long enviados = canal.transferTo(posicion, fin - posicion, salida);
+                if (enviados <= 0) {
+                    break;
+                }
+                posicion += enviados;
+            }
+        }
+    }
+
+    // --- Métodos auxiliares ---
+
+    /**
+     * If-None-Match tiene prioridad; If-Modified-Since solo se mira si no viene.
+     */
+    private static boolean noModificado(HttpServletRequest request, Metadatos datos) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String etag : ifNoneMatch.split(",")) {
+                String valor = etag.trim();
+                if (valor.startsWith("W/")) {
+                    valor = valor.substring(2);
+                }
+                if (valor.equals("*") || valor.equals(datos.etag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = fechaCabecera(request, HttpHeaders.IF_MODIFIED_SINCE);
+        // Las fechas HTTP tienen resolución de segundos
+        return ifModifiedSince >= 0 && datos.modificado() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Interpreta la cabecera Range.
+     * Solo se atiende un único rango de bytes; con varios rangos, con un rango
+     * mal formado (p. ej. bytes=5-3), o si If-Range indica que el fichero ha
+     * cambiado, se envía el fichero completo.
+     *
+     * @return null para enviar todo, un array vacío si el rango no es
+     *         satisfacible, o {primero, último} (ambos incluidos).
+     */
+    private static long[] rangoPedido(HttpServletRequest request, Metadatos datos) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null || !range.startsWith("bytes=") || range.contains(",")) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            boolean vigente = ifRange.startsWith("\"")
+                    ? ifRange.equals(datos.etag())
+                    : fechaCabecera(request, HttpHeaders.IF_RANGE) / 1000 == datos.modificado() / 1000;
+            if (!vigente) {
+                return null;
+            }
+        }
+
+        String especificacion = range.substring("bytes=".length()).trim();
+        int guion = especificacion.indexOf('-');
+        if (guion < 0) {
+            return null;
+        }
+        long tamano = datos.tamano();
+        try {
+            String desde = especificacion.substring(0, guion).trim();
+            String hasta = especificacion.substring(guion + 1).trim();
+            long primero;
+            long ultimo;
+            if (desde.isEmpty()) {
+                // bytes=-N → los últimos N bytes
+                long sufijo = Long.parseLong(hasta);
+                if (sufijo <= 0) {
+                    return new long[0];
+                }
+                primero = Math.max(0, tamano - sufijo);
+                ultimo = tamano - 1;
+            } else {
+                primero = Long.parseLong(desde);
+                if (hasta.isEmpty()) {
+                    ultimo = tamano - 1;
+                } else {
+                    ultimo = Long.parseLong(hasta);
+                    if (ultimo < primero) {
+                        // No es un rango válido: se ignora la cabecera
+                        return null;
+                    }
+                    ultimo = Math.min(ultimo, tamano - 1);
+                }
+            }
+            if (primero >= tamano) {
+                return new long[0];
+            }
+            return new long[] { primero, ultimo };
+        } catch (NumberFormatException ex) {
+            // Rango mal formado: se ignora y se envía el fichero completo
+            return null;
+        }
+    }
+
+    private static long fechaCabecera(HttpServletRequest request, String nombre) {
+        try {
+            return request.getDateHeader(nombre);
+        } catch (IllegalArgumentException ex) {
+            return -1;
+        }
+    }
+
+    private Metadatos obtenerMetadatos(Path ruta) throws IOException {
+        BasicFileAttributes atributos = Files.readAttributes(ruta, BasicFileAttributes.class);
+        long tamano = atributos.size();
+        long modificado = atributos.lastModifiedTime().toMillis();
+
+        Metadatos actuales = metadatos.get(ruta);
+        if (actuales != null && actuales.tamano() == tamano && actuales.modificado() == modificado) {
+            return actuales;
+        }
+
+        Metadatos nuevos = new Metadatos(tamano, modificado, calcularEtag(ruta), tipoMime(ruta));
+        if (metadatos.size() >= maxEntradas) {
+            // Límite simple de memoria: se vuelve a calcular bajo demanda
+            metadatos.clear();
+        }
+        metadatos.put(ruta, nuevos);
+        return nuevos;
+    }
+
+    /**
+     * Los nombres con hash ya identifican el contenido (y cada variante tiene
+     * el suyo), así que no hace falta leer el fichero.
+     */
+    private static String calcularEtag(Path ruta) throws IOException {
+        Matcher nombre = NOMBRE_HASH.matcher(ruta.getFileName().toString());
+        if (nombre.matches()) {
+            return "\"" + nombre.group(1) + "\"";
+        }
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (canal.read(buffer) > 0) {
+                buffer.flip();
+                sha256.update(buffer);
+                buffer.clear();
+            }
+        }
+        // 128 bits del hash bastan como validador
+        return "\"" + HexFormat.of().formatHex(sha256.digest(), 0, 16) + "\"";
+    }
+
+    private String tipoMime(Path ruta) {
+        String nombre = ruta.getFileName().toString();
+        int punto = nombre.lastIndexOf('.');
+        String extension = punto >= 0 ? nombre.substring(punto + 1).toLowerCase(Locale.ROOT) : "";
+        return tiposPorExtension.computeIfAbsent(extension, ext -> MediaTypeFactory.getMediaType(nombre)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString());
+    }
+}
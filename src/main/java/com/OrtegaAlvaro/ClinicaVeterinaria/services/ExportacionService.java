@@ -0,0 +1,209 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaExportDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ClienteDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.TratamientoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CitaVeterinariaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.ClienteRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.TratamientoRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Servicio de exportación masiva (contabilidad, copias externas).
+ * Recorre cada tabla con un cursor de solo lectura (Stream de proyecciones con
+ * fetch size ajustado) dentro de una transacción de lectura y escribe las filas
+ * directamente en la respuesta, en CSV o NDJSON y opcionalmente comprimidas con
+ * gzip. Ninguna fila se retiene en memoria después de escribirse.
+ */
+@Service
+public class ExportacionService {
+
+    /**
+     * Formatos de salida soportados.
+     */
+    public enum Formato {
+        CSV("csv", "text/csv; charset=UTF-8"),
+        NDJSON("ndjson", "application/x-ndjson");
+
+        private final String extension;
+        private final String contentType;
+
+        Formato(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    /**
+     * Definición de una exportación: cabecera CSV, origen de las filas y
+     * valores de cada columna.
+     */
+    private record Exportacion<T>(String[] columnas, Supplier<Stream<T>> filas, Function<T, Object[]> valores) {
+    }
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    @Autowired
+    private CitaVeterinariaRepository citaRepository;
+
+    @Autowired
+    private TratamientoRepository tratamientoRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate lectura;
+
+    private Map<String, Exportacion<?>> exportaciones;
+
+    @PostConstruct
+    void inicializar() {
+        lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+
+        exportaciones = Map.of(
+                "citas", new Exportacion<CitaExportDTO>(
+                        new String[] { "id", "fechaHora", "motivo", "diagnostico", "estado", "mascotaId",
+                                "mascotaNombre", "clienteId", "veterinarioId", "veterinarioNombre", "costeTotal" },
+                        citaRepository::streamExportacion,
+                        c -> new Object[] { c.getId(), c.getFechaHora(), c.getMotivo(), c.getDiagnostico(),
+                                c.getEstado(), c.getMascotaId(), c.getMascotaNombre(), c.getClienteId(),
+                                c.getVeterinarioId(), c.getVeterinarioNombre(), c.getCosteTotal() }),
+                "tratamientos", new Exportacion<TratamientoDTO>(
+                        new String[] { "id", "descripcion", "medicamento", "precio", "observaciones", "citaId" },
+                        tratamientoRepository::streamExportacion,
+                        t -> new Object[] { t.getId(), t.getDescripcion(), t.getMedicamento(), t.getPrecio(),
+                                t.getObservaciones(), t.getCitaId() }),
+                "clientes", new Exportacion<ClienteDTO>(
+                        new String[] { "id", "nombre", "apellidos", "dni", "telefono", "direccion", "email" },
+                        clienteRepository::streamExportacion,
+                        c -> new Object[] { c.getId(), c.getNombre(), c.getApellidos(), c.getDni(),
+                                c.getTelefono(), c.getDireccion(), c.getEmail() }));
+    }
+
+    /**
+     * Indica si existe una exportación con ese nombre (citas, tratamientos,
+     * clientes).
+     */
+    public boolean soporta(String entidad) {
+        return exportaciones.containsKey(entidad);
+    }
+
+    /**
+     * Escribe la exportación completa de la entidad en el flujo indicado.
+     * Debe invocarse desde el hilo que escribe la respuesta (StreamingResponseBody):
+     * la transacción de lectura y el cursor viven solo mientras dura la escritura.
+     *
+     * @param entidad Nombre de la exportación.
+     * @param formato Formato de salida.
+     * @param gzip    Si true, la salida se comprime con gzip.
+     * @param salida  Flujo de la respuesta HTTP.
+     */
+    public void exportar(String entidad, Formato formato, boolean gzip, OutputStream salida) throws IOException {
+        Exportacion<?> exportacion = exportaciones.get(entidad);
+        if (exportacion == null) {
+            throw new IllegalArgumentException("Exportación desconocida: " + entidad);
+        }
+
+        OutputStream destino = gzip ? new GZIPOutputStream(salida, TAMANO_BUFFER) : salida;
+        OutputStream out = new BufferedOutputStream(destino, TAMANO_BUFFER);
+        try {
+            lectura.executeWithoutResult(status -> escribir(exportacion, formato, out));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        out.flush();
+        if (destino instanceof GZIPOutputStream gz) {
+            gz.finish();
+        }
+    }
+
+    // --- Métodos auxiliares ---
+
+    private <T> void escribir(Exportacion<T> exportacion, Formato formato, OutputStream out) {
+        try (Stream<T> filas = exportacion.filas().get()) {
+            if (formato == Formato.CSV) {
+                escribirLineaCsv(out, exportacion.columnas());
+            }
+            filas.forEach(fila -> {
+                if (formato == Formato.CSV) {
+                    escribirLineaCsv(out, exportacion.valores().apply(fila));
+                } else {
+                    escribirLineaJson(out, fila);
+                }
+            });
+        }
+    }
+
+    private void escribirLineaJson(OutputStream out, Object fila) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(fila));
+            out.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void escribirLineaCsv(OutputStream out, Object[] valores) {
+        StringBuilder linea = new StringBuilder(128);
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                linea.append(',');
+            }
+            linea.append(campoCsv(valores[i]));
+        }
+        linea.append("\r\n");
+        try {
+            out.write(linea.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Formatea un valor según RFC 4180: entre comillas si contiene separadores,
+     * comillas o saltos de línea, duplicando las comillas internas.
+     */
+    private static String campoCsv(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto = valor instanceof EstadoCita estado ? estado.getEtiqueta() : valor.toString();
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0
+                && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,73 +1,331 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.services;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.config.SubidasConfig;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ImagenEstadisticasDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.events.ImagenesDescartadasEvent;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.ImagenReferenciaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.MiniaturaService.Variante;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 @Service
 public class ImagenService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ImagenService.class);
+
     private final Path fileStorageLocation;
 
-    public ImagenService(@Value("${upload.dir}") String uploadDir) {
+    private final Path directorioTemporal;
+
+    private final MiniaturaService miniaturas;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ImagenReferenciaRepository referenciaRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CacheImagenService cacheImagenes;
+
+    private final AlmacenImagenes almacen;
+
+    private final ProcesadoImagenService procesado;
+
+    // Contadores de deduplicación desde el arranque
+    private final AtomicLong subidas = new AtomicLong();
+    private final AtomicLong duplicadas = new AtomicLong();
+    private final AtomicLong bytesAhorrados = new AtomicLong();
+    // Bytes que se ha ahorrado el procesado (reducción y recompresión)
+    private final AtomicLong bytesReducidos = new AtomicLong();
+
+    public ImagenService(@Value("${upload.dir}") String uploadDir, MiniaturaService miniaturas,
+            ApplicationEventPublisher eventPublisher, ImagenReferenciaRepository referenciaRepository,
+            TransactionTemplate transactionTemplate, CacheImagenService cacheImagenes, AlmacenImagenes almacen,
+            ProcesadoImagenService procesado) {
+        this.miniaturas = miniaturas;
+        this.eventPublisher = eventPublisher;
+        this.referenciaRepository = referenciaRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheImagenes = cacheImagenes;
+        this.almacen = almacen;
+        this.procesado = procesado;
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.directorioTemporal = this.fileStorageLocation.resolve(SubidasConfig.DIRECTORIO_TEMPORAL);
         try {
-            Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.directorioTemporal);
         } catch (Exception ex) {
             throw new RuntimeException("No se pudo crear el directorio donde se subirán los archivos.", ex);
         }
     }
 
-    public String guardarImagen(MultipartFile file) {
+    /**
+     * Guarda una imagen subida usando su contenido como nombre.
+     * El contenedor ya ha volcado el fichero a disco dentro del directorio de
+     * subidas: se mueve (sin copiarlo) a un temporal, se identifica el formato
+     * por sus primeros bytes, se reduce y recomprime (ProcesadoImagenService)
+     * y se calcula el SHA-256 del resultado. La extensión sale del formato
+     * final, nunca del nombre enviado por el cliente. Si ya existe un fichero
+     * con ese hash no se vuelve a guardar y solo se suma una referencia.
+     * La referencia se suma y el fichero se coloca en el almacén con la fila de
+     * imagen_ref bloqueada, de modo que un borrado simultáneo del mismo
+     * contenido no puede eliminarlo entre medias.
+     * 'asignar' guarda el nombre en el registro que usa la imagen dentro de
+     * esa misma transacción: cada referencia sumada corresponde a un
+     * imagen_url guardado y, si el registro no llega a guardarse, la
+     * referencia tampoco. Un fichero nuevo que se quede así sin registro lo
+     * borra LimpiezaImagenesService.
+     *
+     * @param asignar Recibe el nombre del fichero ({sha256}.{extensión}) y
+     *                guarda el registro que lo usa.
+     * @return Lo devuelto por 'asignar'.
+     * @throws IllegalArgumentException si el contenido no es JPEG, PNG, GIF ni
+     *                                  WEBP.
+     */
+    public <T> T guardarImagen(MultipartFile file, Function<String, T> asignar) {
+        Path temporal = null;
         try {
-            String originalFileName = file.getOriginalFilename();
-            String extension = "";
-            if (originalFileName != null && originalFileName.contains(".")) {
-                extension = originalFileName.substring(originalFileName.lastIndexOf("."));
+            temporal = this.directorioTemporal.resolve("subida-" + UUID.randomUUID() + ".tmp");
+            file.transferTo(temporal);
+
+            String extension;
+            try (InputStream entrada = Files.newInputStream(temporal)) {
+                extension = detectarFormato(entrada.readNBytes(12));
+            }
+            if (extension == null) {
+                throw new IllegalArgumentException("El fichero no es una imagen JPEG, PNG, GIF o WEBP.");
             }
+            long tamanoSubido = Files.size(temporal);
+            extension = procesado.optimizar(temporal, extension);
+            long tamano = Files.size(temporal);
+            bytesReducidos.addAndGet(tamanoSubido - tamano);
 
-            // Nombre único para prevenir sobrescrituras
-            String newFileName = UUID.randomUUID().toString() + extension;
+            // Hash del fichero final: la misma foto subida dos veces da el
+            // mismo resultado y se deduplica igual
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            try (InputStream entrada = new DigestInputStream(Files.newInputStream(temporal), sha256)) {
+                entrada.transferTo(OutputStream.nullOutputStream());
+            }
 
-            Path targetLocation = this.fileStorageLocation.resolve(newFileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            String newFileName = HexFormat.of().formatHex(sha256.digest()) + extension;
+            Path subida = temporal;
 
-            return newFileName;
-        } catch (IOException ex) {
+            boolean[] nuevo = new boolean[1];
+            T resultado = transactionTemplate.execute(status -> {
+                referenciaRepository.sumarReferencia(newFileName, tamano);
+                try {
+                    if (!almacen.existe(newFileName)) {
+                        almacen.guardar(newFileName, subida);
+                        nuevo[0] = true;
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return asignar.apply(newFileName);
+            });
+
+            subidas.incrementAndGet();
+            if (nuevo[0]) {
+                // Las versiones reducidas se generan en segundo plano; hasta
+                // entonces se sirve el original
+                miniaturas.generarEnSegundoPlano(newFileName);
+            } else {
+                duplicadas.incrementAndGet();
+                bytesAhorrados.addAndGet(tamano);
+            }
+            return resultado;
+        } catch (IOException | UncheckedIOException ex) {
             throw new RuntimeException("No se pudo guardar el archivo. Por favor intente de nuevo.", ex);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            if (temporal != null) {
+                try {
+                    Files.deleteIfExists(temporal);
+                } catch (IOException ex) {
+                    logger.warn("No se pudo borrar el temporal {}: {}", temporal.getFileName(), ex.getMessage());
+                }
+            }
         }
     }
 
-    public Resource cargarImagen(String fileName) {
+    /**
+     * Fichero que se servirá para una imagen y tamaño concretos.
+     *
+     * @param ruta       Fichero en disco (la variante o, si aún no existe, el
+     *                   original).
+     * @param definitiva true si es exactamente lo pedido: su contenido ya no
+     *                   cambiará para esa URL y puede cachearse como inmutable.
+     */
+    public record ImagenResuelta(Path ruta, boolean definitiva) {
+    }
+
+    /**
+     * Localiza el fichero de una imagen en el tamaño pedido, o el original si
+     * la variante aún no se ha generado.
+     *
+     * @throws EntityNotFoundException si la imagen no existe o el nombre no es
+     *                                 válido.
+     */
+    public ImagenResuelta resolverImagen(String fileName, Variante variante) {
         try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            if (resource.exists()) {
-                return resource;
-            } else {
-                throw new RuntimeException("Archivo no encontrado " + fileName);
+            Path original = nombreValido(fileName) ? almacen.buscar(fileName).orElse(null) : null;
+            if (original == null) {
+                throw new EntityNotFoundException("Archivo no encontrado " + fileName);
+            }
+            if (variante == Variante.FULL) {
+                return new ImagenResuelta(original, true);
             }
-        } catch (MalformedURLException ex) {
-            throw new RuntimeException("Archivo no encontrado " + fileName, ex);
+            return almacen.buscar(MiniaturaService.nombreVariante(fileName, variante))
+                    .map(ruta -> new ImagenResuelta(ruta, true))
+                    .orElseGet(() -> new ImagenResuelta(original, false));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudo leer el archivo " + fileName, ex);
         }
     }
 
+    /**
+     * Libera una referencia a la imagen y borra el fichero (y sus variantes)
+     * solo cuando ya no lo usa ninguna mascota.
+     * Las imágenes anteriores a la deduplicación no tienen registro en
+     * imagen_ref: pertenecen a una única mascota y se borran directamente.
+     */
     public void borrarImagen(String fileName) {
-        try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-            Files.deleteIfExists(filePath);
-        } catch (IOException ex) {
-            throw new RuntimeException("No se pudo borrar el archivo " + fileName, ex);
+        if (!nombreValido(fileName)) {
+            throw new IllegalArgumentException("Nombre de archivo no válido: " + fileName);
+        }
+        // El fichero se borra dentro de la transacción, con la fila bloqueada,
+        // para que una subida simultánea del mismo contenido espere al borrado
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean registrada = referenciaRepository.restarReferencia(fileName) > 0;
+            if (registrada && referenciaRepository.eliminarSinReferencias(fileName) == 0) {
+                return;
+            }
+            try {
+                List<String> nombres = new ArrayList<>(miniaturas.nombresVariantes(fileName));
+                nombres.add(fileName);
+                for (String nombre : nombres) {
+                    almacen.borrar(nombre);
+                }
+                cacheImagenes.invalidar(nombres);
+            } catch (IOException ex) {
+                throw new RuntimeException("No se pudo borrar el archivo " + fileName, ex);
+            }
+        });
+    }
+
+    /**
+     * Estadísticas de deduplicación: contadores de subidas desde el arranque y
+     * totales del almacén según imagen_ref.
+     */
+    public ImagenEstadisticasDTO estadisticas() {
+        Object[] fila = referenciaRepository.totales().get(0);
+        long ficheros = ((Number) fila[0]).longValue();
+        long referencias = ((Number) fila[1]).longValue();
+        long bytesEnDisco = ((Number) fila[2]).longValue();
+        long bytesSinDeduplicar = ((Number) fila[3]).longValue();
+
+        long totalSubidas = subidas.get();
+        long totalDuplicadas = duplicadas.get();
+        double tasa = totalSubidas > 0 ? (double) totalDuplicadas / totalSubidas : 0.0;
+
+        return new ImagenEstadisticasDTO(totalSubidas, totalDuplicadas, tasa, bytesAhorrados.get(),
+                bytesReducidos.get(), ficheros, referencias, bytesEnDisco, bytesSinDeduplicar - bytesEnDisco);
+    }
+
+    /**
+     * Identifica el formato de imagen por su firma (magic bytes).
+     *
+     * @param cabecera Primeros 12 bytes del fichero (o menos si es más corto).
+     * @return Extensión con punto, o null si no es un formato admitido.
+     */
+    private static String detectarFormato(byte[] cabecera) {
+        if (empiezaPor(cabecera, 0, 0xFF, 0xD8, 0xFF)) {
+            return ".jpg";
+        }
+        if (empiezaPor(cabecera, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return ".png";
+        }
+        if (empiezaPor(cabecera, 0, 'G', 'I', 'F', '8') && cabecera.length >= 6
+                && (cabecera[4] == '7' || cabecera[4] == '9') && cabecera[5] == 'a') {
+            return ".gif";
+        }
+        if (empiezaPor(cabecera, 0, 'R', 'I', 'F', 'F') && empiezaPor(cabecera, 8, 'W', 'E', 'B', 'P')) {
+            return ".webp";
+        }
+        return null;
+    }
+
+    /**
+     * Los nombres son siempre de un solo segmento: nada de rutas, ni de
+     * ficheros ocultos (temporales y directorios internos empiezan por punto).
+     */
+    private static boolean nombreValido(String fileName) {
+        return fileName != null && !fileName.isBlank() && !fileName.startsWith(".")
+                && fileName.indexOf('/') < 0 && fileName.indexOf('\\') < 0;
+    }
+
+    private static boolean empiezaPor(byte[] datos, int desde, int... firma) {
+        if (datos.length < desde + firma.length) {
+            return false;
+        }
+        for (int i = 0; i < firma.length; i++) {
+            if ((datos[desde + i] & 0xFF) != firma[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Programa el borrado de una imagen (y sus variantes) fuera del hilo de la
+     * petición.
+     */
+    public void descartarImagen(String fileName) {
+        eventPublisher.publishEvent(new ImagenesDescartadasEvent(List.of(fileName)));
+    }
+
+    /**
+     * Borra del disco las imágenes de registros eliminados o sustituidos.
+     * Se ejecuta en segundo plano y, si hay transacción, solo después del
+     * commit, de modo que un rollback nunca deja registros apuntando a ficheros
+     * inexistentes. Un fallo al borrar un fichero se registra y no interrumpe el
+     * resto.
+     */
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alDescartarImagenes(ImagenesDescartadasEvent event) {
+        for (String fileName : event.nombresArchivo()) {
+            try {
+                borrarImagen(fileName);
+            } catch (RuntimeException ex) {
+                logger.warn("No se pudo borrar la imagen {}: {}", fileName, ex.getMessage());
+            }
         }
     }
 }
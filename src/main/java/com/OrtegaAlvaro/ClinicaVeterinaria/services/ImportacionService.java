@@ -0,0 +1,344 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ImportacionResultadoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Cliente;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.ClienteRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio de importación masiva de clientes y mascotas desde CSV (migración de
+ * clínicas).
+ * El fichero se lee en streaming y se procesa por lotes de
+ * importacion.tamano-lote registros:
+ * <ol>
+ * <li>cada lote se convierte y valida (Bean Validation) en paralelo;</li>
+ * <li>los duplicados se detectan contra un conjunto de DNI cargado una sola
+ * vez, al que se añaden los de cada lote confirmado;</li>
+ * <li>los registros válidos se insertan en una transacción por lote, con
+ * sentencias agrupadas en lotes JDBC (IDs de secuencia 'pooled').</li>
+ * </ol>
+ * La memoria usada no depende del tamaño del fichero, salvo el conjunto de DNI.
+ */
+@Service
+public class ImportacionService {
+
+    /** Columnas obligatorias del CSV de clientes. */
+    public static final List<String> COLUMNAS_CLIENTES = List.of("nombre", "apellidos", "dni", "telefono");
+
+    /** Columnas obligatorias del CSV de mascotas. */
+    public static final List<String> COLUMNAS_MASCOTAS = List.of("nombre", "especie", "dnicliente");
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${importacion.tamano-lote:1000}")
+    private int tamanoLote;
+
+    @Value("${importacion.max-errores:1000}")
+    private int maxErrores;
+
+    /**
+     * Registro leído del CSV junto con la línea en la que empieza.
+     */
+    private record Registro(long linea, List<String> campos, Map<String, Integer> cabecera) {
+
+        /** Valor de la columna, sin espacios; null si falta o está vacío. */
+        String valor(String columna) {
+            Integer i = cabecera.get(columna);
+            if (i == null || i >= campos.size()) {
+                return null;
+            }
+            String v = campos.get(i).trim();
+            return v.isEmpty() ? null : v;
+        }
+    }
+
+    /**
+     * Resultado de convertir y validar un registro: la entidad o el error.
+     */
+    private record Procesado<T>(long linea, T entidad, String error) {
+    }
+
+    /**
+     * Acumulador del informe de la importación.
+     */
+    private final class Informe {
+        private long leidos;
+        private long importados;
+        private long rechazados;
+        private final List<ImportacionResultadoDTO.ErrorLinea> errores = new ArrayList<>();
+        private boolean truncado;
+
+        private void error(long linea, String mensaje) {
+            rechazados++;
+            if (errores.size() < maxErrores) {
+                errores.add(new ImportacionResultadoDTO.ErrorLinea(linea, mensaje));
+            } else {
+                truncado = true;
+            }
+        }
+
+        private ImportacionResultadoDTO toDTO() {
+            return new ImportacionResultadoDTO(leidos, importados, rechazados, errores, truncado);
+        }
+    }
+
+    /**
+     * Importa clientes desde un CSV con cabecera
+     * (nombre, apellidos, dni, telefono[, direccion][, email]).
+     * Las líneas con un DNI ya registrado, o repetido dentro del fichero, se
+     * rechazan. Los DNI de un lote solo cuentan como registrados cuando el
+     * lote se confirma: si la base de datos lo rechaza, una línea posterior
+     * con el mismo DNI puede importarse.
+     *
+     * @param entrada Contenido del fichero (UTF-8).
+     * @return Informe con contadores y errores por línea.
+     */
+    public ImportacionResultadoDTO importarClientes(InputStream entrada) throws IOException {
+        Set<String> dnis = new HashSet<>(clienteRepository.findAllDni());
+        // DNI del lote en curso, aún sin confirmar
+        Set<String> dnisLote = new HashSet<>();
+
+        return importar(entrada, COLUMNAS_CLIENTES,
+                r -> {
+                    Cliente c = new Cliente();
+                    c.setNombre(r.valor("nombre"));
+                    c.setApellidos(r.valor("apellidos"));
+                    String dni = r.valor("dni");
+                    c.setDni(dni != null ? dni.toUpperCase(Locale.ROOT) : null);
+                    c.setTelefono(r.valor("telefono"));
+                    c.setDireccion(r.valor("direccion"));
+                    c.setEmail(r.valor("email"));
+                    return c;
+                },
+                c -> !dnis.contains(c.getDni()) && dnisLote.add(c.getDni()) ? null
+                        : "El DNI " + c.getDni() + " ya está registrado",
+                clientes -> clientes.forEach(entityManager::persist),
+                confirmado -> {
+                    if (confirmado) {
+                        dnis.addAll(dnisLote);
+                    }
+                    dnisLote.clear();
+                });
+    }
+
+    /**
+     * Importa mascotas desde un CSV con cabecera
+     * (nombre, especie, dniCliente[, raza][, fechaNacimiento][, peso]).
+     * El propietario se busca por DNI entre los clientes ya registrados.
+     *
+     * @param entrada Contenido del fichero (UTF-8).
+     * @return Informe con contadores y errores por línea.
+     */
+    public ImportacionResultadoDTO importarMascotas(InputStream entrada) throws IOException {
+        Map<String, Long> clientes = new HashMap<>();
+        for (Object[] fila : clienteRepository.findAllDniConId()) {
+            clientes.put((String) fila[0], (Long) fila[1]);
+        }
+
+        return importar(entrada, COLUMNAS_MASCOTAS,
+                r -> {
+                    Mascota m = new Mascota();
+                    m.setNombre(r.valor("nombre"));
+                    m.setEspecie(r.valor("especie"));
+                    m.setRaza(r.valor("raza"));
+                    String fecha = r.valor("fechanacimiento");
+                    if (fecha != null) {
+                        try {
+                            m.setFechaNacimiento(LocalDate.parse(fecha));
+                        } catch (DateTimeParseException ex) {
+                            throw new IllegalArgumentException("fechaNacimiento: formato inválido (yyyy-MM-dd)");
+                        }
+                    }
+                    String peso = r.valor("peso");
+                    if (peso != null) {
+                        try {
+                            m.setPeso(Double.valueOf(peso.replace(',', '.')));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("peso: debe ser un número");
+                        }
+                    }
+                    String dni = r.valor("dnicliente");
+                    Long clienteId = dni != null ? clientes.get(dni.toUpperCase(Locale.ROOT)) : null;
+                    if (clienteId == null) {
+                        throw new IllegalArgumentException("No existe ningún cliente con DNI " + dni);
+                    }
+                    // Referencia provisional: se sustituye por un proxy al persistir
+                    Cliente propietario = new Cliente();
+                    propietario.setId(clienteId);
+                    m.setCliente(propietario);
+                    return m;
+                },
+                m -> null,
+                mascotas -> {
+                    Set<Long> propietarios = new HashSet<>();
+                    for (Mascota m : mascotas) {
+                        m.setCliente(entityManager.getReference(Cliente.class, m.getCliente().getId()));
+                        entityManager.persist(m);
+                        propietarios.add(m.getCliente().getId());
+                    }
+                    // Una invalidación por propietario, no por mascota
+                    propietarios.forEach(resumenService::invalidar);
+                },
+                confirmado -> {
+                    // Sin estado por lote
+                });
+    }
+
+    // --- Métodos auxiliares ---
+
+    private <T> ImportacionResultadoDTO importar(InputStream entrada, List<String> obligatorias,
+            Function<Registro, T> conversor, Function<T, String> comprobarUnicidad, Consumer<List<T>> persistir,
+            Consumer<Boolean> alTerminarLote) throws IOException {
+
+        Informe informe = new Informe();
+        try (LectorCsv lector = new LectorCsv(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            Map<String, Integer> cabecera = leerCabecera(lector.siguiente(), obligatorias);
+
+            List<Registro> lote = new ArrayList<>(tamanoLote);
+            List<String> campos;
+            while ((campos = lector.siguiente()) != null) {
+                if (campos.stream().allMatch(String::isBlank)) {
+                    continue;
+                }
+                informe.leidos++;
+                lote.add(new Registro(lector.getLineaRegistro(), campos, cabecera));
+                if (lote.size() == tamanoLote) {
+                    procesarLote(lote, conversor, comprobarUnicidad, persistir, alTerminarLote, informe);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                procesarLote(lote, conversor, comprobarUnicidad, persistir, alTerminarLote, informe);
+            }
+        }
+        return informe.toDTO();
+    }
+
+    private Map<String, Integer> leerCabecera(List<String> campos, List<String> obligatorias) {
+        if (campos == null) {
+            throw new IllegalArgumentException("El fichero está vacío");
+        }
+        Map<String, Integer> cabecera = new HashMap<>();
+        for (int i = 0; i < campos.size(); i++) {
+            String nombre = campos.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+            cabecera.put(nombre, i);
+        }
+        List<String> faltan = obligatorias.stream().filter(c -> !cabecera.containsKey(c)).toList();
+        if (!faltan.isEmpty()) {
+            throw new IllegalArgumentException("Faltan columnas obligatorias en la cabecera: " + faltan);
+        }
+        return cabecera;
+    }
+
+    /**
+     * Convierte, valida e inserta un lote.
+     *
+     * @param persistir      Persiste los registros válidos dentro de la
+     *                       transacción del lote.
+     * @param alTerminarLote Recibe true si el lote se ha confirmado y false si
+     *                       la base de datos lo ha rechazado (o no tenía
+     *                       registros válidos).
+     */
+    private <T> void procesarLote(List<Registro> lote, Function<Registro, T> conversor,
+            Function<T, String> comprobarUnicidad, Consumer<List<T>> persistir, Consumer<Boolean> alTerminarLote,
+            Informe informe) {
+
+        // 1. Conversión y Bean Validation en paralelo (el orden se conserva)
+        List<Procesado<T>> procesados = lote.parallelStream()
+                .map(r -> convertirYValidar(r, conversor))
+                .toList();
+
+        // 2. Unicidad en secuencia, contra los lotes ya confirmados y el propio
+        List<T> validos = new ArrayList<>(procesados.size());
+        List<Long> lineas = new ArrayList<>(procesados.size());
+        for (Procesado<T> p : procesados) {
+            String error = p.error() != null ? p.error() : comprobarUnicidad.apply(p.entidad());
+            if (error != null) {
+                informe.error(p.linea(), error);
+            } else {
+                validos.add(p.entidad());
+                lineas.add(p.linea());
+            }
+        }
+        if (validos.isEmpty()) {
+            alTerminarLote.accept(false);
+            return;
+        }
+
+        // 3. Inserción del lote en su propia transacción (INSERT agrupados por JDBC)
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                persistir.accept(validos);
+                entityManager.flush();
+                entityManager.clear();
+            });
+            informe.importados += validos.size();
+            alTerminarLote.accept(true);
+        } catch (DataAccessException | PersistenceException | TransactionException ex) {
+            String mensaje = "Lote rechazado por la base de datos: "
+                    + NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+            lineas.forEach(linea -> informe.error(linea, mensaje));
+            alTerminarLote.accept(false);
+        }
+    }
+
+    private <T> Procesado<T> convertirYValidar(Registro registro, Function<Registro, T> conversor) {
+        T entidad;
+        try {
+            entidad = conversor.apply(registro);
+        } catch (IllegalArgumentException ex) {
+            return new Procesado<>(registro.linea(), null, ex.getMessage());
+        }
+        Set<ConstraintViolation<T>> violaciones = validator.validate(entidad);
+        if (!violaciones.isEmpty()) {
+            String error = violaciones.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return new Procesado<>(registro.linea(), null, error);
+        }
+        return new Procesado<>(registro.linea(), entidad, null);
+    }
+}
@@ -0,0 +1,94 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV mínimo (RFC 4180) que devuelve los registros de uno en uno.
+ * Admite campos entre comillas con comas, comillas dobles ("") y saltos de
+ * línea internos, y lleva la cuenta de la línea del fichero en la que empieza
+ * cada registro para los informes de error. No retiene nada más que el
+ * registro en curso.
+ */
+public class LectorCsv implements Closeable {
+
+    private final BufferedReader reader;
+
+    private long linea = 1;
+
+    private long lineaRegistro;
+
+    public LectorCsv(Reader reader) {
+        this.reader = reader instanceof BufferedReader br ? br : new BufferedReader(reader, 64 * 1024);
+    }
+
+    /**
+     * Lee el siguiente registro.
+     *
+     * @return Campos del registro, o null al final del fichero.
+     * @throws IOException si falla la lectura o hay comillas sin cerrar.
+     */
+    public List<String> siguiente() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        lineaRegistro = linea;
+
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        while (true) {
+            if (entreComillas) {
+                if (c == -1) {
+                    throw new IOException("Comillas sin cerrar en el registro de la línea " + lineaRegistro);
+                }
+                if (c == '"') {
+                    int siguiente = reader.read();
+                    if (siguiente != '"') {
+                        entreComillas = false;
+                        c = siguiente;
+                        continue;
+                    }
+                    campo.append('"');
+                } else {
+                    if (c == '\n') {
+                        linea++;
+                    }
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.isEmpty()) {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                if (c == '\n') {
+                    linea++;
+                }
+                campos.add(campo.toString());
+                return campos;
+            } else if (c != '\r') {
+                campo.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    /**
+     * Línea del fichero (empezando en 1) en la que comienza el último registro
+     * leído.
+     */
+    public long getLineaRegistro() {
+        return lineaRegistro;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
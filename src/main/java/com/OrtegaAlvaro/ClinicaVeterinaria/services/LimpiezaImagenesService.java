@@ -0,0 +1,286 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.LimpiezaImagenesDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.exceptions.ConflictoException;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.ImagenReferenciaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.MascotaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.AlmacenImagenes.Fichero;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.MiniaturaService.Variante;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Borra periódicamente las imágenes que ya no usa ninguna mascota: las de
+ * subidas cuya mascota no llegó a guardarse, las de borrados que fallaron a
+ * medias, etc.
+ * Cada pasada:
+ * 1. Recorre mascota.imagen_url con un cursor y guarda una huella de 64 bits
+ * de cada nombre en un long[] ordenado (8 bytes por imagen, sin objetos).
+ * 2. Recorre el almacén en streaming y borra los ficheros (y variantes) cuya
+ * huella no aparece y que tienen más antigüedad que el periodo de gracia, a un
+ * ritmo máximo de ficheros por segundo para no saturar el disco.
+ * Una colisión de huellas solo puede hacer que se conserve un huérfano, nunca
+ * que se borre una imagen en uso. El registro de imagen_ref se elimina en la
+ * misma transacción, salvo que una subida lo haya usado hace poco.
+ */
+@Service
+public class LimpiezaImagenesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LimpiezaImagenesService.class);
+
+    /** Cada cuántos ficheros se comprueba el ritmo. */
+    private static final int LOTE_RITMO = 100;
+
+    private final MascotaRepository mascotaRepository;
+
+    private final ImagenReferenciaRepository referenciaRepository;
+
+    private final AlmacenImagenes almacen;
+
+    private final CacheImagenService cacheImagenes;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate lectura;
+
+    private final Duration gracia;
+
+    private final int ficherosPorSegundo;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    // Última pasada
+    private volatile LocalDateTime inicio;
+    private volatile LocalDateTime fin;
+    private volatile long referenciadas;
+    private final AtomicLong revisados = new AtomicLong();
+    private final AtomicLong borrados = new AtomicLong();
+    private final AtomicLong bytesLiberados = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+
+    // Desde el arranque
+    private final AtomicLong totalBorrados = new AtomicLong();
+    private final AtomicLong totalBytesLiberados = new AtomicLong();
+
+    public LimpiezaImagenesService(MascotaRepository mascotaRepository,
+            ImagenReferenciaRepository referenciaRepository, AlmacenImagenes almacen,
+            CacheImagenService cacheImagenes, TransactionTemplate transactionTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${imagenes.limpieza.gracia:PT24H}") Duration gracia,
+            @Value("${imagenes.limpieza.ficheros-por-segundo:500}") int ficherosPorSegundo) {
+        this.mascotaRepository = mascotaRepository;
+        this.referenciaRepository = referenciaRepository;
+        this.almacen = almacen;
+        this.cacheImagenes = cacheImagenes;
+        this.transactionTemplate = transactionTemplate;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.gracia = gracia;
+        this.ficherosPorSegundo = ficherosPorSegundo;
+    }
+
+    /**
+     * Pasada programada. Si ya hay una en curso (lanzada a mano) no hace nada.
+     */
+    @Scheduled(cron = "${imagenes.limpieza.cron:0 30 3 * * *}")
+    public void limpiarProgramado() {
+        if (enCurso.compareAndSet(false, true)) {
+            reiniciar();
+            limpiar();
+        }
+    }
+
+    /**
+     * Lanza una pasada en segundo plano.
+     *
+     * @return El estado recién iniciado.
+     * @throws ConflictoException si ya hay una pasada en curso.
+     */
+    public LimpiezaImagenesDTO iniciar() {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new ConflictoException("Ya hay una limpieza de imágenes en curso.");
+        }
+        reiniciar();
+        Thread.ofVirtual().name("limpieza-imagenes").start(this::limpiar);
+        return estado();
+    }
+
+    public LimpiezaImagenesDTO estado() {
+        return new LimpiezaImagenesDTO(enCurso.get(), inicio, fin, referenciadas, revisados.get(), borrados.get(),
+                bytesLiberados.get(), errores.get(), totalBorrados.get(), totalBytesLiberados.get());
+    }
+
+    // --- Métodos auxiliares ---
+
+    private void reiniciar() {
+        inicio = LocalDateTime.now();
+        fin = null;
+        referenciadas = 0;
+        revisados.set(0);
+        borrados.set(0);
+        bytesLiberados.set(0);
+        errores.set(0);
+    }
+
+    /**
+     * Ejecuta una pasada completa. Debe llamarse con enCurso ya a true.
+     */
+    private void limpiar() {
+        try {
+            long[] huellas = huellasReferenciadas();
+            referenciadas = huellas.length;
+            // Las subidas posteriores a este instante nunca se tocan, aunque su
+            // mascota no estuviera aún en el listado
+            Instant limite = Instant.now().minus(gracia);
+            recorrerAlmacen(huellas, limite);
+        } catch (RuntimeException ex) {
+            logger.error("Limpieza de imágenes interrumpida: {}", ex.getMessage());
+        } finally {
+            fin = LocalDateTime.now();
+            enCurso.set(false);
+            logger.info("Limpieza de imágenes terminada: {} revisados, {} huérfanos borrados ({} bytes), {} errores",
+                    revisados.get(), borrados.get(), bytesLiberados.get(), errores.get());
+        }
+    }
+
+    /**
+     * Huellas ordenadas y sin repetir de los nombres de imagen en uso.
+     */
+    private long[] huellasReferenciadas() {
+        return lectura.execute(status -> {
+            long[] huellas = new long[1024];
+            int n = 0;
+            try (Stream<String> urls = mascotaRepository.streamImagenes()) {
+                for (Iterator<String> it = urls.iterator(); it.hasNext();) {
+                    String url = it.next();
+                    if (n == huellas.length) {
+                        huellas = Arrays.copyOf(huellas, n * 2);
+                    }
+                    huellas[n++] = huella(url.substring(url.lastIndexOf('/') + 1));
+                }
+            }
+            Arrays.sort(huellas, 0, n);
+            // Sin repetidos (imágenes deduplicadas compartidas por varias mascotas)
+            int unicos = 0;
+            for (int i = 0; i < n; i++) {
+                if (unicos == 0 || huellas[unicos - 1] != huellas[i]) {
+                    huellas[unicos++] = huellas[i];
+                }
+            }
+            return Arrays.copyOf(huellas, unicos);
+        });
+    }
+
+    private void recorrerAlmacen(long[] huellas, Instant limite) {
+        long comienzo = System.nanoTime();
+        long nanosPorFichero = 1_000_000_000L / Math.max(1, ficherosPorSegundo);
+
+        try (Stream<Fichero> ficheros = almacen.listar()) {
+            for (Iterator<Fichero> it = ficheros.iterator(); it.hasNext();) {
+                Fichero fichero = it.next();
+                long n = revisados.incrementAndGet();
+                if (n % LOTE_RITMO == 0) {
+                    esperarRitmo(comienzo, n * nanosPorFichero);
+                }
+
+                if (!fichero.modificado().isBefore(limite)
+                        || Arrays.binarySearch(huellas, huella(fichero.nombre())) >= 0) {
+                    continue;
+                }
+                try {
+                    if (borrarHuerfano(fichero.nombre(), limite)) {
+                        borrados.incrementAndGet();
+                        totalBorrados.incrementAndGet();
+                        bytesLiberados.addAndGet(fichero.tamano());
+                        totalBytesLiberados.addAndGet(fichero.tamano());
+                    }
+                } catch (RuntimeException ex) {
+                    errores.incrementAndGet();
+                    logger.warn("No se pudo borrar la imagen huérfana {}: {}", fichero.nombre(), ex.getMessage());
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Borra un fichero huérfano con la fila de imagen_ref bloqueada, igual que
+     * ImagenService.borrarImagen, para no cruzarse con una subida del mismo
+     * contenido.
+     *
+     * @return false si una subida reciente ha vuelto a usar la imagen.
+     */
+    private boolean borrarHuerfano(String nombre, Instant limite) {
+        LocalDateTime limiteLocal = LocalDateTime.ofInstant(limite, ZoneId.systemDefault());
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (referenciaRepository.eliminarHuerfana(nombre, limiteLocal) == 0
+                    && referenciaRepository.existsById(nombre)) {
+                return false;
+            }
+            try {
+                almacen.borrar(nombre);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            cacheImagenes.invalidar(List.of(nombre));
+            return true;
+        }));
+    }
+
+    private static void esperarRitmo(long comienzo, long nanosEsperados) {
+        long adelanto = nanosEsperados - (System.nanoTime() - comienzo);
+        if (adelanto > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(adelanto));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Limpieza de imágenes interrumpida", ex);
+            }
+        }
+    }
+
+    /**
+     * Huella de 64 bits (FNV-1a) del nombre de la imagen original. Las
+     * variantes ({base}-thumb.jpg) dan la misma huella que su original, así que
+     * se conservan o se borran con él.
+     */
+    private static long huella(String nombre) {
+        String base = null;
+        for (Variante variante : Variante.values()) {
+            String sufijo = variante.sufijo() + ".jpg";
+            if (variante != Variante.FULL && nombre.endsWith(sufijo)) {
+                base = nombre.substring(0, nombre.length() - sufijo.length());
+                break;
+            }
+        }
+        if (base == null) {
+            int punto = nombre.lastIndexOf('.');
+            base = punto > 0 ? nombre.substring(0, punto) : nombre;
+        }
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < base.length(); i++) {
+            h ^= base.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -1,9 +1,11 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.services;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.MascotaDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.MascotaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -21,6 +23,12 @@ public class MascotaService {
     @Autowired
     private MascotaRepository mascotaRepository;
 
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    @Autowired
+    private CacheDatosService cacheDatos;
+
     /**
      * Recupera el censo completo de mascotas registradas en el sistema.
      * 
@@ -47,6 +55,28 @@ public class MascotaService {
         return mascotaRepository.findById(id);
     }
 
+    /**
+     * Ficha de una mascota como DTO, desde la caché si está.
+     * Se devuelve una copia: modificarla no afecta a la caché.
+     *
+     * @param id Identificador de la mascota.
+     * @return El DTO, o vacío si la mascota no existe.
+     */
+    public Optional<MascotaDTO> findDTOById(Long id) {
+        return cacheDatos.obtener(CacheDatosService.MASCOTAS, id,
+                () -> mascotaRepository.findById(id).map(MascotaService::toDTO), MascotaDTO::copia);
+    }
+
+    /**
+     * Recupera varias mascotas en una sola consulta IN.
+     *
+     * @param ids Identificadores pedidos.
+     * @return Las mascotas existentes, en el orden de los IDs y sin repetidos.
+     */
+    public List<Mascota> findAllByIds(List<Long> ids) {
+        return ConsultasPorId.enOrden(ids, mascotaRepository.findAllByIdIn(ids), Mascota::getId);
+    }
+
     /**
      * Obtiene la lista de mascotas pertenecientes a un cliente específico.
      * Esencial para la vista de detalle del cliente, donde se muestran sus
@@ -64,8 +94,14 @@ public class MascotaService {
      * @param mascota Entidad con los datos a guardar.
      * @return La mascota persistida.
      */
+    @Transactional
     public Mascota save(Mascota mascota) {
-        return mascotaRepository.save(mascota);
+        Mascota guardada = mascotaRepository.save(mascota);
+        resumenService.invalidar(clienteDe(guardada));
+        cacheDatos.invalidar(CacheDatosService.MASCOTAS, guardada.getId());
+        // El nombre de la mascota aparece en el DTO de sus citas
+        cacheDatos.vaciar(CacheDatosService.CITAS);
+        return guardada;
     }
 
     /**
@@ -73,7 +109,34 @@ public class MascotaService {
      * 
      * @param id Identificador de la mascota a dar de baja.
      */
+    @Transactional
     public void deleteById(Long id) {
+        Long clienteId = mascotaRepository.findById(id).map(MascotaService::clienteDe).orElse(null);
         mascotaRepository.deleteById(id);
+        resumenService.invalidar(clienteId);
+        cacheDatos.invalidar(CacheDatosService.MASCOTAS, id);
+        cacheDatos.vaciar(CacheDatosService.CITAS, CacheDatosService.TRATAMIENTOS);
+    }
+
+    // --- Conversiones Entity → DTO ---
+
+    public static MascotaDTO toDTO(Mascota m) {
+        MascotaDTO dto = new MascotaDTO();
+        dto.setId(m.getId());
+        dto.setNombre(m.getNombre());
+        dto.setEspecie(m.getEspecie());
+        dto.setRaza(m.getRaza());
+        dto.setFechaNacimiento(m.getFechaNacimiento());
+        dto.setPeso(m.getPeso());
+        dto.setImagenUrl(m.getImagenUrl());
+        if (m.getCliente() != null) {
+            dto.setClienteId(m.getCliente().getId());
+            dto.setClienteNombre(m.getCliente().getNombre() + " " + m.getCliente().getApellidos());
+        }
+        return dto;
+    }
+
+    private static Long clienteDe(Mascota mascota) {
+        return mascota.getCliente() != null ? mascota.getCliente().getId() : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Elimina los metadatos (EXIF, GPS, XMP, IPTC, comentarios...) de un JPEG o
+ * PNG copiando sus segmentos, sin decodificar ni recomprimir los píxeles.
+ * Se conserva lo necesario para mostrar la imagen igual: tablas, perfil de
+ * color ICC, transparencia y, en JPEG, la orientación EXIF (en un bloque EXIF
+ * nuevo que solo la contiene). También se descartan los datos añadidos tras
+ * el final de la imagen (las vistas previas de algunos móviles llevan su
+ * propio EXIF).
+ */
+final class MetadatosImagen {
+
+    /** Etiqueta EXIF de orientación. */
+    static final int EXIF_ORIENTACION = 0x0112;
+
+    private static final byte[] FIRMA_PNG = { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A };
+
+    /** Bloques PNG de texto, EXIF y fecha: no afectan a los píxeles. */
+    private static final Set<String> METADATOS_PNG = Set.of("tEXt", "zTXt", "iTXt", "eXIf", "tIME");
+
+    private static final byte[] ICC_PROFILE = "ICC_PROFILE\0".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] EXIF = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ADOBE = "Adobe".getBytes(StandardCharsets.US_ASCII);
+
+    private MetadatosImagen() {
+    }
+
+    /**
+     * Copia 'origen' en 'destino' sin metadatos.
+     *
+     * @param extension ".jpg" o ".png".
+     * @throws IOException si el fichero no tiene la estructura esperada.
+     */
+    static void quitar(Path origen, Path destino, String extension) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(origen)));
+                DataOutputStream salida = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(destino)))) {
+            if (".png".equals(extension)) {
+                quitarPng(entrada, salida);
+            } else {
+                quitarJpeg(entrada, salida);
+            }
+        }
+    }
+
+    /**
+     * Busca la orientación en el primer IFD de un bloque "Exif\0\0" + TIFF.
+     *
+     * @return Orientación EXIF (1-8); 1 si no hay o no se puede leer.
+     */
+    static int orientacionTiff(byte[] datos) {
+        if (datos.length < 14 || !empiezaPor(datos, EXIF)) {
+            return 1;
+        }
+        try {
+            ByteBuffer tiff = ByteBuffer.wrap(datos, 6, datos.length - 6).slice();
+            tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            int ifd = tiff.getInt(4);
+            int entradas = tiff.getShort(ifd) & 0xFFFF;
+            for (int i = 0; i < entradas; i++) {
+                int entrada = ifd + 2 + i * 12;
+                if ((tiff.getShort(entrada) & 0xFFFF) == EXIF_ORIENTACION) {
+                    int valor = tiff.getShort(entrada + 8) & 0xFFFF;
+                    return valor >= 1 && valor <= 8 ? valor : 1;
+                }
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            // Bloque EXIF truncado o corrupto: se ignora
+        }
+        return 1;
+    }
+
+    // --- Métodos auxiliares ---
+
+    private static void quitarJpeg(DataInputStream entrada, DataOutputStream salida) throws IOException {
+        if (entrada.readUnsignedShort() != 0xFFD8) {
+            throw new IOException("No es un JPEG");
+        }
+        salida.writeShort(0xFFD8);
+        boolean orientacionEscrita = false;
+        while (true) {
+            if (entrada.readUnsignedByte() != 0xFF) {
+                throw new IOException("Marcador JPEG no válido");
+            }
+            int marcador;
+            do {
+                marcador = entrada.readUnsignedByte();
+            } while (marcador == 0xFF);
+
+            if (marcador == 0xD9) {
+                salida.writeShort(0xFFD9);
+                return;
+            }
+            if (marcador == 0x01 || (marcador >= 0xD0 && marcador <= 0xD7)) {
+                // Marcadores sin longitud
+                salida.writeShort(0xFF00 | marcador);
+                continue;
+            }
+            int longitud = entrada.readUnsignedShort();
+            if (longitud < 2) {
+                throw new IOException("Segmento JPEG no válido");
+            }
+            byte[] datos = leer(entrada, longitud - 2);
+
+            if (conservar(marcador, datos)) {
+                escribirSegmento(salida, marcador, datos);
+            } else if (marcador == 0xE1 && !orientacionEscrita && empiezaPor(datos, EXIF)) {
+                int orientacion = orientacionTiff(datos);
+                if (orientacion != 1) {
+                    escribirSegmento(salida, 0xE1, exifOrientacion(orientacion));
+                }
+                orientacionEscrita = true;
+            }
+
+            if (marcador == 0xDA) {
+                copiarHastaFin(entrada, salida);
+                return;
+            }
+        }
+    }
+
+    /**
+     * APP0 (JFIF), perfil ICC en APP2 y APP14 (Adobe, indica el espacio de
+     * color) se conservan, igual que todos los segmentos que no son APPn ni
+     * comentarios. El resto de APPn (EXIF, XMP, IPTC...) y COM se eliminan.
+     */
+    private static boolean conservar(int marcador, byte[] datos) {
+        if (marcador == 0xFE) {
+            return false;
+        }
+        if (marcador < 0xE0 || marcador > 0xEF) {
+            return true;
+        }
+        return marcador == 0xE0 || (marcador == 0xE2 && empiezaPor(datos, ICC_PROFILE))
+                || (marcador == 0xEE && empiezaPor(datos, ADOBE));
+    }
+
+    /**
+     * Copia los datos de la imagen hasta el marcador de fin (EOI). Dentro de
+     * los datos comprimidos un 0xFF va siempre seguido de 0x00 o de un
+     * marcador de reinicio, así que el primer FF D9 es el final.
+     */
+    private static void copiarHastaFin(DataInputStream entrada, DataOutputStream salida) throws IOException {
+        int anterior = 0;
+        int b;
+        while ((b = entrada.read()) != -1) {
+            salida.write(b);
+            if (anterior == 0xFF && b == 0xD9) {
+                return;
+            }
+            anterior = b;
+        }
+    }
+
+    /**
+     * Bloque EXIF mínimo (TIFF big-endian con un único IFD) que solo contiene
+     * la orientación.
+     */
+    private static byte[] exifOrientacion(int orientacion) {
+        ByteBuffer exif = ByteBuffer.allocate(EXIF.length + 26).order(ByteOrder.BIG_ENDIAN);
+        exif.put(EXIF);
+        exif.put((byte) 'M').put((byte) 'M').putShort((short) 42).putInt(8);
+        exif.putShort((short) 1);
+        // Etiqueta, tipo SHORT, 1 valor, valor (alineado a la izquierda)
+        exif.putShort((short) EXIF_ORIENTACION).putShort((short) 3).putInt(1)
+                .putShort((short) orientacion).putShort((short) 0);
+        exif.putInt(0);
+        return exif.array();
+    }
+
+    private static void escribirSegmento(DataOutputStream salida, int marcador, byte[] datos) throws IOException {
+        salida.writeShort(0xFF00 | marcador);
+        salida.writeShort(datos.length + 2);
+        salida.write(datos);
+    }
+
+    private static void quitarPng(DataInputStream entrada, DataOutputStream salida) throws IOException {
+        if (!Arrays.equals(leer(entrada, FIRMA_PNG.length), FIRMA_PNG)) {
+            throw new IOException("No es un PNG");
+        }
+        salida.write(FIRMA_PNG);
+        while (true) {
+            int longitud = entrada.readInt();
+            if (longitud < 0) {
+                throw new IOException("Bloque PNG no válido");
+            }
+            byte[] tipo = leer(entrada, 4);
+            String nombre = new String(tipo, StandardCharsets.US_ASCII);
+            if (METADATOS_PNG.contains(nombre)) {
+                // Datos y CRC
+                entrada.skipNBytes(longitud + 4L);
+            } else {
+                salida.writeInt(longitud);
+                salida.write(tipo);
+                copiar(entrada, salida, longitud + 4L);
+            }
+            if ("IEND".equals(nombre)) {
+                return;
+            }
+        }
+    }
+
+    private static void copiar(InputStream entrada, OutputStream salida, long bytes) throws IOException {
+        byte[] buffer = new byte[8192];
+        long pendientes = bytes;
+        while (pendientes > 0) {
+            int leidos = entrada.read(buffer, 0, (int) Math.min(buffer.length, pendientes));
+            if (leidos < 0) {
+                throw new EOFException("Fichero de imagen truncado");
+            }
+            salida.write(buffer, 0, leidos);
+            pendientes -= leidos;
+        }
+    }
+
+    private static byte[] leer(InputStream entrada, int bytes) throws IOException {
+        byte[] datos = entrada.readNBytes(bytes);
+        if (datos.length < bytes) {
+            throw new EOFException("Fichero de imagen truncado");
+        }
+        return datos;
+    }
+
+    private static boolean empiezaPor(byte[] datos, byte[] prefijo) {
+        return datos.length >= prefijo.length && Arrays.equals(datos, 0, prefijo.length, prefijo, 0, prefijo.length);
+    }
+}
@@ -0,0 +1,92 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.MigracionAlmacenDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.exceptions.ConflictoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mueve las imágenes de la estructura plana antigua (todas directamente en
+ * upload.dir) al almacén configurado, sin parar el servicio.
+ * Cada fichero se mueve de forma atómica (o se sube al bucket y después se
+ * retira), y los almacenes siguen buscando en la estructura plana lo que aún
+ * no se ha movido, así que las descargas funcionan durante toda la migración.
+ * Se puede relanzar sin riesgo: solo quedan en la raíz los ficheros
+ * pendientes.
+ */
+@Service
+public class MigracionAlmacenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracionAlmacenService.class);
+
+    private final Path raiz;
+
+    private final AlmacenImagenes almacen;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+    private final AtomicLong migradas = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+    private volatile LocalDateTime inicio;
+    private volatile LocalDateTime fin;
+
+    public MigracionAlmacenService(@Value("${upload.dir}") String uploadDir, AlmacenImagenes almacen) {
+        this.raiz = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.almacen = almacen;
+    }
+
+    /**
+     * Lanza la migración en segundo plano.
+     *
+     * @return El estado recién iniciado.
+     * @throws ConflictoException si ya hay una migración en curso.
+     */
+    public MigracionAlmacenDTO iniciar() {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new ConflictoException("Ya hay una migración de imágenes en curso.");
+        }
+        migradas.set(0);
+        errores.set(0);
+        inicio = LocalDateTime.now();
+        fin = null;
+        Thread.ofVirtual().name("migracion-imagenes").start(this::migrar);
+        return estado();
+    }
+
+    public MigracionAlmacenDTO estado() {
+        return new MigracionAlmacenDTO(enCurso.get(), migradas.get(), errores.get(), inicio, fin);
+    }
+
+    private void migrar() {
+        // El directorio se recorre en streaming: no se carga el listado entero
+        try (DirectoryStream<Path> ficheros = Files.newDirectoryStream(raiz,
+                f -> Files.isRegularFile(f) && !f.getFileName().toString().startsWith("."))) {
+            for (Path fichero : ficheros) {
+                String nombre = fichero.getFileName().toString();
+                try {
+                    almacen.guardar(nombre, fichero);
+                    migradas.incrementAndGet();
+                } catch (IOException | RuntimeException ex) {
+                    errores.incrementAndGet();
+                    logger.warn("No se pudo migrar la imagen {}: {}", nombre, ex.getMessage());
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Migración de imágenes interrumpida: {}", ex.getMessage());
+        } finally {
+            fin = LocalDateTime.now();
+            enCurso.set(false);
+            logger.info("Migración de imágenes terminada: {} migradas, {} errores", migradas.get(), errores.get());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Genera versiones reducidas de las imágenes de las mascotas para listados y
+ * tarjetas, de modo que no haya que descargar la foto original completa.
+ * Las variantes se calculan en segundo plano con ImageIO, en hilos virtuales
+ * limitados por un semáforo (decodificar una foto grande consume mucha
+ * memoria), y se guardan en el almacén como {nombre}-{variante}.jpg.
+ * Mientras no existan, se sirve el original.
+ */
+@Service
+public class MiniaturaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MiniaturaService.class);
+
+    /**
+     * Tamaños disponibles. 'ladoMaximo' es el lado mayor de la variante en
+     * píxeles; FULL es la imagen original.
+     */
+    public enum Variante {
+        THUMB(160), CARD(480), FULL(0);
+
+        private final int ladoMaximo;
+
+        Variante(int ladoMaximo) {
+            this.ladoMaximo = ladoMaximo;
+        }
+
+        public String sufijo() {
+            return "-" + name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * Interpreta el valor del parámetro ?size= sin distinguir mayúsculas.
+         *
+         * @throws IllegalArgumentException si no es thumb, card o full.
+         */
+        public static Variante desde(String valor) {
+            for (Variante v : values()) {
+                if (v.name().equalsIgnoreCase(valor)) {
+                    return v;
+                }
+            }
+            throw new IllegalArgumentException("Tamaño de imagen no válido: " + valor + " (thumb, card o full)");
+        }
+    }
+
+    /** Variantes que se generan a partir de cada original. */
+    private static final List<Variante> REDUCIDAS = List.of(Variante.THUMB, Variante.CARD);
+
+    private final ExecutorService hilos = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("miniaturas-", 0).factory());
+
+    private final Semaphore enProceso;
+
+    private final long maxPixeles;
+
+    private final AlmacenImagenes almacen;
+
+    public MiniaturaService(@Value("${imagenes.miniaturas.concurrencia:2}") int concurrencia,
+            @Value("${imagenes.miniaturas.max-pixeles:40000000}") long maxPixeles, AlmacenImagenes almacen) {
+        this.enProceso = new Semaphore(concurrencia);
+        this.maxPixeles = maxPixeles;
+        this.almacen = almacen;
+    }
+
+    /**
+     * Programa la generación de las variantes de una imagen recién guardada.
+     * Vuelve de inmediato; los errores se registran y no afectan a la subida.
+     *
+     * @param original Nombre de la imagen original en el almacén.
+     */
+    public void generarEnSegundoPlano(String original) {
+        hilos.submit(() -> {
+            try {
+                enProceso.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                generar(original);
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("No se pudieron generar las variantes de {}: {}", original, ex.getMessage());
+            } finally {
+                enProceso.release();
+            }
+        });
+    }
+
+    /**
+     * Nombre en el almacén de una variante reducida de un original.
+     */
+    public static String nombreVariante(String original, Variante variante) {
+        int punto = original.lastIndexOf('.');
+        String base = punto > 0 ? original.substring(0, punto) : original;
+        return base + variante.sufijo() + ".jpg";
+    }
+
+    /**
+     * Nombres de todas las variantes posibles de un original (existan o no).
+     */
+    public List<String> nombresVariantes(String original) {
+        return REDUCIDAS.stream().map(v -> nombreVariante(original, v)).toList();
+    }
+
+    @PreDestroy
+    void cerrar() {
+        hilos.shutdownNow();
+    }
+
+    // --- Métodos auxiliares ---
+
+    private void generar(String nombre) throws IOException {
+        Path original = almacen.buscar(nombre).orElse(null);
+        if (original == null || superaTamanoMaximo(original)) {
+            return;
+        }
+        BufferedImage imagen = ImageIO.read(original.toFile());
+        if (imagen == null) {
+            // Formato que ImageIO no sabe leer: se seguirá sirviendo el original
+            return;
+        }
+
+        for (Variante variante : REDUCIDAS) {
+            int lado = Math.max(imagen.getWidth(), imagen.getHeight());
+            if (lado <= variante.ladoMaximo) {
+                // El original ya es suficientemente pequeño
+                continue;
+            }
+            double escala = (double) variante.ladoMaximo / lado;
+            int ancho = Math.max(1, (int) Math.round(imagen.getWidth() * escala));
+            int alto = Math.max(1, (int) Math.round(imagen.getHeight() * escala));
+
+            BufferedImage reducida = reducir(imagen, ancho, alto);
+
+            // Se escribe en un temporal y el almacén lo coloca de forma atómica
+            // para que nunca se sirva una variante a medio escribir
+            Path temporal = Files.createTempFile(original.getParent(), ".variante-", ".tmp");
+            try {
+                if (!ImageIO.write(reducida, "jpg", temporal.toFile())) {
+                    throw new IOException("No hay codificador JPEG disponible");
+                }
+                almacen.guardar(nombreVariante(nombre, variante), temporal);
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+        }
+    }
+
+    /**
+     * Comprueba las dimensiones leyendo solo la cabecera, para no decodificar
+     * imágenes desproporcionadas.
+     */
+    private boolean superaTamanoMaximo(Path original) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(original.toFile())) {
+            if (entrada == null) {
+                return true;
+            }
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                return true;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                long pixeles = (long) lector.getWidth(0) * lector.getHeight(0);
+                if (pixeles > maxPixeles) {
+                    logger.info("Imagen {} demasiado grande para generar variantes ({} píxeles)",
+                            original.getFileName(), pixeles);
+                    return true;
+                }
+                return false;
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduce la imagen a la mitad sucesivamente y termina con un último paso
+     * bilineal: da mucha mejor calidad que un único escalado grande.
+     * El resultado es RGB sobre fondo blanco (JPEG no admite transparencia).
+     */
+    static BufferedImage reducir(BufferedImage origen, int ancho, int alto) {
+        BufferedImage actual = origen;
+        int w = origen.getWidth();
+        int h = origen.getHeight();
+        do {
+            w = Math.max(ancho, w / 2);
+            h = Math.max(alto, h / 2);
+            BufferedImage paso = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = paso.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.setBackground(Color.WHITE);
+                g.clearRect(0, 0, w, h);
+                g.drawImage(actual, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            actual = paso;
+        } while (w != ancho || h != alto);
+        return actual;
+    }
+}
@@ -0,0 +1,298 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.util.UriUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Petición HTTP sintética para una operación de /api/batch.
+ * Toma método, ruta, parámetros y cuerpo de la operación y delega el resto
+ * (cabeceras, usuario autenticado, datos de conexión) en la petición original.
+ * Los atributos son propios de cada operación: Spring MVC guarda en ellos la
+ * ruta resuelta, el handler y otros datos que no deben mezclarse entre
+ * operaciones que se ejecutan a la vez.
+ */
+class PeticionInterna extends HttpServletRequestWrapper {
+
+    private final String metodo;
+    private final String ruta;
+    private final String query;
+    private final byte[] cuerpo;
+    private final Map<String, String[]> parametros;
+    private final Map<String, Object> atributos = new ConcurrentHashMap<>();
+
+    PeticionInterna(HttpServletRequest original, String metodo, String rutaConQuery, byte[] cuerpo) {
+        super(original);
+        this.metodo = metodo.toUpperCase(Locale.ROOT);
+        int q = rutaConQuery.indexOf('?');
+        this.ruta = q < 0 ? rutaConQuery : rutaConQuery.substring(0, q);
+        this.query = q < 0 || q == rutaConQuery.length() - 1 ? null : rutaConQuery.substring(q + 1);
+        this.cuerpo = cuerpo;
+        this.parametros = parsearQuery(query);
+    }
+
+    // --- Línea de petición ---
+
+    @Override
+    public String getMethod() {
+        return metodo;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return getContextPath() + ruta;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        return new StringBuffer(getScheme()).append("://").append(getServerName())
+                .append(':').append(getServerPort()).append(getRequestURI());
+    }
+
+    @Override
+    public String getServletPath() {
+        return UriUtils.decode(ruta, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return query;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    // --- Parámetros ---
+
+    @Override
+    public String getParameter(String name) {
+        String[] valores = parametros.get(name);
+        return valores != null && valores.length > 0 ? valores[0] : null;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parametros);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parametros.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parametros.get(name);
+    }
+
+    // --- Cuerpo ---
+
+    @Override
+    public String getContentType() {
+        return cuerpo != null ? MediaType.APPLICATION_JSON_VALUE : null;
+    }
+
+    @Override
+    public int getContentLength() {
+        return cuerpo != null ? cuerpo.length : -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return getContentLength();
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return StandardCharsets.UTF_8.name();
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        ByteArrayInputStream datos = new ByteArrayInputStream(cuerpo != null ? cuerpo : new byte[0]);
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return datos.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            /**
+             * El cuerpo ya está entero en memoria: el listener se avisa en el
+             * acto de que hay datos y, cuando los ha leído, de que no hay más.
+             */
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                Objects.requireNonNull(readListener, "readListener");
+                try {
+                    if (!isFinished()) {
+                        readListener.onDataAvailable();
+                    }
+                    if (isFinished()) {
+                        readListener.onAllDataRead();
+                    }
+                } catch (IOException ex) {
+                    readListener.onError(ex);
+                }
+            }
+
+            @Override
+            public int read() {
+                return datos.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return datos.read(b, off, len);
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    // --- Cabeceras: las de contenido son las de la operación, el resto las originales ---
+
+    @Override
+    public String getHeader(String name) {
+        if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+            return getContentType();
+        }
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            return cuerpo != null ? String.valueOf(cuerpo.length) : null;
+        }
+        return super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            String valor = getHeader(name);
+            return Collections.enumeration(valor != null ? List.of(valor) : List.of());
+        }
+        return super.getHeaders(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        List<String> nombres = new ArrayList<>();
+        for (String nombre : Collections.list(super.getHeaderNames())) {
+            if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(nombre)
+                    && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(nombre)) {
+                nombres.add(nombre);
+            }
+        }
+        if (cuerpo != null) {
+            nombres.add(HttpHeaders.CONTENT_TYPE);
+            nombres.add(HttpHeaders.CONTENT_LENGTH);
+        }
+        return Collections.enumeration(nombres);
+    }
+
+    // --- Atributos aislados ---
+
+    @Override
+    public Object getAttribute(String name) {
+        return atributos.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(atributos.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+        if (o == null) {
+            atributos.remove(name);
+        } else {
+            atributos.put(name, o);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        atributos.remove(name);
+    }
+
+    // --- Sin soporte asíncrono ---
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        throw new IllegalStateException("Las operaciones de /api/batch no admiten respuestas asíncronas");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        throw new IllegalStateException("Las operaciones de /api/batch no admiten respuestas asíncronas");
+    }
+
+    private static Map<String, String[]> parsearQuery(String query) {
+        Map<String, List<String>> valores = new LinkedHashMap<>();
+        if (query != null) {
+            for (String par : query.split("&")) {
+                if (par.isEmpty()) {
+                    continue;
+                }
+                int igual = par.indexOf('=');
+                String nombre = decodificar(igual < 0 ? par : par.substring(0, igual));
+                String valor = igual < 0 ? "" : decodificar(par.substring(igual + 1));
+                valores.computeIfAbsent(nombre, k -> new ArrayList<>()).add(valor);
+            }
+        }
+        Map<String, String[]> resultado = new LinkedHashMap<>();
+        valores.forEach((k, v) -> resultado.put(k, v.toArray(String[]::new)));
+        return resultado;
+    }
+
+    private static String decodificar(String texto) {
+        return URLDecoder.decode(texto, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,317 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reduce y recomprime las fotos al subirlas: los móviles envían fotos de 12
+ * megapíxeles que solo se muestran a unos cientos de píxeles.
+ * - Primero se eliminan los metadatos (EXIF, GPS, XMP...) sin tocar los
+ * píxeles (ver MetadatosImagen); de EXIF solo se conserva la orientación.
+ * - Si la imagen ya cabe en imagenes.procesado.lado-maximo y pesa menos de
+ * imagenes.procesado.tamano-maximo, o es un PNG con transparencia, se queda
+ * así.
+ * - Si no, se reduce al lado máximo (decodificándola ya submuestreada cuando
+ * es mucho mayor, para no tener en memoria todos los píxeles del original),
+ * se aplica la orientación EXIF y se guarda como JPEG con la calidad
+ * configurada. Si el JPEG no ocupa menos que el original, se conserva el
+ * original, salvo que haya que girarlo (las miniaturas no leen la
+ * orientación EXIF).
+ * GIF (puede ser animado) y WEBP (ImageIO no lo lee) se guardan tal cual, con
+ * sus metadatos.
+ * El trabajo se hace en un pool fijo de hilos: el número de fotos
+ * decodificadas a la vez, y por tanto la memoria, está acotado.
+ */
+@Service
+public class ProcesadoImagenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcesadoImagenService.class);
+
+    /** Marcador APP1 de JPEG, donde va el bloque EXIF. */
+    private static final String MARCADOR_APP1 = "225";
+
+    private final ExecutorService hilos;
+
+    private final int ladoMaximo;
+
+    private final float calidad;
+
+    private final long maxPixeles;
+
+    private final long tamanoMaximo;
+
+    public ProcesadoImagenService(@Value("${imagenes.procesado.hilos:2}") int numHilos,
+            @Value("${imagenes.procesado.lado-maximo:1600}") int ladoMaximo,
+            @Value("${imagenes.procesado.calidad:0.82}") float calidad,
+            @Value("${imagenes.miniaturas.max-pixeles:40000000}") long maxPixeles,
+            @Value("${imagenes.procesado.tamano-maximo:400KB}") DataSize tamanoMaximo) {
+        this.hilos = Executors.newFixedThreadPool(numHilos, Thread.ofPlatform().name("procesado-imagen-", 0).factory());
+        this.ladoMaximo = ladoMaximo;
+        this.calidad = calidad;
+        this.maxPixeles = maxPixeles;
+        this.tamanoMaximo = tamanoMaximo.toBytes();
+    }
+
+    /**
+     * Reduce y recomprime una imagen subida, sustituyendo el fichero.
+     * Espera a que termine (las subidas simultáneas ya están limitadas por
+     * LimiteSubidasInterceptor; aquí se limita además la decodificación).
+     *
+     * @param fichero   Fichero temporal con la imagen.
+     * @param extension Formato detectado por sus primeros bytes (".jpg"...).
+     * @return Extensión del fichero resultante.
+     */
+    public String optimizar(Path fichero, String extension) throws IOException {
+        if (!".jpg".equals(extension) && !".png".equals(extension)) {
+            return extension;
+        }
+        try {
+            return hilos.submit(() -> recomprimir(fichero, extension)).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Procesado de imagen interrumpido", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("No se pudo procesar la imagen", ex.getCause());
+        }
+    }
+
+    @PreDestroy
+    void cerrar() {
+        hilos.shutdownNow();
+    }
+
+    // --- Métodos auxiliares ---
+
+    private String recomprimir(Path fichero, String extension) {
+        try {
+            quitarMetadatos(fichero, extension);
+
+            Cabecera cabecera;
+            try {
+                cabecera = leerCabecera(fichero);
+            } catch (IOException | RuntimeException ex) {
+                // Variantes que ImageIO no sabe decodificar (JPEG CMYK, etc.)
+                logger.info("No se pudo decodificar la imagen subida ({}); se guarda tal cual", ex.getMessage());
+                return extension;
+            }
+            if (cabecera == null) {
+                // Sin lector: se guarda tal cual
+                return extension;
+            }
+            if ((long) cabecera.ancho() * cabecera.alto() > maxPixeles) {
+                logger.info("Imagen subida demasiado grande para procesarla ({}x{}); se guarda tal cual",
+                        cabecera.ancho(), cabecera.alto());
+                return extension;
+            }
+
+            long tamano = Files.size(fichero);
+            boolean dentroDeLimites = Math.max(cabecera.ancho(), cabecera.alto()) <= ladoMaximo
+                    && tamano <= tamanoMaximo;
+            if (cabecera.orientacion() == 1 && (cabecera.transparencia() || dentroDeLimites)) {
+                // JPEG no admite transparencia, y lo que ya es pequeño no se
+                // recomprime
+                return extension;
+            }
+
+            BufferedImage imagen;
+            try {
+                imagen = leer(fichero, cabecera.orientacion());
+            } catch (IOException | RuntimeException ex) {
+                logger.info("No se pudo decodificar la imagen subida ({}); se guarda tal cual", ex.getMessage());
+                return extension;
+            }
+
+            Path temporal = fichero.resolveSibling(fichero.getFileName() + ".jpg.tmp");
+            try {
+                escribirJpeg(imagen, temporal);
+                if (cabecera.orientacion() == 1 && Files.size(temporal) >= tamano) {
+                    // Recomprimir no ahorra nada: se conserva el original
+                    return extension;
+                }
+                Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+            return ".jpg";
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Dimensiones, transparencia y orientación EXIF de la imagen, leídas sin
+     * decodificar los píxeles.
+     */
+    private record Cabecera(int ancho, int alto, boolean transparencia, int orientacion) {
+    }
+
+    /**
+     * @return null si no hay lector para el formato.
+     */
+    private static Cabecera leerCabecera(Path fichero) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(fichero.toFile())) {
+            Iterator<ImageReader> lectores = entrada != null ? ImageIO.getImageReaders(entrada) : null;
+            if (lectores == null || !lectores.hasNext()) {
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, false);
+                Iterator<ImageTypeSpecifier> tipos = lector.getImageTypes(0);
+                boolean transparencia = tipos.hasNext() && tipos.next().getColorModel().hasAlpha();
+                return new Cabecera(lector.getWidth(0), lector.getHeight(0), transparencia,
+                        orientacionExif(lector.getImageMetadata(0)));
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    /**
+     * Sustituye el fichero por una copia sin metadatos. Si su estructura no
+     * es la esperada se deja como está.
+     */
+    private static void quitarMetadatos(Path fichero, String extension) throws IOException {
+        Path temporal = fichero.resolveSibling(fichero.getFileName() + ".meta.tmp");
+        try {
+            MetadatosImagen.quitar(fichero, temporal, extension);
+            Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            logger.info("No se pudieron quitar los metadatos de la imagen subida: {}", ex.getMessage());
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Decodifica la imagen ya reducida al tamaño máximo y orientada. Solo se
+     * llama después de leerCabecera, que ya ha comprobado el lector y el
+     * número de píxeles.
+     */
+    private BufferedImage leer(Path fichero, int orientacion) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(fichero.toFile())) {
+            ImageReader lector = ImageIO.getImageReaders(entrada).next();
+            try {
+                lector.setInput(entrada, true, true);
+                int ancho = lector.getWidth(0);
+                int alto = lector.getHeight(0);
+
+                // Submuestreo al decodificar: se lee como mucho al doble del
+                // tamaño final y el último tramo se hace con filtrado
+                int lado = Math.max(ancho, alto);
+                int paso = Math.max(1, lado / (ladoMaximo * 2));
+                ImageReadParam parametros = lector.getDefaultReadParam();
+                parametros.setSourceSubsampling(paso, paso, 0, 0);
+                BufferedImage imagen = lector.read(0, parametros);
+
+                lado = Math.max(imagen.getWidth(), imagen.getHeight());
+                double escala = lado > ladoMaximo ? (double) ladoMaximo / lado : 1.0;
+                int anchoFinal = Math.max(1, (int) Math.round(imagen.getWidth() * escala));
+                int altoFinal = Math.max(1, (int) Math.round(imagen.getHeight() * escala));
+                // También convierte a RGB sobre blanco (JPEG no admite transparencia)
+                imagen = MiniaturaService.reducir(imagen, anchoFinal, altoFinal);
+
+                return orientar(imagen, orientacion);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    private void escribirJpeg(BufferedImage imagen, Path destino) throws IOException {
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream salida = ImageIO.createImageOutputStream(destino.toFile())) {
+            escritor.setOutput(salida);
+            ImageWriteParam parametros = escritor.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(calidad);
+            // Sin metadatos: solo los píxeles
+            escritor.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            escritor.dispose();
+        }
+    }
+
+    /**
+     * Lee la etiqueta de orientación del bloque EXIF (APP1) de un JPEG.
+     *
+     * @return Orientación EXIF (1-8); 1 si no hay o no se puede leer.
+     */
+    private static int orientacionExif(IIOMetadata metadatos) {
+        if (metadatos == null || !"javax_imageio_jpeg_image_1.0".equals(metadatos.getNativeMetadataFormatName())) {
+            return 1;
+        }
+        IIOMetadataNode raiz = (IIOMetadataNode) metadatos.getAsTree("javax_imageio_jpeg_image_1.0");
+        NodeList marcadores = raiz.getElementsByTagName("unknown");
+        for (int i = 0; i < marcadores.getLength(); i++) {
+            IIOMetadataNode marcador = (IIOMetadataNode) marcadores.item(i);
+            if (MARCADOR_APP1.equals(marcador.getAttribute("MarkerTag"))
+                    && marcador.getUserObject() instanceof byte[] datos) {
+                return MetadatosImagen.orientacionTiff(datos);
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Gira o voltea la imagen según la orientación EXIF para que se vea
+     * derecha sin depender de los metadatos.
+     */
+    private static BufferedImage orientar(BufferedImage imagen, int orientacion) {
+        if (orientacion == 1) {
+            return imagen;
+        }
+        int w = imagen.getWidth();
+        int h = imagen.getHeight();
+        AffineTransform t = switch (orientacion) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);   // espejo horizontal
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);  // 180°
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);   // espejo vertical
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);    // trasponer
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);   // 90° horario
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);  // trasversa
+            default -> new AffineTransform(0, -1, 1, 0, 0, w);  // 8: 90° antihorario
+        };
+        boolean girada = orientacion >= 5;
+        BufferedImage destino = new BufferedImage(girada ? h : w, girada ? w : h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = destino.createGraphics();
+        try {
+            g.drawImage(imagen, t, null);
+        } finally {
+            g.dispose();
+        }
+        return destino;
+    }
+}
@@ -0,0 +1,164 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ReasignacionResultadoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Veterinario;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CitaVeterinariaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.VeterinarioRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Servicio que reparte las citas futuras de un veterinario (por ejemplo, ante
+ * una baja) entre los compañeros de su misma especialidad.
+ * Cada cita se asigna al candidato con menos carga de trabajo cuya agenda
+ * tenga libre ese hueco; la carga se mantiene en una cola de prioridad que se
+ * actualiza tras cada asignación. Todo ocurre en una única transacción con las
+ * filas de los veterinarios implicados bloqueadas.
+ */
+@Service
+public class ReasignacionCitasService {
+
+    @Autowired
+    private VeterinarioRepository veterinarioRepository;
+
+    @Autowired
+    private CitaVeterinariaRepository citaRepository;
+
+    @Autowired
+    private CitaVeterinariaService citaService;
+
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    @Autowired
+    private CacheDatosService cacheDatos;
+
+    @Value("${citas.reasignacion.tamano-lote:500}")
+    private int tamanoLote;
+
+    /**
+     * Agenda en memoria de un veterinario candidato durante el reparto.
+     */
+    private static final class Candidato {
+        private final Veterinario veterinario;
+        private final NavigableSet<LocalDateTime> ocupadas = new TreeSet<>();
+        private final List<Long> asignadas = new ArrayList<>();
+
+        private Candidato(Veterinario veterinario) {
+            this.veterinario = veterinario;
+        }
+
+        private int carga() {
+            return ocupadas.size();
+        }
+    }
+
+    /**
+     * Reasigna las citas pendientes futuras del veterinario indicado.
+     * Las citas que no caben en ninguna agenda se quedan con el veterinario de
+     * origen y se devuelven en el resumen para gestionarlas a mano.
+     *
+     * @param veterinarioId Veterinario que deja la clínica.
+     * @return Resumen del reparto.
+     */
+    @Transactional
+    public ReasignacionResultadoDTO reasignarCitasFuturas(Long veterinarioId) {
+        Veterinario origen = veterinarioRepository.findById(veterinarioId)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "El veterinario con ID " + veterinarioId + " no existe."));
+
+        // Bloqueo del origen y de todos los candidatos en orden de ID: ninguna
+        // reserva concurrente puede tocar sus agendas hasta el commit.
+        List<Candidato> candidatos = new ArrayList<>();
+        for (Veterinario v : veterinarioRepository.bloquearEquipo(veterinarioId, origen.getEspecialidad())) {
+            if (!v.getId().equals(veterinarioId)) {
+                candidatos.add(new Candidato(v));
+            }
+        }
+
+        List<Object[]> pendientes = citaRepository.findPendientesDeVeterinario(veterinarioId, LocalDateTime.now());
+        List<Long> sinAsignar = new ArrayList<>();
+        if (pendientes.isEmpty() || candidatos.isEmpty()) {
+            pendientes.forEach(fila -> sinAsignar.add((Long) fila[0]));
+            return new ReasignacionResultadoDTO(veterinarioId, 0, Map.of(), sinAsignar);
+        }
+
+        // Agenda de todos los candidatos en el horizonte afectado, en una sola consulta.
+        Duration duracion = citaService.getDuracionCita();
+        LocalDateTime primera = (LocalDateTime) pendientes.get(0)[1];
+        LocalDateTime ultima = (LocalDateTime) pendientes.get(pendientes.size() - 1)[1];
+        Map<Long, Candidato> porId = new HashMap<>();
+        candidatos.forEach(c -> porId.put(c.veterinario.getId(), c));
+        for (Object[] fila : citaRepository.findHorasOcupadasDeVeterinarios(
+                porId.keySet(), primera.minus(duracion), ultima.plus(duracion))) {
+            porId.get((Long) fila[0]).ocupadas.add((LocalDateTime) fila[1]);
+        }
+
+        // Cola de prioridad por carga (a igualdad, por ID para un reparto estable).
+        PriorityQueue<Candidato> cola = new PriorityQueue<>(
+                Comparator.comparingInt(Candidato::carga)
+                        .thenComparing(c -> c.veterinario.getId()));
+        cola.addAll(candidatos);
+
+        List<Candidato> descartados = new ArrayList<>();
+        for (Object[] fila : pendientes) {
+            Long citaId = (Long) fila[0];
+            LocalDateTime fechaHora = (LocalDateTime) fila[1];
+
+            Candidato elegido = null;
+            while (!cola.isEmpty()) {
+                Candidato c = cola.poll();
+                if (!citaService.haySolapamiento(c.ocupadas, fechaHora)) {
+                    elegido = c;
+                    break;
+                }
+                descartados.add(c);
+            }
+
+            if (elegido != null) {
+                elegido.ocupadas.add(fechaHora);
+                elegido.asignadas.add(citaId);
+                cola.add(elegido);
+            } else {
+                sinAsignar.add(citaId);
+            }
+            cola.addAll(descartados);
+            descartados.clear();
+        }
+
+        // Un UPDATE ... WHERE id IN (...) por veterinario destino y lote.
+        int reasignadas = 0;
+        Map<Long, Integer> reparto = new LinkedHashMap<>();
+        for (Candidato c : candidatos) {
+            if (c.asignadas.isEmpty()) {
+                continue;
+            }
+            for (int i = 0; i < c.asignadas.size(); i += tamanoLote) {
+                List<Long> lote = c.asignadas.subList(i, Math.min(i + tamanoLote, c.asignadas.size()));
+                reasignadas += citaRepository.asignarVeterinario(lote, c.veterinario);
+            }
+            reparto.put(c.veterinario.getId(), c.asignadas.size());
+        }
+        if (reasignadas > 0) {
+            resumenService.invalidarTodos();
+            cacheDatos.vaciar(CacheDatosService.CITAS);
+        }
+
+        return new ReasignacionResultadoDTO(veterinarioId, reasignadas, reparto, sinAsignar);
+    }
+}
@@ -0,0 +1,268 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Respuesta HTTP en memoria para una operación de /api/batch.
+ * Captura estado, cabeceras y cuerpo sin tocar la respuesta original, que solo
+ * se escribe una vez con el resultado combinado de todas las operaciones.
+ */
+class RespuestaInterna extends HttpServletResponseWrapper {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final Map<String, List<String>> cabeceras = new LinkedCaseInsensitiveMap<>();
+    private int status = SC_OK;
+    private String contentType;
+    private String characterEncoding = StandardCharsets.UTF_8.name();
+    private ServletOutputStream salida;
+    private PrintWriter writer;
+
+    RespuestaInterna(HttpServletResponse original) {
+        super(original);
+    }
+
+    /**
+     * Cuerpo escrito por el controlador.
+     */
+    String getCuerpo() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return buffer.toString(Charset.forName(characterEncoding));
+    }
+
+    // --- Estado ---
+
+    @Override
+    public void setStatus(int sc) {
+        this.status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc) {
+        this.status = sc;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        this.status = sc;
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        this.status = SC_FOUND;
+        setHeader(HttpHeaders.LOCATION, location);
+    }
+
+    // --- Cabeceras ---
+
+    @Override
+    public void setHeader(String name, String value) {
+        List<String> valores = new ArrayList<>();
+        valores.add(value);
+        cabeceras.put(name, valores);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        cabeceras.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, formatearFecha(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, formatearFecha(date));
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return cabeceras.containsKey(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> valores = cabeceras.get(name);
+        return valores != null && !valores.isEmpty() ? valores.get(0) : null;
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> valores = cabeceras.get(name);
+        return valores != null ? List.copyOf(valores) : List.of();
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return List.copyOf(cabeceras.keySet());
+    }
+
+    // --- Contenido ---
+
+    @Override
+    public void setContentType(String type) {
+        this.contentType = type;
+        if (type != null) {
+            int i = type.toLowerCase(Locale.ROOT).indexOf("charset=");
+            if (i >= 0) {
+                characterEncoding = type.substring(i + "charset=".length()).trim();
+            }
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if (charset != null) {
+            this.characterEncoding = charset;
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (salida == null) {
+            salida = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * Se escribe en un buffer en memoria, siempre listo: el
+                 * listener puede escribir en el acto.
+                 */
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    Objects.requireNonNull(writeListener, "writeListener");
+                    try {
+                        writeListener.onWritePossible();
+                    } catch (IOException ex) {
+                        writeListener.onError(ex);
+                    }
+                }
+
+                @Override
+                public void write(int b) {
+                    buffer.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    buffer.write(b, off, len);
+                }
+            };
+        }
+        return salida;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(buffer, Charset.forName(characterEncoding)));
+        }
+        return writer;
+    }
+
+    // --- Buffer: nada se envía al cliente hasta el final del batch ---
+
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        cabeceras.clear();
+        status = SC_OK;
+        contentType = null;
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+        buffer.reset();
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public int getBufferSize() {
+        return buffer.size();
+    }
+
+    private static String formatearFecha(long epochMillis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(epochMillis).atZone(ZoneOffset.UTC));
+    }
+}
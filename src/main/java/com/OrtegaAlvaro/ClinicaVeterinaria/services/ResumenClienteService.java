@@ -0,0 +1,106 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenCitaDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenClienteDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenMascotaDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ResumenTratamientoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Cliente;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CitaVeterinariaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.MascotaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.TratamientoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Construye el resumen de un cliente (mascotas → citas → tratamientos) con
+ * tres consultas fijas, una por nivel, y lo une en memoria por ID.
+ * El resultado se guarda en caché por cliente; cualquier escritura sobre los
+ * datos de ese cliente debe llamar a {@link #invalidar(Long)}.
+ */
+@Service
+public class ResumenClienteService {
+
+    public static final String CACHE = "resumenCliente";
+
+    @Autowired
+    private MascotaRepository mascotaRepository;
+
+    @Autowired
+    private CitaVeterinariaRepository citaRepository;
+
+    @Autowired
+    private TratamientoRepository tratamientoRepository;
+
+    @Autowired
+    private CacheDatosService cacheDatos;
+
+    /**
+     * Devuelve el resumen completo del cliente.
+     * Las tres consultas se lanzan en la misma transacción de solo lectura para
+     * que el árbol sea coherente.
+     *
+     * @param cliente Cliente autenticado.
+     * @return Árbol cliente → mascotas → citas → tratamientos.
+     */
+    @Cacheable(cacheNames = CACHE, key = "#cliente.id")
+    @Transactional(readOnly = true)
+    public ResumenClienteDTO obtener(Cliente cliente) {
+        ResumenClienteDTO resumen = new ResumenClienteDTO(cliente.getId(), cliente.getNombre(),
+                cliente.getApellidos(), cliente.getDni(), cliente.getTelefono(), cliente.getDireccion(),
+                cliente.getEmail());
+
+        List<ResumenMascotaDTO> mascotas = mascotaRepository.findResumenByClienteId(cliente.getId());
+        Map<Long, ResumenMascotaDTO> mascotasPorId = new HashMap<>();
+        for (ResumenMascotaDTO m : mascotas) {
+            mascotasPorId.put(m.getId(), m);
+        }
+
+        // Las citas llegan ya ordenadas por fecha descendente: al repartirlas se
+        // conserva ese orden dentro de cada mascota.
+        Map<Long, ResumenCitaDTO> citasPorId = new HashMap<>();
+        for (ResumenCitaDTO c : citaRepository.findResumenByClienteId(cliente.getId())) {
+            ResumenMascotaDTO mascota = mascotasPorId.get(c.getMascotaId());
+            if (mascota != null) {
+                mascota.getCitas().add(c);
+                citasPorId.put(c.getId(), c);
+            }
+        }
+
+        for (ResumenTratamientoDTO t : tratamientoRepository.findResumenByClienteId(cliente.getId())) {
+            ResumenCitaDTO cita = citasPorId.get(t.getCitaId());
+            if (cita != null) {
+                cita.getTratamientos().add(t);
+                if (t.getPrecio() != null) {
+                    cita.setCosteTotal(cita.getCosteTotal() + t.getPrecio());
+                }
+            }
+        }
+
+        resumen.setMascotas(mascotas);
+        return resumen;
+    }
+
+    /**
+     * Descarta el resumen guardado de un cliente, en este nodo y en los demás
+     * (ver CacheDatosService).
+     *
+     * @param clienteId Cliente cuyos datos han cambiado (se ignora si es null).
+     */
+    public void invalidar(Long clienteId) {
+        cacheDatos.invalidar(CACHE, clienteId);
+    }
+
+    /**
+     * Descarta todos los resúmenes. Se usa tras operaciones que afectan a
+     * muchos clientes a la vez (cambios de veterinarios, importaciones, etc.).
+     */
+    public void invalidarTodos() {
+        cacheDatos.vaciar(CACHE);
+    }
+}
@@ -0,0 +1,261 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.SerieCitaDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.SerieCitaEdicionDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.SerieCitaResultadoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CitaVeterinaria;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.SerieCita;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Veterinario;
+import com.OrtegaAlvaro.ClinicaVeterinaria.exceptions.ConflictoException;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CitaVeterinariaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.MascotaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.SerieCitaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.VeterinarioRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Servicio de lógica de negocio para las series de citas periódicas.
+ * Expande la regla de recurrencia bajo demanda, valida cada fecha contra la
+ * agenda del veterinario e inserta las citas por lotes JDBC dentro de una única
+ * transacción (los IDs salen de una secuencia 'pooled', por lo que Hibernate
+ * puede agrupar los INSERT). La edición y cancelación de la serie se resuelven con
+ * sentencias UPDATE sobre todas las citas afectadas.
+ */
+@Service
+public class SerieCitaService {
+
+    @Autowired
+    private SerieCitaRepository serieRepository;
+
+    @Autowired
+    private CitaVeterinariaRepository citaRepository;
+
+    @Autowired
+    private MascotaRepository mascotaRepository;
+
+    @Autowired
+    private VeterinarioRepository veterinarioRepository;
+
+    @Autowired
+    private CitaVeterinariaService citaService;
+
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    @Autowired
+    private CacheDatosService cacheDatos;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${citas.serie.max-ocurrencias:104}")
+    private int maxOcurrencias;
+
+    @Value("${citas.serie.tamano-lote:50}")
+    private int tamanoLote;
+
+    /**
+     * Número máximo de citas que puede generar una serie.
+     */
+    public int getMaxOcurrencias() {
+        return maxOcurrencias;
+    }
+
+    /**
+     * Crea una serie y materializa sus citas.
+     * Si la serie tiene veterinario, su fila queda bloqueada durante la
+     * transacción y cada fecha se valida contra su agenda, cargada con una sola
+     * consulta. Las citas se insertan por lotes de citas.serie.tamano-lote.
+     *
+     * @param dto Regla de recurrencia y datos comunes de las citas.
+     * @return Resumen con el número de citas creadas y las fechas omitidas.
+     * @throws ConflictoException si alguna fecha choca y no se pidió omitirlas.
+     */
+    @Transactional
+    public SerieCitaResultadoDTO crearSerie(SerieCitaDTO dto) {
+        Mascota mascota = mascotaRepository.findById(dto.getMascotaId())
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "La mascota con ID " + dto.getMascotaId() + " no existe."));
+
+        Veterinario veterinario = null;
+        if (dto.getVeterinarioId() != null) {
+            veterinario = veterinarioRepository.bloquearParaReserva(dto.getVeterinarioId())
+                    .orElseThrow(() -> new EntityNotFoundException(
+                            "El veterinario con ID " + dto.getVeterinarioId() + " no existe."));
+        }
+
+        int intervalo = dto.getIntervalo() != null ? dto.getIntervalo() : 1;
+        int limite = dto.getOcurrencias() != null ? Math.min(dto.getOcurrencias(), maxOcurrencias) : maxOcurrencias;
+
+        SerieCita serie = new SerieCita();
+        serie.setFechaInicio(dto.getFechaInicio());
+        serie.setFrecuencia(dto.getFrecuencia());
+        serie.setIntervalo(intervalo);
+        serie.setOcurrencias(limite);
+        serie.setMotivo(dto.getMotivo());
+        serie.setMascota(mascota);
+        serie.setVeterinario(veterinario);
+        serie = serieRepository.saveAndFlush(serie);
+
+        NavigableSet<LocalDateTime> ocupadas = new TreeSet<>();
+        if (veterinario != null) {
+            Duration duracion = citaService.getDuracionCita();
+            LocalDateTime ultima = dto.getFrecuencia().ocurrencia(dto.getFechaInicio(), intervalo, limite - 1);
+            if (dto.getHasta() != null && ultima.isAfter(dto.getHasta())) {
+                ultima = dto.getHasta();
+            }
+            ocupadas.addAll(citaRepository.findHorasOcupadas(veterinario.getId(),
+                    dto.getFechaInicio().minus(duracion), ultima.plus(duracion)));
+        }
+
+        Long veterinarioId = veterinario != null ? veterinario.getId() : null;
+        List<LocalDateTime> omitidas = new ArrayList<>();
+        int creadas = 0;
+        int generadas = 0;
+
+        Iterator<LocalDateTime> fechas = expandir(dto, intervalo, limite).iterator();
+        while (fechas.hasNext()) {
+            LocalDateTime fecha = fechas.next();
+            generadas++;
+
+            if (veterinarioId != null && citaService.haySolapamiento(ocupadas, fecha)) {
+                if (!dto.isOmitirConflictos()) {
+                    throw new ConflictoException("El veterinario con ID " + veterinarioId
+                            + " ya tiene una cita que se solapa con " + fecha + ".");
+                }
+                omitidas.add(fecha);
+                continue;
+            }
+
+            CitaVeterinaria cita = new CitaVeterinaria();
+            cita.setFechaHora(fecha);
+            cita.setMotivo(dto.getMotivo());
+            cita.setMascota(mascota);
+            cita.setVeterinario(veterinario);
+            cita.setSerie(serie);
+            entityManager.persist(cita);
+            creadas++;
+
+            // Cada lote se envía en un único batch JDBC y se libera de memoria
+            if (creadas % tamanoLote == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        Long serieId = serie.getId();
+        entityManager.find(SerieCita.class, serieId).setOcurrencias(generadas);
+        resumenService.invalidar(mascota.getCliente().getId());
+        return new SerieCitaResultadoDTO(serieId, creadas, omitidas);
+    }
+
+    /**
+     * Modifica las citas pendientes de una serie a partir de una fecha.
+     * Si cambia el veterinario, se comprueba que el nuevo tiene libres todas las
+     * fechas antes de lanzar la actualización.
+     *
+     * @param serieId Identificador de la serie.
+     * @param dto     Campos a modificar.
+     * @return Número de citas modificadas.
+     */
+    @Transactional
+    public int editarSerie(Long serieId, SerieCitaEdicionDTO dto) {
+        SerieCita serie = serieRepository.findById(serieId)
+                .orElseThrow(() -> new EntityNotFoundException("La serie con ID " + serieId + " no existe."));
+        LocalDateTime desde = dto.getDesde() != null ? dto.getDesde() : LocalDateTime.now();
+        resumenService.invalidar(serie.getMascota().getCliente().getId());
+        // Las citas se actualizan con UPDATE masivos, sin conocer sus IDs
+        cacheDatos.vaciar(CacheDatosService.CITAS);
+
+        Veterinario veterinario = null;
+        if (dto.getVeterinarioId() != null) {
+            veterinario = veterinarioRepository.bloquearParaReserva(dto.getVeterinarioId())
+                    .orElseThrow(() -> new EntityNotFoundException(
+                            "El veterinario con ID " + dto.getVeterinarioId() + " no existe."));
+            comprobarAgendaParaSerie(serieId, veterinario.getId(), desde);
+            serie.setVeterinario(veterinario);
+        }
+        if (dto.getMotivo() != null) {
+            serie.setMotivo(dto.getMotivo());
+        }
+
+        // Las sentencias UPDATE vacían el contexto de persistencia: los cambios de la
+        // serie se escriben antes (flushAutomatically).
+        int actualizadas = 0;
+        if (veterinario != null) {
+            actualizadas = citaRepository.actualizarVeterinarioDeSerie(serieId, desde, veterinario);
+        }
+        if (dto.getMotivo() != null) {
+            actualizadas = Math.max(actualizadas,
+                    citaRepository.actualizarMotivoDeSerie(serieId, desde, dto.getMotivo()));
+        }
+        return actualizadas;
+    }
+
+    /**
+     * Cancela todas las citas pendientes futuras de una serie.
+     *
+     * @param serieId Identificador de la serie.
+     * @return Número de citas canceladas.
+     */
+    @Transactional
+    public int cancelarSerie(Long serieId) {
+        SerieCita serie = serieRepository.findById(serieId)
+                .orElseThrow(() -> new EntityNotFoundException("La serie con ID " + serieId + " no existe."));
+        resumenService.invalidar(serie.getMascota().getCliente().getId());
+        cacheDatos.vaciar(CacheDatosService.CITAS);
+        return citaRepository.cancelarSerie(serieId, LocalDateTime.now());
+    }
+
+    // --- Métodos auxiliares ---
+
+    /**
+     * Expande perezosamente la regla de recurrencia: las fechas se calculan a
+     * medida que se consumen, sin materializar la serie completa.
+     */
+    private Stream<LocalDateTime> expandir(SerieCitaDTO dto, int intervalo, int limite) {
+        Stream<LocalDateTime> fechas = IntStream.range(0, limite)
+                .mapToObj(n -> dto.getFrecuencia().ocurrencia(dto.getFechaInicio(), intervalo, n));
+        if (dto.getHasta() != null) {
+            fechas = fechas.takeWhile(f -> !f.isAfter(dto.getHasta()));
+        }
+        return fechas;
+    }
+
+    private void comprobarAgendaParaSerie(Long serieId, Long veterinarioId, LocalDateTime desde) {
+        List<LocalDateTime> pendientes = citaRepository.findHorasPendientesDeSerie(serieId, desde);
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        Duration duracion = citaService.getDuracionCita();
+        NavigableSet<LocalDateTime> ocupadas = new TreeSet<>(citaRepository.findHorasOcupadasFueraDeSerie(
+                veterinarioId, serieId,
+                pendientes.get(0).minus(duracion),
+                pendientes.get(pendientes.size() - 1).plus(duracion)));
+
+        for (LocalDateTime fecha : pendientes) {
+            if (citaService.haySolapamiento(ocupadas, fecha)) {
+                throw new ConflictoException("El veterinario con ID " + veterinarioId
+                        + " ya tiene una cita que se solapa con " + fecha + ".");
+            }
+        }
+    }
+}
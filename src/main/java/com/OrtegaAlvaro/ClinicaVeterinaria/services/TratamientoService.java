@@ -1,9 +1,12 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.services;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.TratamientoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CitaVeterinaria;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Tratamiento;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.TratamientoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -22,6 +25,12 @@ public class TratamientoService {
     @Autowired
     private TratamientoRepository tratamientoRepository;
 
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    @Autowired
+    private CacheDatosService cacheDatos;
+
     /**
      * Recupera el histórico global de tratamientos realizados.
      * Útil para auditorías o reportes generales de actividad.
@@ -49,6 +58,18 @@ public class TratamientoService {
         return tratamientoRepository.findById(id);
     }
 
+    /**
+     * Detalle de un tratamiento como DTO, desde la caché si está.
+     * Se devuelve una copia: modificarla no afecta a la caché.
+     *
+     * @param id Identificador del tratamiento.
+     * @return El DTO, o vacío si el tratamiento no existe.
+     */
+    public Optional<TratamientoDTO> findDTOById(Long id) {
+        return cacheDatos.obtener(CacheDatosService.TRATAMIENTOS, id,
+                () -> tratamientoRepository.findById(id).map(TratamientoService::toDTO), TratamientoDTO::copia);
+    }
+
     /**
      * Obtiene todos los tratamientos asociados a una cita concreta.
      * Este método es fundamental para visualizar el detalle económico (factura)
@@ -62,12 +83,19 @@ public class TratamientoService {
 
     /**
      * Persiste (Crea o Actualiza) un tratamiento.
+     * La cita a la que pertenece se descarta de la caché porque su DTO incluye
+     * los tratamientos y el coste total.
      * 
      * @param tratamiento Entidad con los datos del servicio a guardar.
      * @return El tratamiento persistido.
      */
+    @Transactional
     public Tratamiento save(Tratamiento tratamiento) {
-        return tratamientoRepository.save(tratamiento);
+        Tratamiento guardado = tratamientoRepository.save(tratamiento);
+        resumenService.invalidar(clienteDe(guardado));
+        cacheDatos.invalidar(CacheDatosService.TRATAMIENTOS, guardado.getId());
+        cacheDatos.invalidar(CacheDatosService.CITAS, citaDe(guardado));
+        return guardado;
     }
 
     /**
@@ -75,7 +103,39 @@ public class TratamientoService {
      * 
      * @param id Identificador del tratamiento a borrar.
      */
+    @Transactional
     public void deleteById(Long id) {
+        Optional<Tratamiento> tratamiento = tratamientoRepository.findById(id);
+        Long clienteId = tratamiento.map(TratamientoService::clienteDe).orElse(null);
+        Long citaId = tratamiento.map(TratamientoService::citaDe).orElse(null);
         tratamientoRepository.deleteById(id);
+        resumenService.invalidar(clienteId);
+        cacheDatos.invalidar(CacheDatosService.TRATAMIENTOS, id);
+        cacheDatos.invalidar(CacheDatosService.CITAS, citaId);
+    }
+
+    // --- Conversiones Entity → DTO ---
+
+    public static TratamientoDTO toDTO(Tratamiento t) {
+        TratamientoDTO dto = new TratamientoDTO();
+        dto.setId(t.getId());
+        dto.setDescripcion(t.getDescripcion());
+        dto.setMedicamento(t.getMedicamento());
+        dto.setPrecio(t.getPrecio());
+        dto.setObservaciones(t.getObservaciones());
+        dto.setCitaId(citaDe(t));
+        return dto;
+    }
+
+    private static Long citaDe(Tratamiento tratamiento) {
+        return tratamiento.getCita() != null ? tratamiento.getCita().getId() : null;
+    }
+
+    private static Long clienteDe(Tratamiento tratamiento) {
+        CitaVeterinaria cita = tratamiento.getCita();
+        if (cita == null || cita.getMascota() == null || cita.getMascota().getCliente() == null) {
+            return null;
+        }
+        return cita.getMascota().getCliente().getId();
     }
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.OrtegaAlvaro.ClinicaVeterinaria.services;
 
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.VeterinarioDTO;
 import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Veterinario;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CitaVeterinariaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.SerieCitaRepository;
 import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.VeterinarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -26,6 +28,15 @@ public class VeterinarioService {
     @Autowired
     private CitaVeterinariaRepository citaRepository;
 
+    @Autowired
+    private SerieCitaRepository serieRepository;
+
+    @Autowired
+    private ResumenClienteService resumenService;
+
+    @Autowired
+    private CacheDatosService cacheDatos;
+
     /**
      * Recupera el cuadro médico completo de la clínica.
      * 
@@ -52,31 +63,76 @@ public class VeterinarioService {
         return veterinarioRepository.findById(id);
     }
 
+    /**
+     * Ficha de un veterinario como DTO, desde la caché si está.
+     * Se devuelve una copia: modificarla no afecta a la caché.
+     *
+     * @param id Identificador del veterinario.
+     * @return El DTO, o vacío si el veterinario no existe.
+     */
+    public Optional<VeterinarioDTO> findDTOById(Long id) {
+        return cacheDatos.obtener(CacheDatosService.VETERINARIOS, id,
+                () -> veterinarioRepository.findById(id).map(VeterinarioService::toDTO), VeterinarioDTO::copia);
+    }
+
+    /**
+     * Recupera varios veterinarios en una sola consulta IN.
+     *
+     * @param ids Identificadores pedidos.
+     * @return Los veterinarios existentes, en el orden de los IDs y sin repetidos.
+     */
+    public List<Veterinario> findAllByIds(List<Long> ids) {
+        return ConsultasPorId.enOrden(ids, veterinarioRepository.findAllById(ids), Veterinario::getId);
+    }
+
     /**
      * Persiste (Alta o Modificación) los datos de un profesional veterinario.
      * 
      * @param veterinario Entidad con los datos a guardar.
      * @return El veterinario persistido.
      */
+    @Transactional
     public Veterinario save(Veterinario veterinario) {
-        return veterinarioRepository.save(veterinario);
+        Veterinario guardado = veterinarioRepository.save(veterinario);
+        // El nombre del veterinario aparece en los resúmenes de los clientes
+        // y en el DTO de sus citas
+        resumenService.invalidarTodos();
+        cacheDatos.invalidar(CacheDatosService.VETERINARIOS, guardado.getId());
+        cacheDatos.vaciar(CacheDatosService.CITAS);
+        return guardado;
     }
 
     /**
      * Elimina un veterinario del sistema.
-     * Antes de eliminar, desvincula al veterinario de sus citas asociadas
+     * Antes de eliminar, desvincula al veterinario de sus citas y series
      * (pone veterinario = NULL) para preservar el historial médico.
+     * La desvinculación se hace con sentencias UPDATE masivas, sin cargar las
+     * citas en memoria; el contexto de persistencia se vacía tras cada una
+     * para que no queden entidades con el veterinario antiguo.
      * 
      * @param id Identificador del veterinario a eliminar.
      */
     @Transactional
     public void deleteById(Long id) {
-        // Desvincular las citas asociadas antes de eliminar (SET NULL)
-        citaRepository.findByVeterinarioIdOrderByFechaHoraAsc(id)
-                .forEach(cita -> {
-                    cita.setVeterinario(null);
-                    citaRepository.save(cita);
-                });
+        // Desvincular las citas y series asociadas antes de eliminar (SET NULL)
+        citaRepository.desvincularVeterinario(id);
+        serieRepository.desvincularVeterinario(id);
         veterinarioRepository.deleteById(id);
+        resumenService.invalidarTodos();
+        cacheDatos.invalidar(CacheDatosService.VETERINARIOS, id);
+        cacheDatos.vaciar(CacheDatosService.CITAS);
+    }
+
+    // --- Conversiones Entity → DTO ---
+
+    public static VeterinarioDTO toDTO(Veterinario v) {
+        VeterinarioDTO dto = new VeterinarioDTO();
+        dto.setId(v.getId());
+        dto.setNombre(v.getNombre());
+        dto.setApellidos(v.getApellidos());
+        dto.setNumeroColegiado(v.getNumeroColegiado());
+        dto.setEspecialidad(v.getEspecialidad());
+        dto.setEmail(v.getEmail());
+        return dto;
     }
-}
\ No newline at end of file
+}
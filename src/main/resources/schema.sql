@@ -1,14 +1,37 @@
 DROP TABLE IF EXISTS usuario;
 DROP TABLE IF EXISTS tratamiento;
 DROP TABLE IF EXISTS cita_veterinaria;
+DROP TABLE IF EXISTS serie_cita;
 DROP TABLE IF EXISTS mascota;
 DROP TABLE IF EXISTS veterinario;
 DROP TABLE IF EXISTS cliente;
+DROP TABLE IF EXISTS imagen_ref;
+DROP TABLE IF EXISTS cambio_cache;
+DROP SEQUENCE IF EXISTS cliente_seq;
+DROP SEQUENCE IF EXISTS veterinario_seq;
+DROP SEQUENCE IF EXISTS mascota_seq;
+DROP SEQUENCE IF EXISTS serie_cita_seq;
+DROP SEQUENCE IF EXISTS cita_veterinaria_seq;
+DROP SEQUENCE IF EXISTS tratamiento_seq;
+DROP SEQUENCE IF EXISTS usuario_seq;
+
+-- Secuencias para la generación de IDs (optimizador 'pooled' de Hibernate).
+-- El incremento debe coincidir con allocationSize en las entidades: cada llamada
+-- reserva un bloque de 50 IDs, lo que permite agrupar los INSERT en lotes JDBC.
+-- El optimizador 'pooled' toma el valor leído como final del bloque: el primer
+-- bloque es 51-100, por encima de los IDs fijos de data.sql (menores de 51).
+CREATE SEQUENCE cliente_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE veterinario_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE mascota_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE serie_cita_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE cita_veterinaria_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE tratamiento_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE usuario_seq START WITH 100 INCREMENT BY 50;
 
 
 -- 1. Tabla CLIENTE
 CREATE TABLE cliente (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     nombre VARCHAR(100) NOT NULL,
     apellidos VARCHAR(100) NOT NULL,
     dni VARCHAR(9) NOT NULL UNIQUE,
@@ -19,7 +42,7 @@ CREATE TABLE cliente (
 
 -- 2. Tabla VETERINARIO
 CREATE TABLE veterinario (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     nombre VARCHAR(100) NOT NULL,
     apellidos VARCHAR(100) NOT NULL,
     numero_colegiado VARCHAR(50) NOT NULL UNIQUE,
@@ -29,7 +52,7 @@ CREATE TABLE veterinario (
 
 -- 3. Tabla MASCOTA
 CREATE TABLE mascota (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     nombre VARCHAR(100) NOT NULL,
     especie VARCHAR(50) NOT NULL,
     raza VARCHAR(100),
@@ -40,22 +63,49 @@ CREATE TABLE mascota (
     CONSTRAINT fk_mascota_cliente FOREIGN KEY (cliente_id) REFERENCES cliente(id) ON DELETE CASCADE
 );
 
--- 4. Tabla CITA_VETERINARIA
+-- 4. Tabla SERIE_CITA (citas periódicas)
+CREATE TABLE serie_cita (
+    id BIGINT PRIMARY KEY,
+    fecha_inicio DATETIME NOT NULL,
+    frecuencia VARCHAR(20) NOT NULL,
+    intervalo INT NOT NULL,
+    ocurrencias INT NOT NULL,
+    motivo VARCHAR(255),
+    mascota_id BIGINT NOT NULL,
+    veterinario_id BIGINT,
+    CONSTRAINT fk_serie_mascota FOREIGN KEY (mascota_id) REFERENCES mascota(id) ON DELETE CASCADE,
+    CONSTRAINT fk_serie_veterinario FOREIGN KEY (veterinario_id) REFERENCES veterinario(id) ON DELETE SET NULL
+);
+
+-- 5. Tabla CITA_VETERINARIA
 CREATE TABLE cita_veterinaria (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     fecha_hora DATETIME NOT NULL,
     motivo VARCHAR(255),
     diagnostico VARCHAR(255),
-    estado VARCHAR(50),
+    estado CHAR(1) NOT NULL DEFAULT 'P', -- P = Pendiente, R = Realizada, C = Cancelada
     mascota_id BIGINT,
     veterinario_id BIGINT,
+    serie_id BIGINT,
     CONSTRAINT fk_cita_mascota FOREIGN KEY (mascota_id) REFERENCES mascota(id) ON DELETE CASCADE,
-    CONSTRAINT fk_cita_veterinario FOREIGN KEY (veterinario_id) REFERENCES veterinario(id) ON DELETE SET NULL
+    CONSTRAINT fk_cita_veterinario FOREIGN KEY (veterinario_id) REFERENCES veterinario(id) ON DELETE SET NULL,
+    CONSTRAINT fk_cita_serie FOREIGN KEY (serie_id) REFERENCES serie_cita(id) ON DELETE SET NULL
 );
 
--- 5. Tabla TRATAMIENTO
+-- Agenda por veterinario: detección de solapamientos y consultas por rango
+CREATE INDEX idx_cita_veterinario_fecha ON cita_veterinaria (veterinario_id, fecha_hora);
+-- Calendario global por rango de fechas
+CREATE INDEX idx_cita_fecha ON cita_veterinaria (fecha_hora);
+-- Edición y cancelación conjunta de las citas de una serie
+CREATE INDEX idx_cita_serie_fecha ON cita_veterinaria (serie_id, fecha_hora);
+-- Filtro por estado y recuentos por estado del dashboard
+CREATE INDEX idx_cita_estado_fecha ON cita_veterinaria (estado, fecha_hora);
+-- Historial clinico paginado por mascota (InnoDB añade el id al final del indice)
+CREATE INDEX idx_cita_mascota_fecha ON cita_veterinaria (mascota_id, fecha_hora);
+
+-- 6. Tabla TRATAMIENTO
 CREATE TABLE tratamiento (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     descripcion VARCHAR(255) NOT NULL,
     medicamento VARCHAR(100),
     precio DOUBLE,
@@ -64,9 +114,9 @@ CREATE TABLE tratamiento (
     CONSTRAINT fk_tratamiento_cita FOREIGN KEY (cita_id) REFERENCES cita_veterinaria(id) ON DELETE CASCADE
 );
 
--- 6. Tabla USUARIO
+-- 7. Tabla USUARIO
 CREATE TABLE usuario (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     email VARCHAR(100) NOT NULL UNIQUE,
     password VARCHAR(255) NOT NULL,
     rol VARCHAR(20) NOT NULL,
@@ -74,4 +124,30 @@ CREATE TABLE usuario (
     veterinario_id BIGINT,
     CONSTRAINT fk_usuario_cliente FOREIGN KEY (cliente_id) REFERENCES cliente(id) ON DELETE CASCADE,
     CONSTRAINT fk_usuario_veterinario FOREIGN KEY (veterinario_id) REFERENCES veterinario(id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+-- 8. Tabla IMAGEN_REF
+-- Imagenes subidas, guardadas con su SHA-256 como nombre (una sola copia por contenido).
+-- 'referencias' cuenta las mascotas que apuntan al fichero: se borra al llegar a 0.
+CREATE TABLE imagen_ref (
+    nombre VARCHAR(80) PRIMARY KEY,
+    referencias INT NOT NULL,
+    tamano BIGINT NOT NULL,
+    creada DATETIME NOT NULL,
+    usada DATETIME NOT NULL
+);
+
+-- 9. Tabla CAMBIO_CACHE
+-- Invalidaciones de cache, escritas en la misma transaccion que el cambio, para que los demas
+-- nodos descarten sus copias (ver CambioCacheService). 'clave' NULL = toda la cache.
+-- El id lo asigna la base de datos al insertar (no es una secuencia 'pooled' por nodo),
+-- asi que sirve de cursor comun a todos los nodos.
+CREATE TABLE cambio_cache (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    cache VARCHAR(40) NOT NULL,
+    clave BIGINT,
+    nodo VARCHAR(36) NOT NULL,
+    creado DATETIME NOT NULL
+);
+-- Purga de entradas antiguas
+CREATE INDEX idx_cambio_cache_creado ON cambio_cache (creado);
@@ -0,0 +1,75 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.controllers;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.SerieCitaDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.SerieCitaResultadoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.FrecuenciaSerie;
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.SerieCitaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validación de la regla de recurrencia antes de crear la serie.
+ */
+class SerieCitaControllerTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 3, 10, 10, 0);
+
+    private final SerieCitaService serieService = mock(SerieCitaService.class);
+
+    private final SerieCitaController controller = new SerieCitaController();
+
+    @BeforeEach
+    void configurar() {
+        ReflectionTestUtils.setField(controller, "serieService", serieService);
+        when(serieService.getMaxOcurrencias()).thenReturn(104);
+    }
+
+    @Test
+    void unaFechaFinalAnteriorAlInicioDevuelve400() {
+        ResponseEntity<?> respuesta = controller.crearSerie(serie(null, INICIO.minusDays(1)));
+
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verify(serieService, never()).crearSerie(any());
+    }
+
+    @Test
+    void unaFechaFinalIgualAlInicioCreaLaSerie() {
+        when(serieService.crearSerie(any())).thenReturn(new SerieCitaResultadoDTO(1L, 1, List.of()));
+
+        ResponseEntity<?> respuesta = controller.crearSerie(serie(null, INICIO));
+
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    }
+
+    @Test
+    void sinOcurrenciasNiFechaFinalDevuelve400() {
+        ResponseEntity<?> respuesta = controller.crearSerie(serie(null, null));
+
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verify(serieService, never()).crearSerie(any());
+    }
+
+    private static SerieCitaDTO serie(Integer ocurrencias, LocalDateTime hasta) {
+        SerieCitaDTO dto = new SerieCitaDTO();
+        dto.setFechaInicio(INICIO);
+        dto.setFrecuencia(FrecuenciaSerie.SEMANAL);
+        dto.setOcurrencias(ocurrencias);
+        dto.setHasta(hasta);
+        dto.setMotivo("Control");
+        dto.setMascotaId(1L);
+        return dto;
+    }
+}
@@ -0,0 +1,130 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Copias locales del almacén S3: límite de espacio y revalidación contra el
+ * bucket.
+ */
+class AlmacenImagenesS3Test {
+
+    @TempDir
+    Path directorio;
+
+    private final S3Client s3 = mock(S3Client.class);
+
+    private Path copias;
+
+    @BeforeEach
+    void configurar() throws IOException {
+        copias = directorio.resolve(".s3");
+        Files.createDirectories(copias);
+    }
+
+    @Test
+    void lasCopiasNoSuperanElEspacioMaximo() throws Exception {
+        AlmacenImagenesS3 almacen = almacen(2500, Duration.ofHours(1));
+
+        for (int i = 0; i < 10; i++) {
+            almacen.guardar(nombre(i), subida(1000));
+        }
+
+        assertThat(bytesEnDisco()).isLessThanOrEqualTo(2500);
+        assertThat(ficherosEnDisco()).hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void lasCopiasDeUnaEjecucionAnteriorCuentanEnElMaximo() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Path copia = AlmacenImagenesLocal.fragmentar(copias, nombre(i));
+            Files.createDirectories(copia.getParent());
+            Files.write(copia, new byte[1000]);
+        }
+        Path descargaAMedias = AlmacenImagenesLocal.fragmentar(copias, nombre(0))
+                .resolveSibling(".descarga-123.tmp");
+        Files.write(descargaAMedias, new byte[10]);
+
+        almacen(2500, Duration.ofHours(1));
+
+        assertThat(bytesEnDisco()).isLessThanOrEqualTo(2500);
+        assertThat(descargaAMedias).doesNotExist();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unaCopiaRecienComprobadaSeSirveSinPreguntarAlBucket() throws Exception {
+        AlmacenImagenesS3 almacen = almacen(1_000_000, Duration.ofHours(1));
+        almacen.guardar(nombre(1), subida(100));
+
+        assertThat(almacen.buscar(nombre(1))).isPresent();
+        verify(s3, never()).headObject(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unaCopiaBorradaDelBucketPorOtroNodoNoSeSirve() throws Exception {
+        AlmacenImagenesS3 almacen = almacen(1_000_000, Duration.ZERO);
+        almacen.guardar(nombre(1), subida(100));
+        when(s3.headObject(any(Consumer.class))).thenThrow(S3Exception.builder().statusCode(404).build());
+
+        assertThat(almacen.buscar(nombre(1))).isEmpty();
+        assertThat(ficherosEnDisco()).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void siElBucketNoRespondeSeSirveLaCopia() throws Exception {
+        AlmacenImagenesS3 almacen = almacen(1_000_000, Duration.ZERO);
+        almacen.guardar(nombre(1), subida(100));
+        when(s3.headObject(any(Consumer.class))).thenThrow(S3Exception.builder().statusCode(503).build());
+
+        assertThat(almacen.buscar(nombre(1))).isPresent();
+    }
+
+    private AlmacenImagenesS3 almacen(long maxBytes, Duration revalidacion) {
+        return new AlmacenImagenesS3(s3, "imagenes", directorio, copias, maxBytes, revalidacion);
+    }
+
+    private Path subida(int bytes) throws IOException {
+        Path temporal = Files.createTempFile(directorio, "subida-", ".tmp");
+        Files.write(temporal, new byte[bytes]);
+        return temporal;
+    }
+
+    private static String nombre(int i) {
+        return String.format("%064x", i + 0xabcd00L) + ".jpg";
+    }
+
+    private List<Path> ficherosEnDisco() throws IOException {
+        try (Stream<Path> rutas = Files.walk(copias)) {
+            return rutas.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private long bytesEnDisco() throws IOException {
+        long total = 0;
+        for (Path fichero : ficherosEnDisco()) {
+            total += Files.size(fichero);
+        }
+        return total;
+    }
+}
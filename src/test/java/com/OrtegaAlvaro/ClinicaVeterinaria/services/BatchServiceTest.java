@@ -0,0 +1,70 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.BatchPeticionDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.BatchPeticionDTO.Operacion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Validación de las operaciones de /api/batch antes de despacharlas.
+ */
+class BatchServiceTest {
+
+    private final BatchService batchService = new BatchService();
+
+    @BeforeEach
+    void configurar() {
+        ReflectionTestUtils.setField(batchService, "maxOperaciones", 20);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/api/batch",
+            "/api/%62atch",
+            "/api/%62%61%74%63%68",
+            "/api/batch;x=1",
+            "/api/%65xport/citas",
+            "/api/%69mport/clientes",
+            "/api/%61uth/login",
+            "/api/citas/../batch",
+            "/api//batch",
+            "/api/citas\\..\\batch",
+            "/api/citas#x",
+            "/actuator/health"
+    })
+    void rechazaRutasExcluidasYCodificadas(String ruta) {
+        assertThat(batchService.validar(peticion("GET", ruta))).startsWith("Ruta no permitida");
+    }
+
+    @Test
+    void aceptaRutasDeLaApiConQueryCodificada() {
+        assertThat(batchService.validar(peticion("GET", "/api/clientes?search=Garc%C3%ADa&size=5"))).isNull();
+        assertThat(batchService.validar(peticion("PUT", "/api/citas/42"))).isNull();
+        assertThat(batchService.validar(peticion("GET", "/api/mascotas/imagen/abc.jpg"))).isNull();
+    }
+
+    @Test
+    void rechazaMetodosSinReglaDeSeguridad() {
+        assertThat(batchService.validar(peticion("PATCH", "/api/citas/42"))).startsWith("Método no soportado");
+        assertThat(batchService.validar(peticion("HEAD", "/api/citas/42"))).startsWith("Método no soportado");
+    }
+
+    @Test
+    void rechazaDemasiadasOperaciones() {
+        BatchPeticionDTO peticion = new BatchPeticionDTO(false,
+                Collections.nCopies(21, new Operacion("1", "GET", "/api/citas", null)));
+        assertThat(batchService.validar(peticion)).contains("20");
+    }
+
+    private static BatchPeticionDTO peticion(String metodo, String ruta) {
+        return new BatchPeticionDTO(false, List.of(new Operacion("1", metodo, ruta, null)));
+    }
+}
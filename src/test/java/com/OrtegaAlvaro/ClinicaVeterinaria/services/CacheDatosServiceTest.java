@@ -0,0 +1,101 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.CitaVeterinariaDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.TratamientoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * Los DTOs en caché no se comparten: cada petición recibe su propia copia.
+ */
+class CacheDatosServiceTest {
+
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager(CacheDatosService.NOMBRES
+            .toArray(String[]::new));
+    private final PlatformTransactionManager transacciones = mock(PlatformTransactionManager.class);
+
+    private CacheDatosService cacheDatos;
+
+    private final AtomicInteger cargas = new AtomicInteger();
+
+    @BeforeEach
+    void configurar() {
+        when(transacciones.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        cacheDatos = new CacheDatosService(transacciones);
+        setField(cacheDatos, "cacheManager", cacheManager);
+        setField(cacheDatos, "cambioCache", mock(CambioCacheService.class));
+    }
+
+    @Test
+    void modificarElDtoRecibidoNoAfectaALaCache() {
+        CitaVeterinariaDTO primera = obtener(1L).orElseThrow();
+        primera.setMotivo("cambiado");
+        primera.getTratamientos().get(0).setPrecio(0.0);
+
+        CitaVeterinariaDTO segunda = obtener(1L).orElseThrow();
+
+        assertThat(cargas).hasValue(1);
+        assertThat(segunda).isNotSameAs(primera);
+        assertThat(segunda.getMotivo()).isEqualTo("Vacuna");
+        assertThat(segunda.getTratamientos().get(0).getPrecio()).isEqualTo(25.0);
+    }
+
+    @Test
+    void losTratamientosDeLaCopiaNoSePuedenAmpliar() {
+        obtener(1L);
+        CitaVeterinariaDTO copia = obtener(1L).orElseThrow();
+
+        assertThatThrownBy(() -> copia.getTratamientos().add(new TratamientoDTO()))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void unDtoEnCacheNoAbreTransaccion() {
+        obtener(1L);
+        verify(transacciones).getTransaction(any());
+
+        obtener(1L);
+
+        assertThat(cargas).hasValue(1);
+        verify(transacciones).commit(any());
+    }
+
+    @Test
+    void unRegistroInexistenteNoSeCachea() {
+        assertThat(cacheDatos.obtener(CacheDatosService.CITAS, 2L, () -> {
+            cargas.incrementAndGet();
+            return Optional.<CitaVeterinariaDTO>empty();
+        }, CitaVeterinariaDTO::copia)).isEmpty();
+
+        assertThat(cacheManager.getCache(CacheDatosService.CITAS).get(2L)).isNull();
+        verify(transacciones, never()).rollback(any());
+    }
+
+    private Optional<CitaVeterinariaDTO> obtener(Long id) {
+        return cacheDatos.obtener(CacheDatosService.CITAS, id, () -> {
+            cargas.incrementAndGet();
+            TratamientoDTO tratamiento = new TratamientoDTO(10L, "Vacuna rabia", null, 25.0, null, id);
+            return Optional.of(new CitaVeterinariaDTO(id, LocalDateTime.of(2025, 3, 10, 10, 0), "Vacuna", null,
+                    EstadoCita.PENDIENTE, 3L, "Luna", 2L, "Dra. Pérez", 25.0, List.of(tratamiento), 7L));
+        }, CitaVeterinariaDTO::copia);
+    }
+}
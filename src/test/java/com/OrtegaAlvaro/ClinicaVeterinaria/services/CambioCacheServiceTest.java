@@ -0,0 +1,165 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CambioCache;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Cliente;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CambioCacheRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.getField;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * Invalidación de cachés entre nodos a través de cambio_cache.
+ */
+class CambioCacheServiceTest {
+
+    private static final String OTRO_NODO = "otro-nodo";
+
+    private final CambioCacheRepository cambioRepository = mock(CambioCacheRepository.class);
+    private final CacheHibernateService cacheHibernate = mock(CacheHibernateService.class);
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager(CacheDatosService.NOMBRES
+            .toArray(String[]::new));
+
+    private final CambioCacheService cambioCache = new CambioCacheService();
+
+    @BeforeEach
+    void configurar() {
+        setField(cambioCache, "cambioRepository", cambioRepository);
+        setField(cambioCache, "cacheManager", cacheManager);
+        setField(cambioCache, "cacheHibernate", cacheHibernate);
+        setField(cambioCache, "activo", true);
+        setField(cambioCache, "tamanoLote", 500);
+        setField(cambioCache, "esperaHuecosMs", 60000L);
+        setField(cambioCache, "retencionMinutos", 60L);
+    }
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void enUnaTransaccionSeAnotaCadaCambioUnaSolaVezAntesDelCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        for (int i = 0; i < 100; i++) {
+            cambioCache.registrar(ResumenClienteService.CACHE, 1L);
+            cambioCache.registrar(ResumenClienteService.CACHE, 2L);
+            cambioCache.registrar(CacheDatosService.MASCOTAS, (long) i);
+            cambioCache.registrar(CacheDatosService.CLIENTES, 5L);
+        }
+        cambioCache.registrar(CacheDatosService.MASCOTAS, null);
+        verify(cambioRepository, never()).save(any());
+
+        antesDelCommit();
+
+        // Las claves de MASCOTAS sobran: la caché se vacía entera
+        assertThat(guardados()).extracting(CambioCache::getCache, CambioCache::getClave).containsExactly(
+                tuple(ResumenClienteService.CACHE, 1L),
+                tuple(ResumenClienteService.CACHE, 2L),
+                tuple(CacheDatosService.CLIENTES, 5L),
+                tuple(CacheDatosService.MASCOTAS, null));
+    }
+
+    @Test
+    void sinTransaccionSeAnotaEnElMomento() {
+        cambioCache.registrar(CacheDatosService.CLIENTES, 5L);
+
+        verify(cambioRepository).save(any(CambioCache.class));
+    }
+
+    @Test
+    void inactivoNoAnotaNada() {
+        setField(cambioCache, "activo", false);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cambioCache.registrar(CacheDatosService.CLIENTES, 5L);
+
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+        verify(cambioRepository, never()).save(any());
+    }
+
+    @Test
+    void aplicaLosCambiosDeOtrosNodosYNoLosPropios() {
+        cacheManager.getCache(CacheDatosService.MASCOTAS).put(3L, "mascota 3");
+        cacheManager.getCache(CacheDatosService.CLIENTES).put(5L, "cliente 5");
+        cacheManager.getCache(CacheDatosService.CLIENTES).put(6L, "cliente 6");
+        String propio = (String) getField(cambioCache, "nodo");
+        when(cambioRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(List.of(
+                cambio(1L, CacheDatosService.MASCOTAS, 3L, OTRO_NODO),
+                cambio(2L, CacheDatosService.CLIENTES, 5L, OTRO_NODO),
+                cambio(3L, CacheDatosService.CLIENTES, 6L, propio)));
+
+        cambioCache.sondear();
+
+        assertThat(cacheManager.getCache(CacheDatosService.MASCOTAS).get(3L)).isNull();
+        assertThat(cacheManager.getCache(CacheDatosService.CLIENTES).get(5L)).isNull();
+        assertThat(cacheManager.getCache(CacheDatosService.CLIENTES).get(6L)).isNotNull();
+        verify(cacheHibernate).evictar(Mascota.class, List.of(3L));
+        verify(cacheHibernate).evictarColecciones(Cliente.class, "mascotas");
+        verify(cacheHibernate).evictar(Cliente.class, List.of(5L));
+        verify(cacheHibernate, never()).evictar(Cliente.class, List.of(6L));
+        assertThat(cambioCache.estado().getCursor()).isEqualTo(3L);
+        assertThat(cambioCache.estado().getAplicados()).isEqualTo(2L);
+    }
+
+    @Test
+    void unHuecoSeAplicaCuandoSuTransaccionConfirma() {
+        cacheManager.getCache(CacheDatosService.CLIENTES).put(5L, "cliente 5");
+        when(cambioRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(cambio(1L, CacheDatosService.CITAS, 10L, OTRO_NODO),
+                        cambio(3L, CacheDatosService.CITAS, 11L, OTRO_NODO)));
+
+        cambioCache.sondear();
+        assertThat(cambioCache.estado().getHuecosPendientes()).isEqualTo(1);
+        assertThat(cacheManager.getCache(CacheDatosService.CLIENTES).get(5L)).isNotNull();
+
+        // La transacción que tenía el ID 2 confirma después
+        when(cambioRepository.findAllById(any())).thenReturn(List.of(
+                cambio(2L, CacheDatosService.CLIENTES, 5L, OTRO_NODO)));
+        when(cambioRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenReturn(List.of());
+        cambioCache.sondear();
+
+        assertThat(cambioCache.estado().getHuecosPendientes()).isZero();
+        assertThat(cacheManager.getCache(CacheDatosService.CLIENTES).get(5L)).isNull();
+    }
+
+    private static void antesDelCommit() {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            sincronizacion.beforeCommit(false);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CambioCache> guardados() {
+        ArgumentCaptor<List<CambioCache>> captor = ArgumentCaptor.forClass(List.class);
+        verify(cambioRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private static CambioCache cambio(Long id, String cache, Long clave, String nodo) {
+        return new CambioCache(id, cache, clave, nodo, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,188 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.config.GlobalExceptionHandler;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CitaVeterinaria;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.EstadoCita;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Veterinario;
+import com.OrtegaAlvaro.ClinicaVeterinaria.exceptions.ConflictoException;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CitaVeterinariaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.VeterinarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * Reservas de citas: solapamientos en la agenda del veterinario, con una
+ * agenda en memoria en lugar de la base de datos.
+ */
+class CitaVeterinariaServiceTest {
+
+    private static final LocalDateTime LAS_DIEZ = LocalDateTime.of(2030, 3, 4, 10, 0);
+
+    private final CitaVeterinariaRepository citaRepository = mock(CitaVeterinariaRepository.class);
+    private final VeterinarioRepository veterinarioRepository = mock(VeterinarioRepository.class);
+    private final List<CitaVeterinaria> agenda = new CopyOnWriteArrayList<>();
+    private final AtomicLong secuencia = new AtomicLong();
+
+    private final CitaVeterinariaService citaService = new CitaVeterinariaService();
+    private final Veterinario veterinario = new Veterinario();
+
+    @BeforeEach
+    void configurar() {
+        veterinario.setId(7L);
+        PlatformTransactionManager transacciones = mock(PlatformTransactionManager.class);
+        when(transacciones.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        setField(citaService, "citaRepository", citaRepository);
+        setField(citaService, "veterinarioRepository", veterinarioRepository);
+        setField(citaService, "bloqueoAgenda", new BloqueoAgendaService(64, 5000));
+        setField(citaService, "transactionTemplate", new TransactionTemplate(transacciones));
+        setField(citaService, "resumenService", mock(ResumenClienteService.class));
+        setField(citaService, "cacheDatos", mock(CacheDatosService.class));
+        setField(citaService, "duracionMinutos", 30L);
+
+        when(veterinarioRepository.bloquearParaReserva(7L)).thenReturn(Optional.of(veterinario));
+        when(citaRepository.contarSolapamientos(any(), any(), any(), any())).thenAnswer(inv -> {
+            // Ensancha la ventana entre comprobar y guardar
+            Thread.sleep(50);
+            Long vetId = inv.getArgument(0);
+            LocalDateTime desde = inv.getArgument(1);
+            LocalDateTime hasta = inv.getArgument(2);
+            Long excluirId = inv.getArgument(3);
+            return agenda.stream()
+                    .filter(c -> c.getVeterinario().getId().equals(vetId) && c.getFechaHora().isAfter(desde)
+                            && c.getFechaHora().isBefore(hasta) && !c.getId().equals(excluirId)
+                            && c.getEstado() != EstadoCita.CANCELADA)
+                    .count();
+        });
+        when(citaRepository.save(any(CitaVeterinaria.class))).thenAnswer(inv -> {
+            CitaVeterinaria cita = inv.getArgument(0);
+            if (cita.getId() == null) {
+                cita.setId(secuencia.incrementAndGet());
+                agenda.add(cita);
+            }
+            return cita;
+        });
+    }
+
+    @Test
+    void dosReservasSimultaneasDelMismoHuecoSoloAdmitenUna() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<CitaVeterinaria>> reservas = List.of(
+                    hilos.submit(() -> {
+                        salida.await();
+                        return citaService.reservar(cita(LAS_DIEZ));
+                    }),
+                    hilos.submit(() -> {
+                        salida.await();
+                        return citaService.reservar(cita(LAS_DIEZ.plusMinutes(10)));
+                    }));
+            salida.countDown();
+
+            int correctas = 0;
+            ConflictoException conflicto = null;
+            for (Future<CitaVeterinaria> reserva : reservas) {
+                try {
+                    reserva.get(10, TimeUnit.SECONDS);
+                    correctas++;
+                } catch (ExecutionException ex) {
+                    assertThat(ex.getCause()).isInstanceOf(ConflictoException.class);
+                    conflicto = (ConflictoException) ex.getCause();
+                }
+            }
+
+            assertThat(correctas).isEqualTo(1);
+            assertThat(agenda).hasSize(1);
+            assertThat(conflicto).isNotNull();
+            assertThat(new GlobalExceptionHandler().handleConflicto(conflicto).getStatusCode().value())
+                    .isEqualTo(409);
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void huecosContiguosNoSeSolapan() {
+        citaService.reservar(cita(LAS_DIEZ));
+        citaService.reservar(cita(LAS_DIEZ.plusMinutes(30)));
+
+        assertThat(agenda).hasSize(2);
+    }
+
+    @Test
+    void editarSinCambiarVeterinarioNiHoraNoCompruebaLaAgenda() {
+        CitaVeterinaria cita = citaService.reservar(cita(LAS_DIEZ));
+        // Otra cita solapada que ya estaba en la agenda (datos antiguos)
+        agenda.add(conId(cita(LAS_DIEZ.plusMinutes(5)), 99L));
+        CitaVeterinariaService.Hueco anterior = CitaVeterinariaService.Hueco.de(cita);
+
+        cita.setDiagnostico("Revisión sin incidencias");
+        citaService.reservar(cita, anterior);
+
+        // Solo el bloqueo de la reserva inicial
+        verify(veterinarioRepository, times(1)).bloquearParaReserva(anyLong());
+    }
+
+    @Test
+    void cancelarNoCompruebaLaAgenda() {
+        CitaVeterinaria cita = citaService.reservar(cita(LAS_DIEZ));
+        agenda.add(conId(cita(LAS_DIEZ.plusMinutes(5)), 99L));
+        CitaVeterinariaService.Hueco anterior = CitaVeterinariaService.Hueco.de(cita);
+
+        cita.cambiarEstado(EstadoCita.CANCELADA);
+        cita.setFechaHora(LAS_DIEZ.plusMinutes(5));
+        citaService.reservar(cita, anterior);
+
+        verify(veterinarioRepository, times(1)).bloquearParaReserva(anyLong());
+    }
+
+    @Test
+    void moverLaCitaAUnHuecoOcupadoDaConflicto() {
+        citaService.reservar(cita(LAS_DIEZ));
+        CitaVeterinaria otra = citaService.reservar(cita(LAS_DIEZ.plusHours(1)));
+        CitaVeterinariaService.Hueco anterior = CitaVeterinariaService.Hueco.de(otra);
+
+        otra.setFechaHora(LAS_DIEZ.plusMinutes(15));
+
+        assertThatThrownBy(() -> citaService.reservar(otra, anterior)).isInstanceOf(ConflictoException.class);
+    }
+
+    private CitaVeterinaria cita(LocalDateTime fechaHora) {
+        CitaVeterinaria cita = new CitaVeterinaria();
+        cita.setFechaHora(fechaHora);
+        cita.setMotivo("Vacunación");
+        cita.setVeterinario(veterinario);
+        return cita;
+    }
+
+    private static CitaVeterinaria conId(CitaVeterinaria cita, Long id) {
+        cita.setId(id);
+        return cita;
+    }
+}
@@ -0,0 +1,89 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.services.ImagenService.ImagenResuelta;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * ETag y rangos de bytes al servir imágenes.
+ */
+class EntregaImagenServiceTest {
+
+    private static final String HASH = "ab".repeat(32);
+
+    @TempDir
+    Path directorio;
+
+    private final EntregaImagenService entrega = new EntregaImagenService(100, mock(CacheImagenService.class));
+
+    @Test
+    void elEtagDeUnNombreConHashEsElPropioNombre() throws Exception {
+        Path imagen = fichero(HASH + ".jpg", "0123456789");
+        Path miniatura = fichero(HASH + "-thumb.jpg", "0123456789");
+
+        assertThat(enviar(imagen, null).getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + HASH + "\"");
+        assertThat(enviar(miniatura, null).getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + HASH + "-thumb\"");
+    }
+
+    @Test
+    void elEtagDeUnNombreAntiguoSaleDelContenido() throws Exception {
+        Path a = fichero("3f2b6c1e-uuid-a.jpg", "0123456789");
+        Path b = fichero("3f2b6c1e-uuid-b.jpg", "0123456789");
+        Path c = fichero("3f2b6c1e-uuid-c.jpg", "otra cosa");
+
+        String etagA = enviar(a, null).getHeader(HttpHeaders.ETAG);
+        assertThat(etagA).matches("\"[0-9a-f]{32}\"");
+        assertThat(enviar(b, null).getHeader(HttpHeaders.ETAG)).isEqualTo(etagA);
+        assertThat(enviar(c, null).getHeader(HttpHeaders.ETAG)).isNotEqualTo(etagA);
+    }
+
+    @Test
+    void unRangoValidoDevuelve206() throws Exception {
+        MockHttpServletResponse respuesta = enviar(fichero(HASH + ".jpg", "0123456789"), "bytes=2-4");
+
+        assertThat(respuesta.getStatus()).isEqualTo(206);
+        assertThat(respuesta.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-4/10");
+        assertThat(respuesta.getContentAsString()).isEqualTo("234");
+    }
+
+    @Test
+    void unRangoInvertidoSeIgnoraYSeEnviaTodo() throws Exception {
+        MockHttpServletResponse respuesta = enviar(fichero(HASH + ".jpg", "0123456789"), "bytes=5-3");
+
+        assertThat(respuesta.getStatus()).isEqualTo(200);
+        assertThat(respuesta.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(respuesta.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void unRangoFueraDelFicheroDevuelve416() throws Exception {
+        MockHttpServletResponse respuesta = enviar(fichero(HASH + ".jpg", "0123456789"), "bytes=20-30");
+
+        assertThat(respuesta.getStatus()).isEqualTo(416);
+        assertThat(respuesta.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    private Path fichero(String nombre, String contenido) throws IOException {
+        return Files.writeString(directorio.resolve(nombre), contenido);
+    }
+
+    private MockHttpServletResponse enviar(Path ruta, String range) throws IOException {
+        MockHttpServletRequest peticion = new MockHttpServletRequest("GET", "/api/mascotas/1/imagen");
+        if (range != null) {
+            peticion.addHeader(HttpHeaders.RANGE, range);
+        }
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        entrega.enviar(new ImagenResuelta(ruta, true), peticion, respuesta);
+        return respuesta;
+    }
+}
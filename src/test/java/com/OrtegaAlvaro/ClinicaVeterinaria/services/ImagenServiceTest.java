@@ -0,0 +1,126 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.ImagenReferenciaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cuenta de referencias de las imágenes: cada referencia sumada debe
+ * corresponder a un imagen_url guardado.
+ */
+class ImagenServiceTest {
+
+    private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0 };
+
+    @TempDir
+    Path directorio;
+
+    private final ImagenReferenciaRepository referencias = mock(ImagenReferenciaRepository.class);
+    private final AlmacenImagenes almacen = mock(AlmacenImagenes.class);
+    private final MiniaturaService miniaturas = mock(MiniaturaService.class);
+    private final ProcesadoImagenService procesado = mock(ProcesadoImagenService.class);
+    private final PlatformTransactionManager transacciones = mock(PlatformTransactionManager.class);
+
+    private ImagenService imagenService;
+
+    @BeforeEach
+    void configurar() throws Exception {
+        when(transacciones.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(procesado.optimizar(any(), anyString())).thenAnswer(inv -> inv.getArgument(1));
+        imagenService = new ImagenService(directorio.toString(), miniaturas, mock(ApplicationEventPublisher.class),
+                referencias, new TransactionTemplate(transacciones), mock(CacheImagenService.class), almacen,
+                procesado);
+    }
+
+    @Test
+    void sumaLaReferenciaYAsignaLaImagenEnLaMismaTransaccion() throws Exception {
+        String resultado = imagenService.guardarImagen(subida(), nombre -> "mascota:" + nombre);
+
+        assertThat(resultado).startsWith("mascota:").endsWith(".png");
+        String nombre = resultado.substring("mascota:".length());
+        InOrder orden = inOrder(transacciones, referencias, almacen);
+        orden.verify(transacciones).getTransaction(any());
+        orden.verify(referencias).sumarReferencia(eq(nombre), anyLong());
+        orden.verify(almacen).guardar(eq(nombre), any());
+        orden.verify(transacciones).commit(any());
+        verify(miniaturas).generarEnSegundoPlano(nombre);
+    }
+
+    @Test
+    void siNoSeGuardaLaMascotaLaReferenciaSeDeshace() {
+        assertThatThrownBy(() -> imagenService.guardarImagen(subida(), nombre -> {
+            throw new IllegalStateException("fallo al guardar la mascota");
+        })).isInstanceOf(IllegalStateException.class);
+
+        verify(referencias).sumarReferencia(anyString(), anyLong());
+        verify(transacciones).rollback(any(TransactionStatus.class));
+        verify(transacciones, never()).commit(any());
+        verify(miniaturas, never()).generarEnSegundoPlano(anyString());
+    }
+
+    @Test
+    void unFicheroQueNoEsImagenNoSumaReferencia() {
+        MockMultipartFile texto = new MockMultipartFile("file", "foto.png", "image/png", "hola".getBytes());
+
+        assertThatThrownBy(() -> imagenService.guardarImagen(texto, nombre -> nombre))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(referencias, never()).sumarReferencia(anyString(), anyLong());
+    }
+
+    @Test
+    void noBorraElFicheroMientrasQuedenReferencias() throws Exception {
+        when(referencias.restarReferencia("abc.jpg")).thenReturn(1);
+        when(referencias.eliminarSinReferencias("abc.jpg")).thenReturn(0);
+
+        imagenService.borrarImagen("abc.jpg");
+
+        verify(almacen, never()).borrar(anyString());
+    }
+
+    @Test
+    void borraElFicheroYSusVariantesConLaUltimaReferencia() throws Exception {
+        when(referencias.restarReferencia("abc.jpg")).thenReturn(1);
+        when(referencias.eliminarSinReferencias("abc.jpg")).thenReturn(1);
+        when(miniaturas.nombresVariantes("abc.jpg")).thenReturn(List.of("abc-thumb.jpg", "abc-card.jpg"));
+
+        imagenService.borrarImagen("abc.jpg");
+
+        verify(almacen).borrar("abc.jpg");
+        verify(almacen).borrar("abc-thumb.jpg");
+        verify(almacen).borrar("abc-card.jpg");
+    }
+
+    @Test
+    void rechazaNombresConRuta() {
+        assertThatThrownBy(() -> imagenService.borrarImagen("../abc.jpg"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(referencias, never()).restarReferencia(anyString());
+    }
+
+    private static MockMultipartFile subida() {
+        return new MockMultipartFile("file", "foto.png", "image/png", PNG);
+    }
+}
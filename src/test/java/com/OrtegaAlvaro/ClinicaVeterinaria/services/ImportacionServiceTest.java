@@ -0,0 +1,122 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ImportacionResultadoDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.ImportacionResultadoDTO.ErrorLinea;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Cliente;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.ClienteRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * Importación por lotes: duplicados entre lotes e invalidación de los
+ * resúmenes de cliente.
+ */
+class ImportacionServiceTest {
+
+    private final ClienteRepository clienteRepository = mock(ClienteRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final ResumenClienteService resumenService = mock(ResumenClienteService.class);
+
+    private final ImportacionService importacion = new ImportacionService();
+
+    @BeforeEach
+    void configurar() {
+        PlatformTransactionManager transacciones = mock(PlatformTransactionManager.class);
+        when(transacciones.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        setField(importacion, "clienteRepository", clienteRepository);
+        setField(importacion, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        setField(importacion, "transactionTemplate", new TransactionTemplate(transacciones));
+        setField(importacion, "resumenService", resumenService);
+        setField(importacion, "entityManager", entityManager);
+        setField(importacion, "tamanoLote", 2);
+        setField(importacion, "maxErrores", 100);
+    }
+
+    @Test
+    void losDniDeUnLoteRechazadoNoCuentanComoRegistrados() throws Exception {
+        when(clienteRepository.findAllDni()).thenReturn(List.of("11111111A"));
+        // El primer lote lo rechaza la base de datos
+        doThrow(new PersistenceException("Duplicate entry")).doNothing().when(entityManager).flush();
+
+        ImportacionResultadoDTO resultado = importacion.importarClientes(csv(
+                "nombre,apellidos,dni,telefono",
+                "Ana,García,22222222B,+34600000001",
+                "Luis,Pérez,33333333C,+34600000002",
+                "Ana,García,22222222B,+34600000001",
+                "Eva,Ruiz,11111111A,+34600000003",
+                "Luis,Pérez,33333333C,+34600000002",
+                "Luis,Pérez,33333333C,+34600000002"));
+
+        assertThat(resultado.getRegistrosLeidos()).isEqualTo(6);
+        assertThat(resultado.getImportados()).isEqualTo(2);
+        assertThat(resultado.getErrores()).extracting(ErrorLinea::getLinea).containsExactly(2L, 3L, 5L, 7L);
+        assertThat(resultado.getErrores().get(0).getMensaje()).startsWith("Lote rechazado");
+        assertThat(resultado.getErrores().get(2).getMensaje()).contains("11111111A");
+        assertThat(resultado.getErrores().get(3).getMensaje()).contains("33333333C");
+    }
+
+    @Test
+    void repetidosDentroDelMismoLoteSeRechazan() throws Exception {
+        when(clienteRepository.findAllDni()).thenReturn(List.of());
+
+        ImportacionResultadoDTO resultado = importacion.importarClientes(csv(
+                "nombre,apellidos,dni,telefono",
+                "Ana,García,22222222B,+34600000001",
+                "Ana,García,22222222B,+34600000001"));
+
+        assertThat(resultado.getImportados()).isEqualTo(1);
+        assertThat(resultado.getErrores()).extracting(ErrorLinea::getLinea).containsExactly(3L);
+    }
+
+    @Test
+    void invalidaCadaClienteUnaVezPorLote() throws Exception {
+        setField(importacion, "tamanoLote", 10);
+        when(clienteRepository.findAllDniConId()).thenReturn(List.of(
+                new Object[] { "11111111A", 1L }, new Object[] { "22222222B", 2L }));
+        when(entityManager.getReference(eq(Cliente.class), any())).thenAnswer(inv -> {
+            Cliente cliente = new Cliente();
+            cliente.setId(inv.getArgument(1));
+            return cliente;
+        });
+
+        ImportacionResultadoDTO resultado = importacion.importarMascotas(csv(
+                "nombre,especie,dniCliente",
+                "Toby,Perro,11111111A",
+                "Misi,Gato,11111111A",
+                "Nala,Gato,11111111A",
+                "Rex,Perro,22222222B",
+                "Kira,Perro,22222222B"));
+
+        assertThat(resultado.getImportados()).isEqualTo(5);
+        verify(resumenService).invalidar(1L);
+        verify(resumenService).invalidar(2L);
+        verify(resumenService, times(2)).invalidar(anyLong());
+    }
+
+    private static InputStream csv(String... lineas) {
+        return new ByteArrayInputStream(String.join("\n", lineas).getBytes(StandardCharsets.UTF_8));
+    }
+}
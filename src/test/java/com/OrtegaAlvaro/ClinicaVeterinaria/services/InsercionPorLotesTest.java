@@ -0,0 +1,102 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CitaVeterinaria;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Cliente;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Tratamiento;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sentencias JDBC de una inserción masiva de citas y tratamientos, medidas con
+ * las estadísticas de Hibernate. Con IDs de secuencia (allocationSize = 50) y
+ * hibernate.jdbc.batch_size = 50 cada 50 filas cuestan una sentencia de
+ * inserción y, como mucho, una de secuencia.
+ * No se mide el caso anterior (IDENTITY): la estrategia de IDs va en las
+ * anotaciones de las entidades y no se puede cambiar solo para la prueba. Con
+ * IDENTITY Hibernate no agrupa los INSERT, así que serían al menos tantas
+ * sentencias como filas.
+ * Necesita la base de datos MariaDB de la aplicación (DB_URL...); todo se
+ * deshace al terminar.
+ */
+@SpringBootTest(properties = "cache.cambios.activo=false")
+@Transactional
+@EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+class InsercionPorLotesTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(InsercionPorLotesTest.class);
+
+    private static final int CITAS = 500;
+
+    private static final int TRATAMIENTOS_POR_CITA = 2;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void lasInsercionesSeAgrupanEnLotes() {
+        Statistics estadisticas = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getStatistics();
+        estadisticas.clear();
+
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Lote");
+        cliente.setApellidos("Prueba");
+        cliente.setDni(dniAleatorio());
+        cliente.setTelefono("+34600000000");
+        entityManager.persist(cliente);
+
+        Mascota mascota = new Mascota();
+        mascota.setNombre("Lote");
+        mascota.setEspecie("Perro");
+        mascota.setCliente(cliente);
+        entityManager.persist(mascota);
+
+        LocalDateTime inicio = LocalDateTime.of(2030, 1, 1, 9, 0);
+        for (int i = 0; i < CITAS; i++) {
+            CitaVeterinaria cita = new CitaVeterinaria();
+            cita.setFechaHora(inicio.plusMinutes(30L * i));
+            cita.setMotivo("Revisión " + i);
+            cita.setMascota(mascota);
+            for (int t = 0; t < TRATAMIENTOS_POR_CITA; t++) {
+                Tratamiento tratamiento = new Tratamiento();
+                tratamiento.setDescripcion("Tratamiento " + t);
+                tratamiento.setPrecio(10.0);
+                cita.addTratamiento(tratamiento);
+            }
+            entityManager.persist(cita);
+        }
+        entityManager.flush();
+
+        long filas = 2 + CITAS + (long) CITAS * TRATAMIENTOS_POR_CITA;
+        long sentencias = estadisticas.getPrepareStatementCount();
+        logger.debug("Inserción de {} filas: {} sentencias JDBC", filas, sentencias);
+
+        assertThat(estadisticas.getEntityInsertCount()).isEqualTo(filas);
+        // Por tabla: un lote de INSERT y una llamada a la secuencia cada 50
+        // filas, más algún margen por consultas de otros hilos
+        long lotes = 2 * (2 + Math.ceilDiv(CITAS, 50) + Math.ceilDiv(CITAS * TRATAMIENTOS_POR_CITA, 50));
+        assertThat(sentencias).isLessThanOrEqualTo(lotes + 10);
+    }
+
+    /**
+     * DNI válido (8 cifras y letra de control) que no choca con los de prueba.
+     */
+    private static String dniAleatorio() {
+        int numero = ThreadLocalRandom.current().nextInt(90_000_000, 100_000_000);
+        return String.format("%08d%c", numero, "TRWAGMYFPDXBNJZSQVHLCKE".charAt(numero % 23));
+    }
+}
@@ -0,0 +1,118 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.dto.LimpiezaImagenesDTO;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.ImagenReferenciaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.MascotaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pasada de limpieza sobre un almacén local: solo se borran los huérfanos
+ * antiguos (con sus variantes) que ninguna subida ha vuelto a usar.
+ */
+class LimpiezaImagenesServiceTest {
+
+    private static final String EN_USO = "a1".repeat(32) + ".jpg";
+    private static final String HUERFANA = "b2".repeat(32) + ".jpg";
+    private static final String RECIENTE = "c3".repeat(32) + ".jpg";
+    private static final String REUTILIZADA = "d4".repeat(32) + ".jpg";
+
+    @TempDir
+    Path directorio;
+
+    private final MascotaRepository mascotas = mock(MascotaRepository.class);
+    private final ImagenReferenciaRepository referencias = mock(ImagenReferenciaRepository.class);
+    private final CacheImagenService cacheImagenes = mock(CacheImagenService.class);
+    private final PlatformTransactionManager transacciones = mock(PlatformTransactionManager.class);
+
+    private AlmacenImagenesLocal almacen;
+
+    private LimpiezaImagenesService limpieza;
+
+    @BeforeEach
+    void configurar() {
+        when(transacciones.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(mascotas.streamImagenes()).thenAnswer(inv -> Stream.of(EN_USO));
+        when(referencias.eliminarHuerfana(anyString(), any())).thenReturn(1);
+        when(referencias.eliminarHuerfana(eq(REUTILIZADA), any())).thenReturn(0);
+        when(referencias.existsById(REUTILIZADA)).thenReturn(true);
+        almacen = new AlmacenImagenesLocal(directorio);
+        limpieza = new LimpiezaImagenesService(mascotas, referencias, almacen, cacheImagenes,
+                new TransactionTemplate(transacciones), transacciones, Duration.ofHours(24), 10_000);
+    }
+
+    @Test
+    void borraLosHuerfanosAntiguosYSusVariantes() throws Exception {
+        guardar(EN_USO, 100, Duration.ofDays(2));
+        guardar(variante(EN_USO), 10, Duration.ofDays(2));
+        guardar(HUERFANA, 200, Duration.ofDays(2));
+        guardar(variante(HUERFANA), 20, Duration.ofDays(2));
+
+        limpieza.limpiarProgramado();
+
+        assertThat(almacen.buscar(EN_USO)).isPresent();
+        assertThat(almacen.buscar(variante(EN_USO))).isPresent();
+        assertThat(almacen.buscar(HUERFANA)).isEmpty();
+        assertThat(almacen.buscar(variante(HUERFANA))).isEmpty();
+        verify(cacheImagenes).invalidar(List.of(HUERFANA));
+
+        LimpiezaImagenesDTO estado = limpieza.estado();
+        assertThat(estado.isEnCurso()).isFalse();
+        assertThat(estado.getRevisados()).isEqualTo(4);
+        assertThat(estado.getHuerfanosBorrados()).isEqualTo(2);
+        assertThat(estado.getBytesLiberados()).isEqualTo(220);
+    }
+
+    @Test
+    void respetaElPeriodoDeGracia() throws Exception {
+        guardar(RECIENTE, 100, Duration.ofHours(1));
+
+        limpieza.limpiarProgramado();
+
+        assertThat(almacen.buscar(RECIENTE)).isPresent();
+        assertThat(limpieza.estado().getHuerfanosBorrados()).isZero();
+    }
+
+    @Test
+    void noBorraUnaImagenQueUnaSubidaRecienteHaVueltoAUsar() throws Exception {
+        guardar(REUTILIZADA, 100, Duration.ofDays(2));
+
+        limpieza.limpiarProgramado();
+
+        assertThat(almacen.buscar(REUTILIZADA)).isPresent();
+        assertThat(limpieza.estado().getHuerfanosBorrados()).isZero();
+        assertThat(limpieza.estado().getErrores()).isZero();
+    }
+
+    private static String variante(String nombre) {
+        return nombre.replace(".jpg", MiniaturaService.Variante.THUMB.sufijo() + ".jpg");
+    }
+
+    private void guardar(String nombre, int bytes, Duration antiguedad) throws IOException {
+        Path origen = Files.write(directorio.resolve(".subida.tmp"), new byte[bytes]);
+        almacen.guardar(nombre, origen);
+        Files.setLastModifiedTime(almacen.buscar(nombre).orElseThrow(),
+                FileTime.from(Instant.now().minus(antiguedad)));
+    }
+}
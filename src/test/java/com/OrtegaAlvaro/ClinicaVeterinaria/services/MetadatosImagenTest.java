@@ -0,0 +1,162 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static java.util.Arrays.copyOfRange;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Eliminación de metadatos de JPEG y PNG sin recomprimir.
+ */
+class MetadatosImagenTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void quitaExifComentariosYDatosFinalesDeUnJpegYConservaLosPixeles() throws Exception {
+        byte[] original = jpeg(BufferedImage.TYPE_INT_RGB);
+        byte[] conMetadatos = concatenar(
+                copyOfRange(original, 0, 2),
+                segmento(0xE1, exif(1, "GPSLatitude 40.4168")),
+                segmento(0xFE, "Hecha con mi movil".getBytes(StandardCharsets.US_ASCII)),
+                copyOfRange(original, 2, original.length),
+                "vista previa con GPS".getBytes(StandardCharsets.US_ASCII));
+
+        byte[] limpio = quitar(conMetadatos, ".jpg");
+
+        assertThat(contiene(limpio, "GPS")).isFalse();
+        assertThat(contiene(limpio, "movil")).isFalse();
+        assertThat(contiene(limpio, "Exif")).isFalse();
+        assertThat(limpio).isEqualTo(original);
+    }
+
+    @Test
+    void conservaSoloLaOrientacionExif() throws Exception {
+        byte[] original = jpeg(BufferedImage.TYPE_INT_RGB);
+        byte[] conMetadatos = concatenar(copyOfRange(original, 0, 2),
+                segmento(0xE1, exif(6, "GPSLatitude 40.4168")),
+                copyOfRange(original, 2, original.length));
+
+        byte[] limpio = quitar(conMetadatos, ".jpg");
+
+        assertThat(contiene(limpio, "GPS")).isFalse();
+        int inicio = indice(limpio, "Exif");
+        assertThat(inicio).isPositive();
+        byte[] bloque = copyOfRange(limpio, inicio, limpio.length);
+        assertThat(MetadatosImagen.orientacionTiff(bloque)).isEqualTo(6);
+        assertThat(ImageIO.read(new ByteArrayInputStream(limpio)).getWidth()).isEqualTo(32);
+    }
+
+    @Test
+    void quitaTextoYExifDeUnPngYConservaLaTransparencia() throws Exception {
+        byte[] original = png();
+        // Bloques de texto insertados tras IHDR (8 de firma + 25 de IHDR)
+        byte[] conMetadatos = concatenar(copyOfRange(original, 0, 33),
+                bloquePng("tEXt", "Comment\0GPS 40.4168".getBytes(StandardCharsets.ISO_8859_1)),
+                // eXIf lleva el TIFF sin la cabecera "Exif\0\0"
+                bloquePng("eXIf", copyOfRange(exif(1, "GPSLatitude"), 6, 6 + 26 + 11)),
+                copyOfRange(original, 33, original.length));
+
+        byte[] limpio = quitar(conMetadatos, ".png");
+
+        assertThat(contiene(limpio, "GPS")).isFalse();
+        assertThat(limpio).isEqualTo(original);
+        assertThat(ImageIO.read(new ByteArrayInputStream(limpio)).getColorModel().hasAlpha()).isTrue();
+    }
+
+    @Test
+    void rechazaFicherosTruncados() throws Exception {
+        byte[] original = jpeg(BufferedImage.TYPE_INT_RGB);
+        byte[] truncado = copyOfRange(original, 0, 10);
+
+        assertThatThrownBy(() -> quitar(truncado, ".jpg")).isInstanceOf(IOException.class);
+    }
+
+    // --- Métodos auxiliares ---
+
+    private byte[] quitar(byte[] datos, String extension) throws IOException {
+        Path origen = directorio.resolve("origen" + extension);
+        Path destino = directorio.resolve("destino" + extension);
+        Files.write(origen, datos);
+        MetadatosImagen.quitar(origen, destino, extension);
+        return Files.readAllBytes(destino);
+    }
+
+    private static byte[] jpeg(int tipo) throws IOException {
+        BufferedImage imagen = new BufferedImage(32, 16, tipo);
+        imagen.setRGB(3, 3, 0xFF0000);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        ImageIO.write(imagen, "jpeg", salida);
+        return salida.toByteArray();
+    }
+
+    private static byte[] png() throws IOException {
+        BufferedImage imagen = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+        imagen.setRGB(1, 1, 0x80FF0000);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        ImageIO.write(imagen, "png", salida);
+        return salida.toByteArray();
+    }
+
+    /**
+     * Bloque "Exif\0\0" + TIFF big-endian con la orientación y un texto
+     * cualquiera (p. ej. coordenadas GPS) después del IFD.
+     */
+    private static byte[] exif(int orientacion, String texto) {
+        byte[] extra = texto.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer b = ByteBuffer.allocate(6 + 26 + extra.length);
+        b.put("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+        b.put((byte) 'M').put((byte) 'M').putShort((short) 42).putInt(8);
+        b.putShort((short) 1);
+        b.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientacion).putShort((short) 0);
+        b.putInt(0);
+        b.put(extra);
+        return b.array();
+    }
+
+    private static byte[] segmento(int marcador, byte[] datos) {
+        ByteBuffer b = ByteBuffer.allocate(4 + datos.length);
+        b.put((byte) 0xFF).put((byte) marcador).putShort((short) (datos.length + 2)).put(datos);
+        return b.array();
+    }
+
+    private static byte[] bloquePng(String tipo, byte[] datos) {
+        byte[] nombre = tipo.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(nombre);
+        crc.update(datos);
+        ByteBuffer b = ByteBuffer.allocate(12 + datos.length);
+        b.putInt(datos.length).put(nombre).put(datos).putInt((int) crc.getValue());
+        return b.array();
+    }
+
+    private static byte[] concatenar(byte[]... partes) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        for (byte[] parte : partes) {
+            salida.writeBytes(parte);
+        }
+        return salida.toByteArray();
+    }
+
+    private static boolean contiene(byte[] datos, String texto) {
+        return indice(datos, texto) >= 0;
+    }
+
+    private static int indice(byte[] datos, String texto) {
+        return new String(datos, StandardCharsets.ISO_8859_1).indexOf(texto);
+    }
+}
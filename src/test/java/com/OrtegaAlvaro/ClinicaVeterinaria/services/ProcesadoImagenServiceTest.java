@@ -0,0 +1,100 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Qué fotos se reducen y recomprimen al subirlas y cuáles se quedan como
+ * están.
+ */
+class ProcesadoImagenServiceTest {
+
+    @TempDir
+    Path directorio;
+
+    private final ProcesadoImagenService procesado = new ProcesadoImagenService(1, 1600, 0.82f, 40_000_000L,
+            DataSize.ofKilobytes(400));
+
+    @AfterEach
+    void cerrar() {
+        procesado.cerrar();
+    }
+
+    @Test
+    void unaFotoPequenaSeQuedaComoEsta() throws Exception {
+        Path foto = guardar(ruido(400, 300, BufferedImage.TYPE_INT_RGB), "jpeg", "foto.jpg");
+        byte[] original = Files.readAllBytes(foto);
+
+        assertThat(procesado.optimizar(foto, ".jpg")).isEqualTo(".jpg");
+        assertThat(Files.readAllBytes(foto)).isEqualTo(original);
+    }
+
+    @Test
+    void unPngConTransparenciaNoSeConvierteAJpeg() throws Exception {
+        Path foto = guardar(ruido(2400, 1800, BufferedImage.TYPE_INT_ARGB), "png", "logo.png");
+        long tamano = Files.size(foto);
+
+        assertThat(procesado.optimizar(foto, ".png")).isEqualTo(".png");
+        assertThat(Files.size(foto)).isEqualTo(tamano);
+    }
+
+    @Test
+    void unaFotoGrandeSeReduceYRecomprime() throws Exception {
+        Path foto = guardar(ruido(2400, 1800, BufferedImage.TYPE_INT_RGB), "png", "foto.png");
+        long tamano = Files.size(foto);
+
+        assertThat(procesado.optimizar(foto, ".png")).isEqualTo(".jpg");
+        assertThat(Files.size(foto)).isLessThan(tamano);
+        BufferedImage resultado = ImageIO.read(foto.toFile());
+        assertThat(resultado.getWidth()).isEqualTo(1600);
+        assertThat(resultado.getHeight()).isEqualTo(1200);
+    }
+
+    @Test
+    void siElJpegNoOcupaMenosSeConservaElOriginal() throws Exception {
+        // Un PNG de un solo color ocupa muy poco aunque sea enorme
+        BufferedImage plano = new BufferedImage(3000, 3000, BufferedImage.TYPE_INT_RGB);
+        Path foto = guardar(plano, "png", "plano.png");
+        byte[] original = Files.readAllBytes(foto);
+
+        assertThat(procesado.optimizar(foto, ".png")).isEqualTo(".png");
+        assertThat(Files.readAllBytes(foto)).isEqualTo(original);
+    }
+
+    @Test
+    void unGifNoSeToca() throws Exception {
+        Path foto = guardar(ruido(200, 100, BufferedImage.TYPE_INT_RGB), "gif", "animada.gif");
+        byte[] original = Files.readAllBytes(foto);
+
+        assertThat(procesado.optimizar(foto, ".gif")).isEqualTo(".gif");
+        assertThat(Files.readAllBytes(foto)).isEqualTo(original);
+    }
+
+    private Path guardar(BufferedImage imagen, String formato, String nombre) throws IOException {
+        Path fichero = directorio.resolve(nombre);
+        ImageIO.write(imagen, formato, fichero.toFile());
+        return fichero;
+    }
+
+    private static BufferedImage ruido(int ancho, int alto, int tipo) {
+        BufferedImage imagen = new BufferedImage(ancho, alto, tipo);
+        Random azar = new Random(42);
+        for (int y = 0; y < alto; y++) {
+            for (int x = 0; x < ancho; x++) {
+                imagen.setRGB(x, y, azar.nextInt());
+            }
+        }
+        return imagen;
+    }
+}
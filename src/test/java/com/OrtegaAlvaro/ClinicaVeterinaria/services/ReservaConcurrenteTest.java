@@ -0,0 +1,224 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.CitaVeterinaria;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Cliente;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Mascota;
+import com.OrtegaAlvaro.ClinicaVeterinaria.entities.Veterinario;
+import com.OrtegaAlvaro.ClinicaVeterinaria.exceptions.ConflictoException;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.CitaVeterinariaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.ClienteRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.MascotaRepository;
+import com.OrtegaAlvaro.ClinicaVeterinaria.repositories.VeterinarioRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reservas simultáneas contra la base de datos real. Los cerrojos en memoria
+ * (BloqueoAgendaService) se sustituyen por uno que no bloquea nada, como si
+ * cada reserva llegara a una instancia distinta: solo queda el SELECT ... FOR
+ * UPDATE sobre la fila del veterinario.
+ * Necesita la base de datos MariaDB de la aplicación (DB_URL...); los datos
+ * creados se borran al terminar.
+ */
+@SpringBootTest(properties = "cache.cambios.activo=false")
+@EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+class ReservaConcurrenteTest {
+
+    private static final int HILOS = 16;
+
+    @TestConfiguration
+    static class SinCerrojosEnMemoria {
+
+        @Bean
+        @Primary
+        BloqueoAgendaService bloqueoQueNoBloquea() {
+            return new BloqueoAgendaService(1, 0) {
+                @Override
+                public <T> T ejecutar(Long veterinarioId, LocalDate dia, Supplier<T> accion) {
+                    return accion.get();
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private CitaVeterinariaService citaService;
+
+    @Autowired
+    private CitaVeterinariaRepository citaRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private MascotaRepository mascotaRepository;
+
+    @Autowired
+    private VeterinarioRepository veterinarioRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Cliente cliente;
+
+    private Mascota mascota;
+
+    private Veterinario veterinario;
+
+    @BeforeEach
+    void crearDatos() {
+        int n = ThreadLocalRandom.current().nextInt(90_000_000, 100_000_000);
+        cliente = new Cliente();
+        cliente.setNombre("Reserva");
+        cliente.setApellidos("Concurrente");
+        cliente.setDni(String.format("%08d%c", n, "TRWAGMYFPDXBNJZSQVHLCKE".charAt(n % 23)));
+        cliente.setTelefono("+34600000000");
+        cliente = clienteRepository.save(cliente);
+
+        mascota = new Mascota();
+        mascota.setNombre("Reserva");
+        mascota.setEspecie("Perro");
+        mascota.setCliente(cliente);
+        mascota = mascotaRepository.save(mascota);
+
+        veterinario = new Veterinario();
+        veterinario.setNombre("Reserva");
+        veterinario.setApellidos("Concurrente");
+        veterinario.setNumeroColegiado("TEST-" + n);
+        veterinario.setEmail("reserva" + n + "@clinica.test");
+        veterinario = veterinarioRepository.save(veterinario);
+    }
+
+    @AfterEach
+    void borrarDatos() {
+        transactionTemplate.executeWithoutResult(status -> {
+            citaRepository.deleteAll(citaRepository.findByVeterinarioIdOrderByFechaHoraAsc(veterinario.getId()));
+            veterinarioRepository.deleteById(veterinario.getId());
+            mascotaRepository.deleteById(mascota.getId());
+            clienteRepository.deleteById(cliente.getId());
+        });
+    }
+
+    @Test
+    void reservasSimultaneasNoSeSolapan() throws Exception {
+        // Cada hilo pide un hueco 5 minutos después del anterior: con citas de
+        // 30 minutos, todos chocan con sus vecinos
+        LocalDateTime inicio = LocalDateTime.of(2031, 5, 6, 10, 0);
+        List<LocalDateTime> fechas = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            fechas.add(inicio.plusMinutes(5L * i));
+        }
+
+        int reservadas = reservarALaVez(fechas);
+
+        assertThat(reservadas).isPositive();
+        assertThat(citasActivas()).isEqualTo(reservadas);
+        assertThat(solapamientos()).isZero();
+    }
+
+    @Test
+    void reservasSimultaneasAlCambiarDeDiaNoSeSolapan() throws Exception {
+        // 23:50 y 00:10 caen en días (y franjas) distintos pero se solapan
+        for (int dia = 0; dia < HILOS / 2; dia++) {
+            LocalDateTime medianoche = LocalDateTime.of(2031, 6, 1, 0, 0).plusDays(dia + 1);
+            int reservadas = reservarALaVez(List.of(medianoche.minusMinutes(10), medianoche.plusMinutes(10)));
+            assertThat(reservadas).isEqualTo(1);
+        }
+
+        assertThat(citasActivas()).isEqualTo(HILOS / 2);
+        assertThat(solapamientos()).isZero();
+    }
+
+    /**
+     * Lanza una reserva por fecha, todas a la vez.
+     *
+     * @return Número de reservas que no dieron conflicto.
+     */
+    private int reservarALaVez(List<LocalDateTime> fechas) throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(fechas.size());
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            for (LocalDateTime fecha : fechas) {
+                resultados.add(hilos.submit(() -> {
+                    salida.await();
+                    try {
+                        citaService.reservar(nuevaCita(fecha));
+                        return true;
+                    } catch (ConflictoException ex) {
+                        return false;
+                    }
+                }));
+            }
+            salida.countDown();
+            int reservadas = 0;
+            for (Future<Boolean> resultado : resultados) {
+                if (resultado.get(60, TimeUnit.SECONDS)) {
+                    reservadas++;
+                }
+            }
+            return reservadas;
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private CitaVeterinaria nuevaCita(LocalDateTime fecha) {
+        CitaVeterinaria cita = new CitaVeterinaria();
+        cita.setFechaHora(fecha);
+        cita.setMotivo("Reserva concurrente");
+        cita.setMascota(mascota);
+        cita.setVeterinario(veterinario);
+        return cita;
+    }
+
+    private long citasActivas() {
+        return ((Number) entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM cita_veterinaria WHERE veterinario_id = ?1 AND estado <> 'C'")
+                .setParameter(1, veterinario.getId())
+                .getSingleResult()).longValue();
+    }
+
+    /**
+     * Parejas de citas activas del veterinario que empiezan a menos de una
+     * duración de cita la una de la otra.
+     */
+    private long solapamientos() {
+        return ((Number) entityManager.createNativeQuery("""
+                SELECT COUNT(*) FROM cita_veterinaria a
+                JOIN cita_veterinaria b ON b.veterinario_id = a.veterinario_id AND b.id > a.id
+                WHERE a.veterinario_id = ?1 AND a.estado <> 'C' AND b.estado <> 'C'
+                  AND ABS(TIMESTAMPDIFF(MINUTE, a.fecha_hora, b.fecha_hora)) < ?2
+                """)
+                .setParameter(1, veterinario.getId())
+                .setParameter(2, citaService.getDuracionCita().toMinutes())
+                .getSingleResult()).longValue();
+    }
+}
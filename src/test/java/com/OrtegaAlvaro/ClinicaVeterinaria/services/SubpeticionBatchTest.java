@@ -0,0 +1,102 @@
+package com.OrtegaAlvaro.ClinicaVeterinaria.services;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * E/S asíncrona de las peticiones y respuestas sintéticas de /api/batch: los
+ * cuerpos están en memoria, así que los listeners se avisan en el acto.
+ */
+class SubpeticionBatchTest {
+
+    @Test
+    void elReadListenerLeeElCuerpoYRecibeElFinal() throws IOException {
+        PeticionInterna peticion = new PeticionInterna(new MockHttpServletRequest(), "POST", "/api/clientes",
+                "{\"nombre\":\"Ana\"}".getBytes(StandardCharsets.UTF_8));
+        ServletInputStream entrada = peticion.getInputStream();
+        ByteArrayOutputStream leido = new ByteArrayOutputStream();
+        List<String> avisos = new ArrayList<>();
+
+        entrada.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                avisos.add("datos");
+                byte[] buffer = new byte[4];
+                int n;
+                while (entrada.isReady() && (n = entrada.read(buffer)) != -1) {
+                    leido.write(buffer, 0, n);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                avisos.add("fin");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                avisos.add("error");
+            }
+        });
+
+        assertThat(avisos).containsExactly("datos", "fin");
+        assertThat(leido.toString(StandardCharsets.UTF_8)).isEqualTo("{\"nombre\":\"Ana\"}");
+    }
+
+    @Test
+    void sinCuerpoSoloSeAvisaDelFinal() throws IOException {
+        PeticionInterna peticion = new PeticionInterna(new MockHttpServletRequest(), "GET", "/api/clientes", null);
+        List<String> avisos = new ArrayList<>();
+
+        peticion.getInputStream().setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() {
+                avisos.add("datos");
+            }
+
+            @Override
+            public void onAllDataRead() {
+                avisos.add("fin");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                avisos.add("error");
+            }
+        });
+
+        assertThat(avisos).containsExactly("fin");
+    }
+
+    @Test
+    void elWriteListenerEscribeEnElBuffer() throws IOException {
+        RespuestaInterna respuesta = new RespuestaInterna(new MockHttpServletResponse());
+        ServletOutputStream salida = respuesta.getOutputStream();
+
+        salida.setWriteListener(new WriteListener() {
+            @Override
+            public void onWritePossible() throws IOException {
+                salida.write("{\"ok\":true}".getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        });
+
+        assertThat(respuesta.getCuerpo()).isEqualTo("{\"ok\":true}");
+    }
+}